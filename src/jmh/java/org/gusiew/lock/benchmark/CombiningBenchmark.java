@@ -0,0 +1,48 @@
+package org.gusiew.lock.benchmark;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link ReentrantLocker#lock} and {@link ReentrantLocker#combine} when all threads update
+ * single hot value and critical section is tiny. With combining, thread that acquires the lock runs queued
+ * updates of other threads, so the lock and the counter stay in cache of single core for the whole batch
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class CombiningBenchmark {
+
+    private static final Object HOT_KEY = "HOT";
+
+    @State(Scope.Benchmark)
+    public static class LockerState {
+
+        ReentrantLocker locker;
+        long counter;
+
+        @Setup
+        public void setup() {
+            locker = new ReentrantLocker();
+        }
+    }
+
+    @Benchmark
+    public long lock(LockerState state) {
+        Mutex mutex = state.locker.lock(HOT_KEY);
+        long result = ++state.counter;
+        mutex.release();
+        return result;
+    }
+
+    @Benchmark
+    public long combine(LockerState state) {
+        return state.locker.combine(HOT_KEY, v -> ++state.counter);
+    }
+}
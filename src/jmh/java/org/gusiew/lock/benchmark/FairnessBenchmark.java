@@ -0,0 +1,49 @@
+package org.gusiew.lock.benchmark;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares fair and barging {@link ReentrantLocker} when all threads compete for single value.
+ * <p>Throughput shows the cost of handing the lock over to waiting thread, sample time percentiles
+ * (p0.99, p0.999 in JMH output) show how long threads wait for the lock. Barging locker usually wins
+ * throughput and loses in the tail, as single thread can keep reacquiring the lock while others wait
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class FairnessBenchmark {
+
+    private static final Object HOT_KEY = "HOT";
+
+    @State(Scope.Benchmark)
+    public static class LockerState {
+
+        @Param({"false", "true"})
+        boolean fair;
+
+        @Param({"100"})
+        int workUnderLock;
+
+        ReentrantLocker locker;
+
+        @Setup
+        public void setup() {
+            locker = ReentrantLocker.builder().fair(fair).build();
+        }
+    }
+
+    @Benchmark
+    public void hotKey(LockerState state) {
+        Mutex mutex = state.locker.lock(HOT_KEY);
+        Blackhole.consumeCPU(state.workUnderLock);
+        mutex.release();
+    }
+}
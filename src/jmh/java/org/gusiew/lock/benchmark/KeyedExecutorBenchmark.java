@@ -0,0 +1,85 @@
+package org.gusiew.lock.benchmark;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.gusiew.lock.impl.SerialKeyedExecutor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares running work exclusively per value with {@link ReentrantLocker} and {@link SerialKeyedExecutor}.
+ * <p>Each invocation runs a batch of work items, keys are drawn from {@code numberOfKeys} values,
+ * single key means all work competes for one hot value. Locker threads block on the hot value while
+ * executor threads only enqueue and wait for the batch to complete
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class KeyedExecutorBenchmark {
+
+    private static final int BATCH = 256;
+    private static final int POOL_SIZE = 4;
+
+    @State(Scope.Benchmark)
+    public static class SharedState {
+
+        @Param({"1", "16"})
+        int numberOfKeys;
+
+        @Param({"100"})
+        int work;
+
+        ReentrantLocker locker;
+        SerialKeyedExecutor keyedExecutor;
+        ExecutorService pool;
+
+        @Setup
+        public void setup() {
+            locker = new ReentrantLocker();
+            pool = Executors.newFixedThreadPool(POOL_SIZE);
+            keyedExecutor = new SerialKeyedExecutor(pool);
+        }
+
+        @TearDown
+        public void tearDown() throws InterruptedException {
+            pool.shutdown();
+            pool.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        Integer nextKey() {
+            return ThreadLocalRandom.current().nextInt(numberOfKeys);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void locker(SharedState state) {
+        for (int i = 0; i < BATCH; i++) {
+            Mutex mutex = state.locker.lock(state.nextKey());
+            Blackhole.consumeCPU(state.work);
+            mutex.release();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void keyedExecutor(SharedState state) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            futures[i] = state.keyedExecutor.submit(state.nextKey(), () -> {
+                Blackhole.consumeCPU(state.work);
+                return null;
+            });
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+}
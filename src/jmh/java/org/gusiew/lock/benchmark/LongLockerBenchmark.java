@@ -0,0 +1,87 @@
+package org.gusiew.lock.benchmark;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.gusiew.lock.impl.ReentrantLongLocker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares locking of long entity ids with {@link ReentrantLocker}, which needs {@link Long} keys, and
+ * {@link ReentrantLongLocker}. Ids are outside of {@link Long} cache, so each lock boxes the id as callers do.
+ * Run with GC profiler ({@code -prof gc}) to compare allocation per operation
+ * <ul>
+ *   <li>distinct ids - each thread locks ids from its own range, contention is rare</li>
+ *   <li>hot id - all threads compete for single id</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class LongLockerBenchmark {
+
+    private static final long FIRST_ID = 1_000_000_000L;
+    private static final long HOT_ID = 42_000_000_000L;
+    private static final int IDS_PER_THREAD = 1 << 10;
+
+    @State(Scope.Benchmark)
+    public static class LockerState {
+
+        ReentrantLocker locker;
+        ReentrantLongLocker longLocker;
+
+        @Setup
+        public void setup() {
+            locker = new ReentrantLocker();
+            longLocker = new ReentrantLongLocker();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private static int threads;
+
+        long firstId;
+        int next;
+
+        @Setup
+        public void setup() {
+            synchronized (ThreadState.class) {
+                firstId = FIRST_ID + (long) threads++ * IDS_PER_THREAD;
+            }
+        }
+
+        long nextId() {
+            return firstId + (next++ & (IDS_PER_THREAD - 1));
+        }
+    }
+
+    @Benchmark
+    public void boxedDistinctIds(LockerState lockerState, ThreadState threadState) {
+        Mutex mutex = lockerState.locker.lock(threadState.nextId());
+        mutex.release();
+    }
+
+    @Benchmark
+    public void primitiveDistinctIds(LockerState lockerState, ThreadState threadState) {
+        Mutex mutex = lockerState.longLocker.lock(threadState.nextId());
+        mutex.release();
+    }
+
+    @Benchmark
+    public void boxedHotId(LockerState lockerState) {
+        Mutex mutex = lockerState.locker.lock(HOT_ID);
+        mutex.release();
+    }
+
+    @Benchmark
+    public void primitiveHotId(LockerState lockerState) {
+        Mutex mutex = lockerState.longLocker.lock(HOT_ID);
+        mutex.release();
+    }
+}
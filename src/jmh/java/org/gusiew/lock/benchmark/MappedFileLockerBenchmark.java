@@ -0,0 +1,70 @@
+package org.gusiew.lock.benchmark;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.MappedFileLocker;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares uncontended lock and release of {@link MappedFileLocker} with {@link FileChannel#lock} of a byte per value,
+ * which takes a system call for each of them
+ * <pre>
+ *     mvn -P benchmark verify -DskipTests -Djmh.args="MappedFileLockerBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MappedFileLockerBenchmark {
+
+    private static final int NUMBER_OF_KEYS = 1 << 10;
+
+    private Path mappedFile;
+    private Path lockedFile;
+    private MappedFileLocker locker;
+    private FileChannel channel;
+    private Long[] keys;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        mappedFile = Files.createTempFile("benchmark", ".locks");
+        lockedFile = Files.createTempFile("benchmark", ".lock");
+        locker = new MappedFileLocker(mappedFile);
+        channel = FileChannel.open(lockedFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        keys = new Long[NUMBER_OF_KEYS];
+        for (int i = 0; i < NUMBER_OF_KEYS; i++) {
+            keys[i] = (long) i;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        channel.close();
+        Files.delete(lockedFile);
+        Files.delete(mappedFile);
+    }
+
+    @Benchmark
+    public void mappedFileLocker() {
+        Mutex mutex = locker.lock(keys[next++ & (NUMBER_OF_KEYS - 1)]);
+        mutex.release();
+    }
+
+    @Benchmark
+    public void fileChannelLock() throws IOException {
+        long position = keys[next++ & (NUMBER_OF_KEYS - 1)].hashCode() & (NUMBER_OF_KEYS - 1);
+        FileLock lock = channel.lock(position, 1, false);
+        lock.release();
+    }
+}
@@ -0,0 +1,80 @@
+package org.gusiew.lock.benchmark;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.gusiew.lock.impl.metrics.LockerStatistics;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures overhead of recording {@link LockerStatistics}, with metrics off and on:
+ * <ul>
+ *   <li>{@code uncontended} - each thread locks and releases own values</li>
+ *   <li>{@code contended} - all threads lock and release single hot value, lock is held for a few cycles</li>
+ * </ul>
+ * <pre>
+ *     mvn -P benchmark verify -DskipTests -Djmh.args="MetricsBenchmark"
+ * </pre>
+ * Without metrics locker does not measure time, difference to metrics on is the cost of two
+ * {@link System#nanoTime()} calls and counter updates per acquisition
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private static final int NUMBER_OF_KEYS = 1 << 10;
+    private static final Object HOT_KEY = "hot";
+
+    @State(Scope.Benchmark)
+    public static class LockerState {
+
+        @Param({"false", "true"})
+        boolean metrics;
+
+        ReentrantLocker locker;
+
+        @Setup
+        public void setup() {
+            locker = ReentrantLocker.builder().metrics(metrics ? new LockerStatistics() : null).build();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        Object[] keys;
+        int next;
+
+        @Setup
+        public void setup() {
+            keys = new Object[NUMBER_OF_KEYS];
+            for (int i = 0; i < NUMBER_OF_KEYS; i++) {
+                keys[i] = new Object();
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void uncontended(LockerState lockerState, ThreadState threadState) {
+        Object key = threadState.keys[threadState.next++ & (NUMBER_OF_KEYS - 1)];
+        Mutex mutex = lockerState.locker.lock(key);
+        mutex.release();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void contended(LockerState lockerState) {
+        Mutex mutex = lockerState.locker.lock(HOT_KEY);
+        try {
+            Blackhole.consumeCPU(16);
+        } finally {
+            mutex.release();
+        }
+    }
+}
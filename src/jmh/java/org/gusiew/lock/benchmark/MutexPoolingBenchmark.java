@@ -0,0 +1,59 @@
+package org.gusiew.lock.benchmark;
+
+import org.gusiew.lock.api.Locker;
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures allocation of uncontended lock and release of value that is not active, with and without mutex pooling.
+ * Run with GC profiler to see allocation rate per operation:
+ * <pre>
+ *     mvn -P benchmark verify -DskipTests -Djmh.args="MutexPoolingBenchmark -prof gc"
+ * </pre>
+ * Without pooling {@code gc.alloc.rate.norm} is the size of new mutex. With pooling it is zero:
+ * mutex is recycled together with its handles and active mutex registry does not allocate entries
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MutexPoolingBenchmark {
+
+    private static final int NUMBER_OF_KEYS = 1 << 10;
+
+    @State(Scope.Benchmark)
+    public static class LockerState {
+
+        @Param({"false", "true"})
+        boolean pooled;
+
+        Locker locker;
+        Object[] keys;
+
+        @Setup
+        public void setup() {
+            locker = pooled ? ReentrantLocker.builder().buildPooled() : ReentrantLocker.builder().build();
+            keys = new Object[NUMBER_OF_KEYS];
+            for (int i = 0; i < NUMBER_OF_KEYS; i++) {
+                keys[i] = (long) i;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        int next;
+    }
+
+    @Benchmark
+    public void lockAndRelease(LockerState lockerState, ThreadState threadState) {
+        Object key = lockerState.keys[threadState.next++ & (NUMBER_OF_KEYS - 1)];
+        Mutex mutex = lockerState.locker.lock(key);
+        mutex.release();
+    }
+}
@@ -0,0 +1,99 @@
+package org.gusiew.lock.benchmark;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ReentrantLocker#lock} followed by {@link Mutex#release()} for typical workloads
+ * <ul>
+ *   <li>uncontended - every thread locks its own value</li>
+ *   <li>reentrant - thread locks value it already holds</li>
+ *   <li>hot key - all threads compete for single value</li>
+ *   <li>distinct keys - threads lock values picked from large key space, contention is rare</li>
+ * </ul>
+ * <p>Each workload is run for several concurrency levels (number of stripes in locker lock registry)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReentrantLockerBenchmark {
+
+    private static final int NUMBER_OF_KEYS = 1 << 16;
+    private static final int HOT_KEY_THREADS = 4;
+
+    @State(Scope.Benchmark)
+    public static class LockerState {
+
+        @Param({"1", "16", "256"})
+        int concurrencyLevel;
+
+        ReentrantLocker locker;
+        Object hotKey;
+        Object[] keys;
+
+        @Setup
+        public void setup() {
+            locker = new ReentrantLocker(concurrencyLevel);
+            hotKey = "HOT";
+            keys = new Object[NUMBER_OF_KEYS];
+            for (int i = 0; i < NUMBER_OF_KEYS; i++) {
+                keys[i] = (long) i;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        Object ownKey;
+        int seed;
+
+        @Setup
+        public void setup() {
+            ownKey = new Object();
+            seed = System.identityHashCode(this) | 1;
+        }
+
+        /**
+         * Xorshift, cheaper than any Random and does not share state between threads
+         */
+        int nextIndex() {
+            int x = seed;
+            x ^= x << 13;
+            x ^= x >>> 17;
+            x ^= x << 5;
+            seed = x;
+            return x & (NUMBER_OF_KEYS - 1);
+        }
+    }
+
+    @Benchmark
+    public void uncontended(LockerState locker, ThreadState thread) {
+        locker.locker.lock(thread.ownKey).release();
+    }
+
+    @Benchmark
+    public void reentrant(LockerState locker, ThreadState thread) {
+        Mutex outer = locker.locker.lock(thread.ownKey);
+        Mutex inner = locker.locker.lock(thread.ownKey);
+        inner.release();
+        outer.release();
+    }
+
+    @Benchmark
+    @Threads(HOT_KEY_THREADS)
+    public void hotKey(LockerState locker) {
+        locker.locker.lock(locker.hotKey).release();
+    }
+
+    @Benchmark
+    @Threads(HOT_KEY_THREADS)
+    public void distinctKeys(LockerState locker, ThreadState thread) {
+        locker.locker.lock(locker.keys[thread.nextIndex()]).release();
+    }
+}
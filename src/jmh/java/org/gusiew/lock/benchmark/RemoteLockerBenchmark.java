@@ -0,0 +1,87 @@
+package org.gusiew.lock.benchmark;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.LockServer;
+import org.gusiew.lock.impl.RemoteLocker;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of lock round trips of {@link RemoteLocker} to {@link LockServer} over loopback,
+ * with requests of concurrent threads batched into single writes and with each thread writing its own requests.
+ * Each thread locks and releases own values, so threads do not wait for each other's locks, only for the connection
+ * <pre>
+ *     mvn -P benchmark verify -DskipTests -Djmh.args="RemoteLockerBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RemoteLockerBenchmark {
+
+    private static final int NUMBER_OF_KEYS = 1 << 10;
+
+    @State(Scope.Benchmark)
+    public static class ServerState {
+
+        @Param({"true", "false"})
+        boolean batching;
+
+        LockServer server;
+        RemoteLocker locker;
+        final AtomicLong threads = new AtomicLong();
+
+        @Setup
+        public void setup() throws IOException {
+            server = new LockServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            server.start();
+            locker = new RemoteLocker(server.getAddress(), batching);
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            locker.close();
+            server.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        long[] keys;
+        int next;
+
+        @Setup
+        public void setup(ServerState serverState) {
+            long thread = serverState.threads.getAndIncrement();
+            keys = new long[NUMBER_OF_KEYS];
+            for (int i = 0; i < NUMBER_OF_KEYS; i++) {
+                keys[i] = thread * NUMBER_OF_KEYS + i;
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void singleThread(ServerState serverState, ThreadState threadState) {
+        lockAndRelease(serverState, threadState);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void eightThreads(ServerState serverState, ThreadState threadState) {
+        lockAndRelease(serverState, threadState);
+    }
+
+    private static void lockAndRelease(ServerState serverState, ThreadState threadState) {
+        Mutex mutex = serverState.locker.lock(threadState.keys[threadState.next++ & (NUMBER_OF_KEYS - 1)]);
+        mutex.release();
+    }
+}
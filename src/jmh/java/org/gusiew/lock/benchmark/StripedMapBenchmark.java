@@ -0,0 +1,94 @@
+package org.gusiew.lock.benchmark;
+
+import org.gusiew.lock.impl.util.StripedMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares padded and unpadded {@link StripedMap} stripes when many threads register and remove distinct keys,
+ * which is what {@link org.gusiew.lock.impl.ReentrantLocker} does on uncontended lock and release.
+ * <p>Every thread works on its own keys in its own stripe so any slowdown with growing number of threads comes from
+ * stripes sharing cache lines, not from contention on the keys or stripes
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StripedMapBenchmark {
+
+    private static final int KEYS_PER_THREAD = 1 << 10;
+
+    @State(Scope.Benchmark)
+    public static class MapState {
+
+        @Param({"true", "false"})
+        boolean padded;
+
+        @Param({"64"})
+        int numberOfStripes;
+
+        StripedMap<Object, Object> map;
+        final AtomicInteger threadIndex = new AtomicInteger();
+
+        @Setup
+        public void setup() {
+            map = new StripedMap<>(numberOfStripes, padded);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadKeys {
+
+        Object[] keys;
+        int next;
+
+        /**
+         * Keys of each thread fall into its own stripe, threads share a stripe only if there are more threads
+         * than stripes. Keys of threads never overlap
+         */
+        @Setup
+        public void setup(MapState mapState) {
+            int threadIndex = mapState.threadIndex.getAndIncrement();
+            int stripeIndex = threadIndex % mapState.map.getNumberOfStripes();
+            keys = new Object[KEYS_PER_THREAD];
+            long candidate = (long) threadIndex << 32;
+            for (int i = 0; i < KEYS_PER_THREAD; candidate++) {
+                Object key = candidate;
+                if(mapState.map.getStripeIndex(key) == stripeIndex) {
+                    keys[i++] = key;
+                }
+            }
+        }
+
+        Object nextKey() {
+            next = (next + 1) & (KEYS_PER_THREAD - 1);
+            return keys[next];
+        }
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void distinctKeys16Threads(MapState mapState, ThreadKeys threadKeys) {
+        putAndRemove(mapState.map, threadKeys.nextKey());
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void distinctKeys32Threads(MapState mapState, ThreadKeys threadKeys) {
+        putAndRemove(mapState.map, threadKeys.nextKey());
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void distinctKeys64Threads(MapState mapState, ThreadKeys threadKeys) {
+        putAndRemove(mapState.map, threadKeys.nextKey());
+    }
+
+    private static void putAndRemove(StripedMap<Object, Object> map, Object key) {
+        map.putIfAbsent(key, key);
+        map.remove(key, key);
+    }
+}
@@ -0,0 +1,75 @@
+package org.gusiew.lock.benchmark;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.gusiew.lock.impl.WaitStrategies;
+import org.gusiew.lock.impl.WaitStrategy;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures latency of lock and release of single hot value with different wait strategies and critical section
+ * lengths ({@code work} is in {@link Blackhole#consumeCPU(long)} tokens, 0 is empty critical section).
+ * Thread count should be at most number of cores, spinning threads compete with holder otherwise:
+ * <pre>
+ *     mvn -P benchmark verify -DskipTests -Djmh.args="WaitStrategyBenchmark -t 4"
+ * </pre>
+ * Spinning pays off while critical section is shorter than park and unpark round trip,
+ * adaptive strategy should follow the better of spinning and parking for each length
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(2)
+public class WaitStrategyBenchmark {
+
+    private static final Object HOT_KEY = "hot";
+
+    @State(Scope.Benchmark)
+    public static class LockerState {
+
+        @Param({"park", "busySpin", "spinWait", "yielding", "adaptive"})
+        String strategy;
+
+        @Param({"0", "100", "1000", "10000"})
+        long work;
+
+        ReentrantLocker locker;
+
+        @Setup
+        public void setup() {
+            locker = ReentrantLocker.builder().waitStrategy(waitStrategy(strategy)).build();
+        }
+
+        private static WaitStrategy waitStrategy(String name) {
+            switch (name) {
+                case "park":
+                    return WaitStrategies.park();
+                case "busySpin":
+                    return WaitStrategies.busySpin(1000);
+                case "spinWait":
+                    return WaitStrategies.spinWait(1000);
+                case "yielding":
+                    return WaitStrategies.yielding(10);
+                case "adaptive":
+                    return WaitStrategies.adaptive();
+                default:
+                    throw new IllegalArgumentException(name);
+            }
+        }
+    }
+
+    @Benchmark
+    public void lockAndRelease(LockerState lockerState) {
+        Mutex mutex = lockerState.locker.lock(HOT_KEY);
+        try {
+            Blackhole.consumeCPU(lockerState.work);
+        } finally {
+            mutex.release();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.gusiew.lock.benchmark;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long 100k virtual threads take to lock and release values drawn from Zipfian distribution,
+ * so few hot values are contended by thousands of threads and the rest rarely.
+ * <p>Runs with pinning tracing, any virtual thread pinned by locker while blocked is reported in benchmark output
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.tracePinnedThreads=short")
+public class VirtualThreadBenchmark {
+
+    private static final int NUMBER_OF_THREADS = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class LockerState {
+
+        @Param({"1024"})
+        int numberOfKeys;
+
+        @Param({"1.0"})
+        double zipfExponent;
+
+        @Param({"false", "true"})
+        boolean fair;
+
+        @Param({"100"})
+        int workUnderLock;
+
+        ReentrantLocker locker;
+        Object[] keys;
+        int[] keyIndexes;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            locker = ReentrantLocker.builder().concurrencyLevel(256).fair(fair).build();
+            keys = new Object[numberOfKeys];
+            for (int i = 0; i < numberOfKeys; i++) {
+                keys[i] = (long) i;
+            }
+            keyIndexes = zipfianIndexes(numberOfKeys, zipfExponent, NUMBER_OF_THREADS);
+        }
+    }
+
+    @Benchmark
+    public void zipfianKeys(LockerState state) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < NUMBER_OF_THREADS; i++) {
+                Object key = state.keys[state.keyIndexes[i]];
+                executor.execute(() -> {
+                    Mutex mutex = state.locker.lock(key);
+                    try {
+                        Blackhole.consumeCPU(state.workUnderLock);
+                    } finally {
+                        mutex.release();
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Samples key indexes by inverting cumulative Zipf distribution, index 0 is the hottest key
+     */
+    private static int[] zipfianIndexes(int numberOfKeys, double exponent, int numberOfSamples) {
+        double[] cumulative = new double[numberOfKeys];
+        double sum = 0;
+        for (int i = 0; i < numberOfKeys; i++) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        int[] indexes = new int[numberOfSamples];
+        for (int i = 0; i < numberOfSamples; i++) {
+            double u = random.nextDouble() * sum;
+            int index = Arrays.binarySearch(cumulative, u);
+            indexes[i] = index >= 0 ? index : -index - 1;
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,30 @@
+package org.gusiew.lock.api;
+
+/**
+ * Strategy that tells which values are same lock, used by lockers in place of {@link Object#equals(Object)}
+ * and {@link Object#hashCode()}
+ * <p>Makes it possible to lock on values that do not implement equality by content, e.g. arrays,
+ * buffer regions or keys with precomputed hash, without copying them into other objects first
+ * <p>Example
+ * <pre> {@code
+ *     Locker l = ReentrantLocker.builder().equivalence(new ContentEquivalence()).build();
+ *     withRunnable(l.lock(keyBytes), () -> {...})
+ *  }
+ *  </pre>
+ * Implementations must be consistent: equivalent values have same hash. Value must not change while it is locked
+ */
+public interface Equivalence {
+
+    /**
+     * @param value value to hash, never null
+     * @return hash of the value
+     */
+    int hash(Object value);
+
+    /**
+     * @param first value, never null
+     * @param second value, never null
+     * @return true if both values represent same lock
+     */
+    boolean equivalent(Object first, Object second);
+}
@@ -0,0 +1,50 @@
+package org.gusiew.lock.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock service that locks on primitive int value, without boxing it
+ * <p>Same as {@link Locker} locking on {@link Integer} of the value
+ * <p>Example
+ * <pre> {@code
+ *     IntLocker l = new ReentrantIntLocker();
+ *     withRunnable(l.lock(shardId), () -> {...})
+ *  }
+ *  </pre>
+ */
+public interface IntLocker {
+
+    /**
+     * @param value value to lock
+     * @return mutex that represents lock and makes it possible to release
+     */
+    Mutex lock(int value);
+
+    /**
+     * Acquires the lock only if it is not held by other thread at the time of invocation, never waits
+     *
+     * @param value value to lock
+     * @return mutex that represents lock or null if lock is held by other thread
+     */
+    Mutex tryLock(int value);
+
+    /**
+     * Acquires the lock if it becomes available within given waiting time and thread is not interrupted
+     *
+     * @param value value to lock
+     * @param timeout maximum time to wait for the lock
+     * @param unit time unit of timeout argument
+     * @return mutex that represents lock or null if waiting time elapsed before lock was acquired
+     * @throws InterruptedException if thread is interrupted before or while waiting for the lock
+     */
+    Mutex tryLock(int value, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Acquires the lock unless thread is interrupted
+     *
+     * @param value value to lock
+     * @return mutex that represents lock
+     * @throws InterruptedException if thread is interrupted before or while waiting for the lock
+     */
+    Mutex lockInterruptibly(int value) throws InterruptedException;
+}
@@ -0,0 +1,32 @@
+package org.gusiew.lock.api;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs tasks exclusively per value instead of making threads wait for the lock on value
+ * <p>Tasks submitted for equal values run one at a time in submission order, tasks of different values
+ * may run concurrently. Value semantics are same as in {@link Locker}
+ * <p>Example
+ * <pre> {@code
+ *     KeyedExecutor e = new SerialKeyedExecutor(pool);
+ *     e.execute(accountId, () -> {...})
+ *  }
+ *  </pre>
+ */
+public interface KeyedExecutor {
+
+    /**
+     * @param value value to run task exclusively for
+     * @param task task to run, exception thrown by task is passed to uncaught exception handler of running thread
+     */
+    void execute(Object value, Runnable task);
+
+    /**
+     * @param value value to run task exclusively for
+     * @param task task to run
+     * @param <T> task result type
+     * @return future completed with task result or exception
+     */
+    <T> CompletableFuture<T> submit(Object value, Callable<T> task);
+}
@@ -1,5 +1,11 @@
 package org.gusiew.lock.api;
 
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
 /**
  * Lock service that locks on value instead of reference
  * <p>If two objects are equal but not necessarily same instances the lock service synchronizes on same mutex
@@ -31,6 +37,31 @@ package org.gusiew.lock.api;
  *     m.release();
  *   }
  *   }</pre>
+ * Several values at once, e.g. both accounts of a transfer
+ * <pre> {@code
+ *     withRunnable(l.lockAll(Arrays.asList(fromAccountId, toAccountId)), () -> {...})
+ *  }
+ *  </pre>
+ * Non blocking style, e.g. in event loop handlers
+ * <pre> {@code
+ *     l.lockAsync(value, eventLoop).thenAccept(m -> withRunnable(m, () -> {...}))
+ *  }
+ *  </pre>
+ * Tiny critical sections on very hot values, e.g. counters
+ * <pre> {@code
+ *     long total = l.combine(accountId, id -> balances.merge(id, amount, Long::sum));
+ *  }
+ *  </pre>
+ * Shedding load instead of waiting without bound
+ * <pre> {@code
+ *     Mutex m = l.tryLock(value, 100, TimeUnit.MILLISECONDS);
+ *     if (m == null) {
+ *         ... reject request
+ *     } else {
+ *         withRunnable(m, () -> {...})
+ *     }
+ *  }
+ *  </pre>
  */
 public interface Locker {
 
@@ -42,4 +73,65 @@ public interface Locker {
      */
     Mutex lock(Object value);
 
+    /**
+     * Acquires the lock only if it is not held by other thread at the time of invocation, never waits
+     *
+     * @param value value to lock
+     * @return mutex that represents lock or null if lock is held by other thread
+     */
+    Mutex tryLock(Object value);
+
+    /**
+     * Acquires the lock if it becomes available within given waiting time and thread is not interrupted
+     *
+     * @param value value to lock
+     * @param timeout maximum time to wait for the lock
+     * @param unit time unit of timeout argument
+     * @return mutex that represents lock or null if waiting time elapsed before lock was acquired
+     * @throws InterruptedException if thread is interrupted before or while waiting for the lock
+     */
+    Mutex tryLock(Object value, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Acquires the lock unless thread is interrupted
+     *
+     * @param value value to lock
+     * @return mutex that represents lock
+     * @throws InterruptedException if thread is interrupted before or while waiting for the lock
+     */
+    Mutex lockInterruptibly(Object value) throws InterruptedException;
+
+    /**
+     * Locks all values as single operation. Values are acquired in order that is same for all threads,
+     * so threads locking overlapping sets of values do not deadlock each other. Equal values are locked once
+     *
+     * @param values values to lock
+     * @return mutex that releases all values at once
+     */
+    Mutex lockAll(Collection<?> values);
+
+    /**
+     * Acquires the lock without blocking calling thread. Returned future is completed on given executor
+     * when the lock is acquired. Lock acquired this way is not owned by any thread: it may be released by any thread
+     * and it is not reentrant, even thread that holds the value with {@link #lock} waits for it
+     *
+     * @param value value to lock
+     * @param executor executor that completes the future
+     * @return future of mutex that represents the lock, cancelling the future releases the lock once it is acquired
+     */
+    CompletableFuture<Mutex> lockAsync(Object value, Executor executor);
+
+    /**
+     * Applies operation to value while holding the lock and returns its result. Operation may be run
+     * by other thread that holds the lock at the time, together with other queued operations of same value,
+     * so it should be short and must not depend on calling thread (e.g. thread locals)
+     *
+     * @param value value to lock
+     * @param operation operation to apply, gets the value passed by caller
+     * @param <T> operation result type
+     * @return operation result
+     * @throws RuntimeException or Error thrown by the operation
+     */
+    <T> T combine(Object value, Function<Object, ? extends T> operation);
+
 }
@@ -0,0 +1,61 @@
+package org.gusiew.lock.api;
+
+/**
+ * Receiver of locker events, given to locker at construction to observe lock behavior.
+ * <p>Methods are called on hot paths by threads that lock and release values, often while the lock is held,
+ * so implementation must be thread safe, must not block and must not call the locker.
+ * Times are measured with {@link System#nanoTime()} only when metrics are given
+ * <p>Acquisition is counted exactly once by one of {@link #acquired()}, {@link #acquiredAfterWaiting(Object, Thread, long)}
+ * or {@link #reentered()}, release of outermost acquisition by {@link #released(Object, long)}
+ */
+public interface LockerMetrics {
+
+    /**
+     * Lock was acquired without waiting
+     */
+    void acquired();
+
+    /**
+     * Lock was acquired after waiting in waiter queue
+     *
+     * @param value locked value, or key equivalent to it if locker uses {@link Equivalence}.
+     *              Must not be retained unless values are immutable
+     * @param holder thread that held the lock when waiting started, null if it was not held by a thread
+     *               (asynchronous acquisition or lock was released in the meantime)
+     * @param waitNanos time spent in waiter queue
+     */
+    void acquiredAfterWaiting(Object value, Thread holder, long waitNanos);
+
+    /**
+     * Lock already held by current thread was entered again
+     */
+    void reentered();
+
+    /**
+     * Outermost acquisition was released
+     *
+     * @param value released value, same as in {@link #acquiredAfterWaiting(Object, Thread, long)}
+     * @param holdNanos time the lock was held since it was acquired
+     */
+    void released(Object value, long holdNanos);
+
+    /**
+     * Value became active, mutex was registered
+     */
+    void mutexActivated();
+
+    /**
+     * Value stopped being active, its last user left the mutex
+     */
+    void mutexRetired();
+
+    /**
+     * Thread or asynchronous acquisition started waiting for the lock
+     */
+    void waitingStarted();
+
+    /**
+     * Waiting ended, either the lock was acquired or waiter gave up
+     */
+    void waitingEnded();
+}
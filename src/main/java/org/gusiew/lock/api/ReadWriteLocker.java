@@ -0,0 +1,57 @@
+package org.gusiew.lock.api;
+
+/**
+ * Lock service that locks on value instead of reference and distinguishes shared and exclusive access
+ * <p>Any number of threads can hold read lock on value at the same time, write lock excludes all other
+ * readers and writers of equal value. See {@link Locker} for value semantics and usages
+ * <p>Example
+ * <pre> {@code
+ *     ReadWriteLocker l = new ReentrantReadWriteLocker();
+ *     withRunnable(l.readLock(entityId), () -> {... read entity})
+ *     withRunnable(l.writeLock(entityId), () -> {... update entity})
+ *  }
+ *  </pre>
+ * Optimistic read, falls back to read lock if write lock was acquired in meantime
+ * <pre> {@code
+ *     long stamp = l.tryOptimisticRead(entityId);
+ *     ... read entity
+ *     if (!l.validate(entityId, stamp)) {
+ *         withRunnable(l.readLock(entityId), () -> {... read entity again})
+ *     }
+ *  }
+ *  </pre>
+ */
+public interface ReadWriteLocker {
+
+    /**
+     * Acquires shared lock on value, waits while other thread holds write lock
+     *
+     * @param value value to lock
+     * @return mutex that represents read lock and makes it possible to release
+     */
+    Mutex readLock(Object value);
+
+    /**
+     * Acquires exclusive lock on value, waits while other threads hold read or write lock
+     *
+     * @param value value to lock
+     * @return mutex that represents write lock and makes it possible to release
+     */
+    Mutex writeLock(Object value);
+
+    /**
+     * Returns stamp for optimistic read of value, never waits and never acquires any lock.
+     * Reads done after this call have to be checked with {@link #validate(Object, long)} before results are used
+     *
+     * @param value value to read
+     * @return non zero stamp, or zero if write lock on value is held
+     */
+    long tryOptimisticRead(Object value);
+
+    /**
+     * @param value value passed to {@link #tryOptimisticRead(Object)}
+     * @param stamp stamp returned by {@link #tryOptimisticRead(Object)}
+     * @return true if write lock on value was not acquired since stamp was issued, always false for zero stamp
+     */
+    boolean validate(Object value, long stamp);
+}
@@ -0,0 +1,39 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.api.Mutex;
+
+/**
+ * Mutex produced by {@link ReentrantLocker#lockAsync}. Lock is owned by this handle, not by a thread,
+ * so it can be released by any thread. Asynchronous acquisition is not reentrant.
+ * Like {@link PooledMutex} it can not release mutex recycled since it was acquired
+ */
+@ThreadSafe
+final class AsyncMutex implements Mutex {
+
+    private final ReentrantMutex reentrantMutex;
+    private final int generation;
+
+    /**
+     * Must be created by user of the mutex, so mutex can not be recycled in the meantime
+     */
+    AsyncMutex(ReentrantMutex reentrantMutex) {
+        this.reentrantMutex = reentrantMutex;
+        this.generation = reentrantMutex.getGeneration();
+    }
+
+    /**
+     * @see ReentrantMutex#release()
+     */
+    @Override
+    public void release() {
+        reentrantMutex.releaseAs(this, generation);
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncMutex{" +
+                "lock=" + reentrantMutex.getLock() +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.api.Mutex;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Asynchronous acquisition queued in {@link ReentrantMutex} waiter queue. It has no thread to park,
+ * lock is granted to its {@link AsyncMutex} handle and future is completed on supplied executor
+ */
+@ThreadSafe
+final class AsyncMutexWaiter extends MutexWaiter {
+
+    private final AsyncMutex asyncMutex;
+    private final CompletableFuture<Mutex> future;
+    private final Executor executor;
+
+    AsyncMutexWaiter(AsyncMutex asyncMutex, CompletableFuture<Mutex> future, Executor executor) {
+        super(asyncMutex);
+        this.asyncMutex = asyncMutex;
+        this.future = future;
+        this.executor = executor;
+    }
+
+    @Override
+    boolean isAsync() {
+        return true;
+    }
+
+    @Override
+    void wake() {
+        complete();
+    }
+
+    /**
+     * Completes future with acquired lock. Lock is released if future was cancelled in meantime
+     * or executor rejected the completion, so it never stays held without an owner
+     */
+    void complete() {
+        try {
+            executor.execute(() -> {
+                if(!future.complete(asyncMutex)) {
+                    asyncMutex.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            asyncMutex.release();
+            future.completeExceptionally(e);
+        }
+    }
+}
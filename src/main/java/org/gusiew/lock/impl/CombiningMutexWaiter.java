@@ -0,0 +1,56 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.function.Function;
+
+/**
+ * Thread waiting in {@link ReentrantMutex} waiter queue with operation that lock holder can run on its behalf,
+ * see {@link ReentrantLocker#combine}
+ * <p>Operation runs only while the lock is held, either by the waiter itself once it acquires the lock
+ * or by other holder that completes the waiter afterwards
+ *
+ * @param <T> operation result type
+ */
+@ThreadSafe
+final class CombiningMutexWaiter<T> extends MutexWaiter {
+
+    private final Object value;
+    private final Function<Object, ? extends T> operation;
+
+    /**
+     * Written by lock holder before waiter is completed, visibility guaranteed by waiter state or volatile holder
+     */
+    private T result;
+    private Throwable failure;
+
+    CombiningMutexWaiter(Thread owner, Object value, Function<Object, ? extends T> operation) {
+        super(owner);
+        this.value = value;
+        this.operation = operation;
+    }
+
+    /**
+     * Runs operation, must be called by lock holder. Failure is kept and rethrown to waiter
+     */
+    void run() {
+        try {
+            result = operation.apply(value);
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * @return operation result
+     * @throws RuntimeException or Error thrown by operation
+     */
+    T getResult() {
+        if(failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if(failure instanceof Error) {
+            throw (Error) failure;
+        }
+        return result;
+    }
+}
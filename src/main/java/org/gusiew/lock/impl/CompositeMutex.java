@@ -0,0 +1,49 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.Immutable;
+import org.gusiew.lock.api.Mutex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mutex produced by {@link ReentrantLocker#lockAll} and {@link MappedFileLocker#lockAll}, releases all acquired mutexes in reverse acquisition order
+ */
+@Immutable
+final class CompositeMutex implements Mutex {
+
+    private final List<Mutex> mutexes;
+
+    CompositeMutex(List<? extends Mutex> mutexes) {
+        this.mutexes = new ArrayList<>(mutexes);
+    }
+
+    /**
+     * Releases every mutex even if some release fails, first failure is rethrown afterwards
+     *
+     * @see ReentrantMutex#release()
+     */
+    @Override
+    public void release() {
+        RuntimeException failure = null;
+        for (int i = mutexes.size() - 1; i >= 0; i--) {
+            try {
+                mutexes.get(i).release();
+            } catch (RuntimeException e) {
+                if(failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompositeMutex{" +
+                "mutexes=" + mutexes +
+                '}';
+    }
+}
@@ -0,0 +1,79 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.Immutable;
+import org.gusiew.lock.api.Equivalence;
+
+import java.util.Arrays;
+
+/**
+ * {@link Equivalence} that compares arrays and character sequences by content
+ * <ul>
+ *   <li>byte[] - equal bytes</li>
+ *   <li>char[] and {@link CharSequence} - equal characters, so {@link String}, {@link StringBuilder}
+ *       and char[] with same characters are same lock. Hash is same as {@link String#hashCode()}</li>
+ *   <li>other values - {@link Object#equals(Object)} and {@link Object#hashCode()}</li>
+ * </ul>
+ */
+@Immutable
+public class ContentEquivalence implements Equivalence {
+
+    @Override
+    public int hash(Object value) {
+        if(value instanceof byte[]) {
+            return Arrays.hashCode((byte[]) value);
+        }
+        if(value instanceof char[]) {
+            char[] chars = (char[]) value;
+            int h = 0;
+            for (char c : chars) {
+                h = 31 * h + c;
+            }
+            return h;
+        }
+        if(value instanceof CharSequence) {
+            CharSequence chars = (CharSequence) value;
+            int h = 0;
+            for (int i = 0; i < chars.length(); i++) {
+                h = 31 * h + chars.charAt(i);
+            }
+            return h;
+        }
+        return value.hashCode();
+    }
+
+    @Override
+    public boolean equivalent(Object first, Object second) {
+        if(first instanceof byte[]) {
+            return second instanceof byte[] && Arrays.equals((byte[]) first, (byte[]) second);
+        }
+        if(isCharacters(first)) {
+            return isCharacters(second) && sameCharacters(first, second);
+        }
+        return first.equals(second);
+    }
+
+    private static boolean isCharacters(Object value) {
+        return value instanceof char[] || value instanceof CharSequence;
+    }
+
+    private static boolean sameCharacters(Object first, Object second) {
+        int length = length(first);
+        if(length != length(second)) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if(charAt(first, i) != charAt(second, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int length(Object characters) {
+        return characters instanceof char[] ? ((char[]) characters).length : ((CharSequence) characters).length();
+    }
+
+    private static char charAt(Object characters, int index) {
+        return characters instanceof char[] ? ((char[]) characters)[index] : ((CharSequence) characters).charAt(index);
+    }
+}
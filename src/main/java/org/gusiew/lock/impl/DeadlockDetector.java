@@ -0,0 +1,81 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.impl.exception.MutexDeadlockException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wait-for graph of threads that wait for value locks without timeout, given to {@link ReentrantLocker}
+ * to fail fast instead of hanging when threads lock values in opposite order.
+ * <p>Graph has an edge from each waiting thread to the mutex it waits for, mutex leads to its holder thread.
+ * Thread that starts waiting registers its edge and then follows holders of mutexes they wait for.
+ * If the walk comes back to the thread, it would wait forever: it gives up waiting and
+ * {@link MutexDeadlockException} is thrown. Threads that close a cycle at the same time may both detect it,
+ * at least one of them always does, as each registers before it walks.
+ * <p>Only waits that can not end by themselves are checked: {@link ReentrantLocker#lock} and
+ * {@link ReentrantLocker#lockInterruptibly}. Timed waits, asynchronous acquisitions and combined operations
+ * are not part of the graph, cycle through them is not detected.
+ * <p>Same detector can be given to several lockers to detect cycles across them
+ */
+@ThreadSafe
+public class DeadlockDetector {
+
+    /**
+     * Longest chain walked, bounds the walk if graph changes while it is walked
+     */
+    private static final int MAXIMUM_CHAIN_LENGTH = 1 << 10;
+
+    private final Map<Thread, ReentrantMutex> waitingFor = new ConcurrentHashMap<>();
+
+    /**
+     * Registers current thread as waiting for mutex and checks if it closes a cycle.
+     * Registered thread has to call {@link #stoppedWaiting()} once it stops waiting, also if cycle was found
+     *
+     * @return description of the cycle, null if there is none
+     */
+    String startedWaiting(ReentrantMutex mutex) {
+        Thread currentThread = Thread.currentThread();
+        waitingFor.put(currentThread, mutex);
+        ReentrantMutex awaited = mutex;
+        for (int i = 0; i < MAXIMUM_CHAIN_LENGTH; i++) {
+            Thread holder = awaited.getHolderThread();
+            if(holder == null) {
+                return null;
+            }
+            if(holder == currentThread) {
+                return describeCycle(mutex);
+            }
+            ReentrantMutex next = waitingFor.get(holder);
+            if(next == null || next == awaited) {
+                return null;
+            }
+            awaited = next;
+        }
+        return null;
+    }
+
+    void stoppedWaiting() {
+        waitingFor.remove(Thread.currentThread());
+    }
+
+    /**
+     * Graph may have changed since cycle was found, so description is best effort
+     */
+    private String describeCycle(ReentrantMutex mutex) {
+        StringBuilder description = new StringBuilder("Deadlock: ").append(Thread.currentThread().getName());
+        ReentrantMutex awaited = mutex;
+        for (int i = 0; i < MAXIMUM_CHAIN_LENGTH && awaited != null; i++) {
+            Thread holder = awaited.getHolderThread();
+            description.append(" waits for ").append(awaited.getLock()).append(" held by ")
+                    .append(holder == null ? "none" : holder.getName());
+            if(holder == null || holder == Thread.currentThread()) {
+                break;
+            }
+            awaited = waitingFor.get(holder);
+            description.append(", ").append(holder.getName());
+        }
+        return description.toString();
+    }
+}
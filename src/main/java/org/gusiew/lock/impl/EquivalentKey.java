@@ -0,0 +1,73 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.NotThreadSafe;
+import org.gusiew.lock.api.Equivalence;
+
+/**
+ * Key of active mutexes when locker uses {@link Equivalence}, delegates equality and hash to the equivalence.
+ * <p>Registered key is created once when value becomes active. Lookups use single reusable key per thread,
+ * it is set before and cleared after lookup, so locking active value does not allocate
+ */
+@NotThreadSafe
+final class EquivalentKey {
+
+    private final Equivalence equivalence;
+    private Object value;
+    private int hash;
+
+    EquivalentKey(Equivalence equivalence) {
+        this.equivalence = equivalence;
+    }
+
+    private EquivalentKey(Equivalence equivalence, Object value, int hash) {
+        this.equivalence = equivalence;
+        this.value = value;
+        this.hash = hash;
+    }
+
+    /**
+     * Prepares lookup key for value
+     */
+    EquivalentKey set(Object value) {
+        this.value = value;
+        this.hash = equivalence.hash(value);
+        return this;
+    }
+
+    /**
+     * Drops reference to looked up value, so it is not retained by the thread
+     */
+    void clear() {
+        this.value = null;
+    }
+
+    /**
+     * @return key for registration of the value currently looked up
+     */
+    EquivalentKey copy() {
+        return new EquivalentKey(equivalence, value, hash);
+    }
+
+    Object getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EquivalentKey)) return false;
+
+        EquivalentKey other = (EquivalentKey) o;
+        return hash == other.hash && equivalence.equivalent(value, other.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(value);
+    }
+}
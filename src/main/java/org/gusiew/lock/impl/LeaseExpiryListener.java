@@ -0,0 +1,16 @@
+package org.gusiew.lock.impl;
+
+/**
+ * Notified by {@link Leases} when lease of a holder expired and its lock was taken away.
+ * Called on timer thread after the lock was handed to next waiter, must not block
+ */
+@FunctionalInterface
+public interface LeaseExpiryListener {
+
+    /**
+     * @param value locked value
+     * @param holder thread that held the lock, it may still be running its critical section
+     * @param stackTrace stack of the holder taken just before the lock was taken away, shows where it stalled
+     */
+    void leaseExpired(Object value, Thread holder, StackTraceElement[] stackTrace);
+}
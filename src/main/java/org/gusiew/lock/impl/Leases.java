@@ -0,0 +1,118 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.impl.exception.MutexLeaseExpiredException;
+import org.gusiew.lock.impl.util.TimerWheel;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lease expiry for {@link ReentrantLocker}, so value held by thread that stalled or died without releasing it
+ * does not block other threads forever, see {@link ReentrantLocker#lockWithLease}.
+ * <p>Leases are timed by single {@link TimerWheel}, not by a thread or scheduled task per lock: starting
+ * and cancelling lease is constant time and release within the lease only marks its timeout cancelled.
+ * <p>When lease expires, timer thread takes the lock from the holder as if the holder released all its entrances:
+ * lock goes to next waiter, or mutex is retired if nobody waits. Then {@link LeaseExpiryListener} is told which
+ * thread held the lock and where it was. Expiry never interrupts the holder, which may still be running
+ * its critical section, its later release fails with {@link MutexLeaseExpiredException}.
+ * Expiry happens late by up to one tick of the wheel.
+ * <p>Same leases can be given to several lockers
+ */
+@ThreadSafe
+public class Leases implements Closeable {
+
+    private static final long DEFAULT_TICK_MILLIS = 10;
+    private static final int DEFAULT_TICKS_PER_WHEEL = 512;
+
+    private final TimerWheel wheel;
+    private final LeaseExpiryListener listener;
+
+    /**
+     * Creates leases timed with 10 milliseconds resolution
+     */
+    public Leases(LeaseExpiryListener listener) {
+        this(listener, DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_TICKS_PER_WHEEL);
+    }
+
+    /**
+     * @param listener notified of each expired lease
+     * @param tick resolution of expiry
+     * @param ticksPerWheel number of ticks leases up to which are timed without extra turns of the wheel
+     */
+    public Leases(LeaseExpiryListener listener, long tick, TimeUnit unit, int ticksPerWheel) {
+        if(listener == null) {
+            throw new NullPointerException();
+        }
+        this.listener = listener;
+        this.wheel = new TimerWheel(tick, unit, ticksPerWheel, "lock-leases");
+    }
+
+    /**
+     * Called by holder of outermost acquisition
+     */
+    Lease start(ReentrantMutex mutex, Thread holder, long leaseNanos) {
+        Lease lease = new Lease(this, mutex, holder);
+        lease.timeout = wheel.schedule(lease, leaseNanos, TimeUnit.NANOSECONDS);
+        return lease;
+    }
+
+    /**
+     * Expiry postponed because holder was reentering the lock, it is retried on next tick
+     */
+    void retry(Lease lease) {
+        lease.timeout = wheel.schedule(lease, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Listener failure does not stop the timer, it is reported to uncaught exception handler of timer thread
+     */
+    void expired(Object value, Thread holder, StackTraceElement[] stackTrace) {
+        listener.leaseExpired(value, holder, stackTrace);
+    }
+
+    /**
+     * Stops the timer, leases not expired yet never expire
+     */
+    @Override
+    public void close() {
+        wheel.close();
+    }
+
+    /**
+     * Lease of one outermost acquisition
+     */
+    static final class Lease implements Runnable {
+
+        private final Leases leases;
+        private final ReentrantMutex mutex;
+        private final Thread holder;
+        /**
+         * Set by holder before lease is published in the mutex, replaced by timer thread on retry
+         */
+        private volatile TimerWheel.Timeout timeout;
+
+        private Lease(Leases leases, ReentrantMutex mutex, Thread holder) {
+            this.leases = leases;
+            this.mutex = mutex;
+            this.holder = holder;
+        }
+
+        Leases getLeases() {
+            return leases;
+        }
+
+        Thread getHolder() {
+            return holder;
+        }
+
+        void cancel() {
+            timeout.cancel();
+        }
+
+        @Override
+        public void run() {
+            mutex.expire(this);
+        }
+    }
+}
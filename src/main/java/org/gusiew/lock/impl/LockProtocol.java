@@ -0,0 +1,104 @@
+package org.gusiew.lock.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary protocol of {@link LockServer} and {@link RemoteLocker}, all numbers are big endian.
+ * <p>Requests start with operation code and request id chosen by client:
+ * <ul>
+ *   <li>{@code LOCK id length value} - waits until the value is locked, answered with {@code GRANTED}</li>
+ *   <li>{@code TRY_LOCK id timeoutNanos length value} - answered with {@code GRANTED} or {@code TIMED_OUT},
+ *       zero timeout does not wait, negative timeout is invalid</li>
+ *   <li>{@code RELEASE id} - releases the lock granted to request id, not answered</li>
+ *   <li>{@code CANCEL id} - stops waiting of request id, not answered. Lock granted before cancel arrived
+ *       stays held, client releases it when it gets the grant</li>
+ * </ul>
+ * Responses are status and request id, 9 bytes each. Requests of one connection are processed in order,
+ * client sends requests of all its threads through one connection without waiting for responses
+ * <p>Value is encoded with type tag, so values are same lock on the server if they are equal on the client.
+ * Supported values are strings, integers, longs and byte arrays (by content)
+ */
+final class LockProtocol {
+
+    static final byte LOCK = 1;
+    static final byte TRY_LOCK = 2;
+    static final byte RELEASE = 3;
+    static final byte CANCEL = 4;
+
+    static final byte GRANTED = 1;
+    static final byte TIMED_OUT = 2;
+
+    static final int HEADER_SIZE = 1 + 8;
+    static final int RESPONSE_SIZE = 1 + 8;
+    static final int MAXIMUM_VALUE_SIZE = 4096;
+    static final int MAXIMUM_REQUEST_SIZE = HEADER_SIZE + 8 + 4 + MAXIMUM_VALUE_SIZE;
+
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte BYTES = 4;
+
+    private LockProtocol() {
+    }
+
+    /**
+     * @return encoded value, equal and with equal hash code for equal values
+     * @throws IllegalArgumentException if value type is not supported or encoded value is too long
+     */
+    static ByteBuffer encodeValue(Object value) {
+        if(value == null) {
+            throw new NullPointerException();
+        }
+        ByteBuffer encoded;
+        if(value instanceof String) {
+            encoded = tagged(STRING, ((String) value).getBytes(StandardCharsets.UTF_8));
+        } else if(value instanceof Integer) {
+            encoded = ByteBuffer.allocate(1 + 4).put(INTEGER).putInt((Integer) value);
+        } else if(value instanceof Long) {
+            encoded = ByteBuffer.allocate(1 + 8).put(LONG).putLong((Long) value);
+        } else if(value instanceof byte[]) {
+            encoded = tagged(BYTES, (byte[]) value);
+        } else {
+            throw new IllegalArgumentException("Value of " + value.getClass() + " can not be locked remotely");
+        }
+        encoded.flip();
+        return encoded;
+    }
+
+    private static ByteBuffer tagged(byte tag, byte[] bytes) {
+        if(bytes.length + 1 > MAXIMUM_VALUE_SIZE) {
+            throw new IllegalArgumentException("Value longer than " + (MAXIMUM_VALUE_SIZE - 1) + " bytes");
+        }
+        return ByteBuffer.allocate(1 + bytes.length).put(tag).put(bytes);
+    }
+
+    static ByteBuffer lock(long id, ByteBuffer value) {
+        ByteBuffer request = ByteBuffer.allocate(HEADER_SIZE + 4 + value.remaining());
+        request.put(LOCK).putLong(id).putInt(value.remaining()).put(value.duplicate());
+        request.flip();
+        return request;
+    }
+
+    static ByteBuffer tryLock(long id, long timeoutNanos, ByteBuffer value) {
+        ByteBuffer request = ByteBuffer.allocate(HEADER_SIZE + 8 + 4 + value.remaining());
+        request.put(TRY_LOCK).putLong(id).putLong(timeoutNanos).putInt(value.remaining()).put(value.duplicate());
+        request.flip();
+        return request;
+    }
+
+    static ByteBuffer release(long id) {
+        return header(RELEASE, id);
+    }
+
+    static ByteBuffer cancel(long id) {
+        return header(CANCEL, id);
+    }
+
+    private static ByteBuffer header(byte operation, long id) {
+        ByteBuffer request = ByteBuffer.allocate(HEADER_SIZE);
+        request.put(operation).putLong(id);
+        request.flip();
+        return request;
+    }
+}
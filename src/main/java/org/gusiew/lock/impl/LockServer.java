@@ -0,0 +1,252 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock server that shares value locks of {@link ReentrantLocker} with {@link RemoteLocker} clients
+ * of other processes and hosts, see {@link LockProtocol}. Example
+ * <pre> {@code
+ *     LockServer server = new LockServer(new InetSocketAddress(7400));
+ *     server.start();
+ *     ...
+ *     Locker l = new RemoteLocker(new InetSocketAddress("locks.example.com", 7400));
+ *  }
+ *  </pre>
+ * <ul>
+ *   <li>Single event loop thread serves all connections with non-blocking NIO, it never waits for a lock.
+ *       Values are locked with {@link ReentrantLocker#lockAsync}, lock handed over on release is granted
+ *       to the next client right away</li>
+ *   <li>Lock is owned by the request that acquired it. Reentrancy and threads of a client
+ *       are handled by {@link RemoteLocker}, so each value is locked by at most one request of a connection</li>
+ *   <li>All requests that arrived are processed before responses are written, responses of one loop
+ *       iteration are written to each connection with single write</li>
+ *   <li>Locks of closed connection are released and its waiting requests are cancelled,
+ *       so crashed client does not keep values locked</li>
+ * </ul>
+ */
+@ThreadSafe
+public class LockServer implements Closeable {
+
+    private final ReentrantLocker locker;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Thread eventLoop;
+    /**
+     * Deadlines of timed requests, accessed only by event loop thread
+     */
+    private final PriorityQueue<Timeout> timeouts = new PriorityQueue<>();
+    /**
+     * Connections with responses to write at the end of loop iteration, accessed only by event loop thread
+     */
+    private final List<LockServerConnection> unflushed = new ArrayList<>();
+    @GuardedBy("this")
+    private boolean started;
+    private volatile boolean closed;
+
+    /**
+     * Binds server with own {@link ReentrantLocker}
+     *
+     * @param address address to listen on, port 0 selects free port
+     */
+    public LockServer(InetSocketAddress address) throws IOException {
+        this(address, new ReentrantLocker());
+    }
+
+    /**
+     * @param address address to listen on, port 0 selects free port
+     * @param locker registry of value locks, e.g. with {@link org.gusiew.lock.api.LockerMetrics}.
+     *               It is keyed by encoded values, so it should not be used by threads of this process
+     */
+    public LockServer(InetSocketAddress address, ReentrantLocker locker) throws IOException {
+        this.locker = locker;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(address);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+        this.eventLoop = new Thread(this::run, "lock-server-" + getAddress().getPort());
+        eventLoop.setDaemon(true);
+    }
+
+    /**
+     * Starts event loop thread that accepts and serves clients
+     */
+    public synchronized void start() {
+        if(started || closed) {
+            throw new IllegalStateException("Lock server already started or closed");
+        }
+        started = true;
+        eventLoop.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Stops the server, closes connections and releases all locks held by clients
+     */
+    @Override
+    public void close() throws IOException {
+        boolean running;
+        synchronized (this) {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            running = started;
+        }
+        if(!running) {
+            closeChannels();
+            return;
+        }
+        selector.wakeup();
+        if(Thread.currentThread() != eventLoop) {
+            try {
+                eventLoop.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select(selectTimeoutMillis());
+                expireTimeouts();
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    if(key.isValid() && key.isAcceptable()) {
+                        accept();
+                    } else if(key.isValid()) {
+                        ((LockServerConnection) key.attachment()).handle(key);
+                    }
+                }
+                flushResponses();
+            }
+        } catch (IOException e) {
+            closed = true;
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if(key.attachment() instanceof LockServerConnection) {
+                    ((LockServerConnection) key.attachment()).close();
+                }
+            }
+            closeChannels();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if(channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        LockServerConnection connection = new LockServerConnection(this, locker, channel);
+        channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    Selector selector() {
+        return selector;
+    }
+
+    /**
+     * Called by event loop thread when connection has new responses
+     */
+    void flushLater(LockServerConnection connection) {
+        unflushed.add(connection);
+    }
+
+    /**
+     * Connection that fails to write is closed, its released locks may add responses of other connections
+     */
+    private void flushResponses() {
+        for (int i = 0; i < unflushed.size(); i++) {
+            unflushed.get(i).flush();
+        }
+        unflushed.clear();
+    }
+
+    /**
+     * Called by event loop thread, request is timed out unless it is granted before the deadline
+     */
+    void schedule(LockServerConnection connection, long id, long timeoutNanos) {
+        timeouts.add(new Timeout(System.nanoTime() + timeoutNanos, connection, id));
+    }
+
+    private void expireTimeouts() {
+        long now = System.nanoTime();
+        while (!timeouts.isEmpty() && timeouts.peek().deadline - now <= 0) {
+            Timeout timeout = timeouts.poll();
+            timeout.connection.timeOut(timeout.id);
+        }
+    }
+
+    /**
+     * @return 0 to wait without timeout if there are no timed requests
+     */
+    private long selectTimeoutMillis() {
+        Timeout next = timeouts.peek();
+        if(next == null) {
+            return 0;
+        }
+        long remainingNanos = next.deadline - System.nanoTime();
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(remainingNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+    }
+
+    private void closeChannels() {
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            //Nothing to release anymore
+        }
+    }
+
+    private static final class Timeout implements Comparable<Timeout> {
+
+        private final long deadline;
+        private final LockServerConnection connection;
+        private final long id;
+
+        private Timeout(long deadline, LockServerConnection connection, long id) {
+            this.deadline = deadline;
+            this.connection = connection;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Timeout other) {
+            return Long.compare(deadline - other.deadline, 0);
+        }
+    }
+}
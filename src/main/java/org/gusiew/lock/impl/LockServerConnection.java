@@ -0,0 +1,207 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.NotThreadSafe;
+import org.gusiew.lock.api.Mutex;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.gusiew.lock.impl.LockProtocol.*;
+
+/**
+ * Client connection of {@link LockServer}, used only by event loop thread.
+ * <p>Requests are kept by id from arrival until they are released, cancelled or timed out.
+ * Values are locked asynchronously with direct executor: every lock of the server is released by event loop thread,
+ * so lock handed over on release is granted in the same thread right away
+ */
+@NotThreadSafe
+final class LockServerConnection {
+
+    private static final int INITIAL_OUTPUT_SIZE = 4096;
+
+    private final LockServer server;
+    private final ReentrantLocker locker;
+    private final SocketChannel channel;
+    private final ByteBuffer input = ByteBuffer.allocate(MAXIMUM_REQUEST_SIZE * 4);
+    /**
+     * Responses not written yet, in write mode
+     */
+    private ByteBuffer output = ByteBuffer.allocate(INITIAL_OUTPUT_SIZE);
+    private final Map<Long, CompletableFuture<Mutex>> requests = new HashMap<>();
+    private boolean flushScheduled;
+    private boolean closed;
+
+    LockServerConnection(LockServer server, ReentrantLocker locker, SocketChannel channel) {
+        this.server = server;
+        this.locker = locker;
+        this.channel = channel;
+    }
+
+    void handle(SelectionKey key) {
+        try {
+            if(key.isReadable()) {
+                read();
+            }
+            if(key.isValid() && key.isWritable()) {
+                flush();
+            }
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    private void read() throws IOException {
+        if(channel.read(input) < 0) {
+            close();
+            return;
+        }
+        input.flip();
+        while (!closed && processRequest()) {
+            //all complete requests are processed before responses are written
+        }
+        input.compact();
+    }
+
+    /**
+     * @return false if input does not hold complete request
+     */
+    private boolean processRequest() throws ProtocolException {
+        if(input.remaining() < HEADER_SIZE) {
+            return false;
+        }
+        input.mark();
+        byte operation = input.get();
+        long id = input.getLong();
+        switch (operation) {
+            case LOCK:
+            case TRY_LOCK:
+                if(input.remaining() < (operation == TRY_LOCK ? 8 : 0) + 4) {
+                    input.reset();
+                    return false;
+                }
+                long timeoutNanos = operation == TRY_LOCK ? input.getLong() : ReentrantMutex.NO_TIMEOUT;
+                int length = input.getInt();
+                if(length <= 0 || length > MAXIMUM_VALUE_SIZE || (operation == TRY_LOCK && timeoutNanos < 0)) {
+                    throw new ProtocolException("Invalid lock request " + id);
+                }
+                if(input.remaining() < length) {
+                    input.reset();
+                    return false;
+                }
+                byte[] value = new byte[length];
+                input.get(value);
+                lock(id, ByteBuffer.wrap(value), timeoutNanos);
+                return true;
+            case RELEASE:
+                release(id);
+                return true;
+            case CANCEL:
+                cancel(id);
+                return true;
+            default:
+                throw new ProtocolException("Unknown operation " + operation);
+        }
+    }
+
+    private void lock(long id, ByteBuffer value, long timeoutNanos) {
+        CompletableFuture<Mutex> future = locker.lockAsync(value, Runnable::run);
+        if(timeoutNanos == 0 && !future.isDone()) {
+            future.cancel(false);
+            respond(TIMED_OUT, id);
+            return;
+        }
+        requests.put(id, future);
+        future.thenRun(() -> respond(GRANTED, id));
+        if(timeoutNanos > 0 && !future.isDone()) {
+            server.schedule(this, id, timeoutNanos);
+        }
+    }
+
+    private void release(long id) {
+        CompletableFuture<Mutex> future = requests.remove(id);
+        if(future != null && !future.cancel(false)) {
+            future.join().release();
+        }
+    }
+
+    /**
+     * Granted request stays held, client releases it when it gets the grant
+     */
+    private void cancel(long id) {
+        CompletableFuture<Mutex> future = requests.get(id);
+        if(future != null && future.cancel(false)) {
+            requests.remove(id);
+        }
+    }
+
+    void timeOut(long id) {
+        CompletableFuture<Mutex> future = requests.get(id);
+        if(future != null && future.cancel(false)) {
+            requests.remove(id);
+            respond(TIMED_OUT, id);
+        }
+    }
+
+    private void respond(byte status, long id) {
+        if(closed) {
+            return;
+        }
+        if(output.remaining() < RESPONSE_SIZE) {
+            ByteBuffer larger = ByteBuffer.allocate(output.capacity() * 2);
+            output.flip();
+            output = larger.put(output);
+        }
+        output.put(status).putLong(id);
+        if(!flushScheduled) {
+            flushScheduled = true;
+            server.flushLater(this);
+        }
+    }
+
+    /**
+     * Writes what socket accepts, rest is written when channel becomes writable
+     */
+    void flush() {
+        flushScheduled = false;
+        if(closed) {
+            return;
+        }
+        try {
+            output.flip();
+            channel.write(output);
+            output.compact();
+            SelectionKey key = channel.keyFor(server.selector());
+            key.interestOps(output.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * Cancels waiting requests and releases granted ones. Releases may grant locks to other requests of this
+     * connection that are not cancelled yet, they are released when they are reached
+     */
+    void close() {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        for (CompletableFuture<Mutex> future : requests.values()) {
+            if(!future.cancel(false)) {
+                future.join().release();
+            }
+        }
+        requests.clear();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            //Connection is gone anyway
+        }
+    }
+}
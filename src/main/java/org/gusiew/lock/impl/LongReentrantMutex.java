@@ -0,0 +1,64 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.impl.util.LongStripedMap;
+
+/**
+ * {@link ReentrantMutex} of primitive long value, registered in {@link LongStripedMap} so the value is never boxed
+ * <p>Produced by {@link ReentrantLongLocker}
+ */
+@ThreadSafe
+final class LongReentrantMutex extends ReentrantMutex {
+
+    private final long key;
+    private final LongStripedMap<ReentrantMutex> longLocks;
+
+    LongReentrantMutex(long key, LongStripedMap<ReentrantMutex> longLocks, boolean fair) {
+        super(null, null, MutexOptions.fair(fair));
+        this.key = key;
+        this.longLocks = longLocks;
+    }
+
+    @Override
+    protected Object getLock() {
+        return key;
+    }
+
+    @Override
+    ReentrantMutex activeMutex() {
+        return longLocks.get(key);
+    }
+
+    @Override
+    void unregister() {
+        longLocks.remove(key, this);
+    }
+
+    @Override
+    void helpRemoveRetired() {
+        longLocks.remove(key, this);
+    }
+
+    @Override
+    public String toString() {
+        return "LongReentrantMutex{" +
+                "key=" + key +
+                ", holder=" + getHolderThread() +
+                ", entranceCount=" + getEntranceCount() +
+                ", waitingThreadsCount=" + getWaitingThreadsCount() +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        return key == ((LongReentrantMutex) o).key;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(key);
+    }
+}
@@ -0,0 +1,129 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.api.Equivalence;
+import org.gusiew.lock.api.Locker;
+import org.gusiew.lock.api.Mutex;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Implementation of {@link Locker} that locks values across processes of the same host.
+ * <p>Processes share fixed size table of lock slots in memory mapped file, value is locked by taking
+ * the slot its hash code selects. Example
+ * <pre> {@code
+ *     Locker l = new MappedFileLocker(Paths.get("/var/lock/orders.locks"));
+ *     Mutex m = l.lock(customerId);
+ *     try {
+ *         ...
+ *     } finally {
+ *         m.release();
+ *     }
+ *  }
+ *  </pre>
+ * <ul>
+ *   <li>Slot is taken with single CAS on its owner word, there is no system call on uncontended lock and release</li>
+ *   <li>Threads of one process queue for the slot in {@link ReentrantLocker}, only the thread that holds it locally
+ *       takes the slot in the table. Locks are reentrant and mutexes have same release contract as {@link ReentrantMutex}</li>
+ *   <li>Other processes can not be notified on release, thread waiting for slot held by other process polls it
+ *       with growing pauses up to a millisecond, see {@link MappedLockTable}</li>
+ *   <li>Slot held by process that died is taken over by the first waiting process that notices it,
+ *       {@link #tryLock(Object)} does not wait, so it does not take over</li>
+ *   <li>Hash code of value has to be same in all processes, e.g. strings, boxed primitives or {@link java.util.UUID},
+ *       but not enums or objects with identity hash code. {@link Equivalence} can give the hash instead</li>
+ *   <li>Values whose hash codes select the same slot share the lock. Holding it is safe, but values
+ *       locked one by one may deadlock even if they are locked in same order. Use {@link #lockAll}, which
+ *       locks slots in order, or enough slots to make collisions rare</li>
+ *   <li>All processes must use the same number of slots, table size is checked when file is mapped.
+ *       Memory mapped is 64 bytes per slot</li>
+ * </ul>
+ */
+@ThreadSafe
+public class MappedFileLocker extends TwoLevelLocker<Integer> {
+
+    private static final int DEFAULT_NUMBER_OF_SLOTS = 1 << 14;
+
+    private final MappedLockTable table;
+    private final Equivalence equivalence;
+
+    /**
+     * Maps lock table with 16384 slots, file is created if it does not exist
+     */
+    public MappedFileLocker(Path file) throws IOException {
+        this(file, DEFAULT_NUMBER_OF_SLOTS);
+    }
+
+    /**
+     * @param slots number of lock slots, rounded up to power of two, at most 2^24
+     */
+    public MappedFileLocker(Path file, int slots) throws IOException {
+        this(file, slots, null);
+    }
+
+    /**
+     * @param slots number of lock slots, rounded up to power of two, at most 2^24
+     * @param equivalence gives hash codes of values, must be same in all processes. Null to use value hash codes
+     * @throws IllegalArgumentException if file holds lock table with different number of slots
+     */
+    public MappedFileLocker(Path file, int slots, Equivalence equivalence) throws IOException {
+        this.table = new MappedLockTable(file, slots);
+        this.equivalence = equivalence;
+    }
+
+    /**
+     * Slot is taken over if it is held by process that died, except by {@link #tryLock(Object)} that does not wait
+     */
+    @Override
+    boolean acquireOuter(Integer slot, long timeoutNanos, boolean interruptible) throws InterruptedException {
+        if(interruptible) {
+            return table.acquireInterruptibly(slot, timeoutNanos);
+        }
+        if(timeoutNanos == 0) {
+            return table.tryAcquire(slot);
+        }
+        table.acquire(slot);
+        return true;
+    }
+
+    /**
+     * Executor thread polls the slot while it is held by other process, as other process can not hand the lock over
+     */
+    @Override
+    void acquireOuterAsync(Integer slot, Mutex localMutex, CompletableFuture<Mutex> future, Executor executor) {
+        execute(executor, () -> acquireSlotAndComplete(slot, localMutex, future), localMutex, future);
+    }
+
+    /**
+     * Lock is released if future was cancelled in meantime
+     */
+    private void acquireSlotAndComplete(int slot, Mutex localMutex, CompletableFuture<Mutex> future) {
+        if(future.isDone()) {
+            localMutex.release();
+            return;
+        }
+        try {
+            table.acquire(slot);
+        } catch (RuntimeException | Error e) {
+            localMutex.release();
+            future.completeExceptionally(e);
+            return;
+        }
+        complete(future, TwoLevelMutex.async(this, slot, localMutex));
+    }
+
+    @Override
+    void releaseOuter(Integer slot) {
+        table.release(slot);
+    }
+
+    @Override
+    Integer keyOf(Object value) {
+        if(value == null) {
+            throw new NullPointerException();
+        }
+        return table.slot(equivalence == null ? value.hashCode() : equivalence.hash(value));
+    }
+}
@@ -0,0 +1,165 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.impl.util.ProcessUtil;
+import org.gusiew.lock.impl.util.StripedMap;
+import org.gusiew.lock.impl.util.ThreadUtil;
+import org.gusiew.lock.impl.util.UnsafeUtil;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed size table of owner words in memory mapped file, shared by all processes that map the same file.
+ * <p>File starts with header slot that holds number of slots, every slot takes a cache line,
+ * so processes locking neighbouring slots do not invalidate each other's caches.
+ * Owner word is 0 when slot is free, otherwise it holds process id in high 32 bits and random number
+ * that tells tables of the process apart in low 32 bits. Word is changed only by CAS.
+ * <p>Other process can not be unparked when slot is released, so waiting threads poll the owner word:
+ * they spin shortly and then park for exponentially growing time, up to {@value #MAXIMUM_PARK_MILLIS} ms.
+ * While waiting they check every {@value #LIVENESS_CHECK_INTERVAL_MILLIS} ms if owner process is still alive,
+ * slot of dead process is taken over. Process id that was reused by other process keeps its slots held
+ * <p>Slot is owned by the table, not by a thread, {@link MappedFileLocker} makes sure only one thread
+ * of the process holds it
+ */
+@ThreadSafe
+final class MappedLockTable {
+
+    static final int SLOT_SIZE = 64;
+    static final int MAXIMUM_SLOTS = 1 << 24;
+    private static final long FREE = 0L;
+    private static final int SPINS = 64;
+    private static final long MINIMUM_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+    private static final long MAXIMUM_PARK_MILLIS = 1;
+    private static final long LIVENESS_CHECK_INTERVAL_MILLIS = 10;
+
+    /**
+     * Keeps memory mapped, mapping is released when buffer is garbage collected
+     */
+    private final MappedByteBuffer buffer;
+    private final long slotsAddress;
+    private final int mask;
+    private final long owner;
+
+    /**
+     * @param slots number of slots, rounded up to power of two. All processes must use the same number
+     * @throws IllegalArgumentException if file was created with different number of slots
+     */
+    MappedLockTable(Path file, int slots) throws IOException {
+        if(slots <= 0 || slots > MAXIMUM_SLOTS) {
+            throw new IllegalArgumentException("Number of slots must be between 1 and " + MAXIMUM_SLOTS);
+        }
+        int size = slots == 1 ? 1 : Integer.highestOneBit(slots - 1) << 1;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (size + 1L) * SLOT_SIZE);
+        }
+        long headerAddress = UnsafeUtil.address(buffer);
+        if(!UnsafeUtil.compareAndSwapLong(headerAddress, 0, size)) {
+            long existingSize = UnsafeUtil.getLongVolatile(headerAddress);
+            if(existingSize != size) {
+                throw new IllegalArgumentException("Lock table " + file + " has " + existingSize + " slots, not " + size);
+            }
+        }
+        this.slotsAddress = headerAddress + SLOT_SIZE;
+        this.mask = size - 1;
+        this.owner = ProcessUtil.currentPid() << 32 | (ThreadLocalRandom.current().nextInt() | 1) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @return slot the hash is locked in, equal in all processes
+     */
+    int slot(int hash) {
+        return StripedMap.spread(hash) & mask;
+    }
+
+    boolean tryAcquire(int slot) {
+        return UnsafeUtil.compareAndSwapLong(address(slot), FREE, owner);
+    }
+
+    /**
+     * Waits until slot is acquired, does not react to interruptions but propagates the status
+     */
+    void acquire(int slot) {
+        try {
+            acquire(slot, ReentrantMutex.NO_TIMEOUT, false);
+        } catch (InterruptedException e) {
+            //Not thrown when waiting is not interruptible
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param timeoutNanos maximum time to wait, {@link ReentrantMutex#NO_TIMEOUT} to wait until slot is acquired
+     * @return false if waiting time elapsed before slot was acquired
+     */
+    boolean acquireInterruptibly(int slot, long timeoutNanos) throws InterruptedException {
+        return acquire(slot, timeoutNanos, true);
+    }
+
+    private boolean acquire(int slot, long timeoutNanos, boolean interruptible) throws InterruptedException {
+        long address = address(slot);
+        if(UnsafeUtil.compareAndSwapLong(address, FREE, owner)) {
+            return true;
+        }
+        long start = System.nanoTime();
+        long nextLivenessCheck = start + TimeUnit.MILLISECONDS.toNanos(LIVENESS_CHECK_INTERVAL_MILLIS);
+        long parkNanos = MINIMUM_PARK_NANOS;
+        boolean interrupted = false;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                long holder = UnsafeUtil.getLongVolatile(address);
+                if(holder == FREE && UnsafeUtil.compareAndSwapLong(address, FREE, owner)) {
+                    return true;
+                }
+                long now = System.nanoTime();
+                if(holder != FREE && now - nextLivenessCheck >= 0) {
+                    nextLivenessCheck = now + TimeUnit.MILLISECONDS.toNanos(LIVENESS_CHECK_INTERVAL_MILLIS);
+                    if(!ProcessUtil.isAlive(holder >>> 32) && UnsafeUtil.compareAndSwapLong(address, holder, owner)) {
+                        return true;
+                    }
+                }
+                long remainingNanos = timeoutNanos == ReentrantMutex.NO_TIMEOUT ? Long.MAX_VALUE : start + timeoutNanos - now;
+                if(remainingNanos <= 0) {
+                    return false;
+                }
+                if(Thread.interrupted()) {
+                    if(interruptible) {
+                        throw new InterruptedException();
+                    }
+                    interrupted = true;
+                }
+                if(attempt < SPINS) {
+                    ThreadUtil.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(this, Math.min(parkNanos, remainingNanos));
+                    parkNanos = Math.min(parkNanos << 1, TimeUnit.MILLISECONDS.toNanos(MAXIMUM_PARK_MILLIS));
+                }
+            }
+        } finally {
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if slot is not held by this table, e.g. it was taken over by other process
+     *                               that considered this process dead
+     */
+    void release(int slot) {
+        if(!UnsafeUtil.compareAndSwapLong(address(slot), owner, FREE)) {
+            throw new IllegalStateException("Lock table slot " + slot + " is not held by this process");
+        }
+    }
+
+    private long address(int slot) {
+        return slotsAddress + (long) slot * SLOT_SIZE;
+    }
+}
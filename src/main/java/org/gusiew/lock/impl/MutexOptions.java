@@ -0,0 +1,42 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.Immutable;
+import org.gusiew.lock.api.LockerMetrics;
+import org.gusiew.lock.impl.internal.MutexFactory;
+
+/**
+ * Settings {@link ReentrantLocker} creates each of its mutexes with, see {@link ReentrantMutex} fields.
+ * Opaque outside of the package, only passed on by {@link MutexFactory}
+ */
+@Immutable
+public final class MutexOptions {
+
+    /**
+     * Non fair mutex without pooling, metrics, deadlock detection, spinning and leases
+     */
+    static final MutexOptions DEFAULT = new MutexOptions(false, null, null, null, null, null);
+
+    final boolean fair;
+    final MutexPool pool;
+    final LockerMetrics metrics;
+    final DeadlockDetector deadlockDetector;
+    final WaitStrategy waitStrategy;
+    final Leases leases;
+
+    MutexOptions(boolean fair, MutexPool pool, LockerMetrics metrics, DeadlockDetector deadlockDetector,
+                 WaitStrategy waitStrategy, Leases leases) {
+        this.fair = fair;
+        this.pool = pool;
+        this.metrics = metrics;
+        this.deadlockDetector = deadlockDetector;
+        this.waitStrategy = waitStrategy;
+        this.leases = leases;
+    }
+
+    /**
+     * @return options of fair or non fair mutex without other features
+     */
+    static MutexOptions fair(boolean fair) {
+        return fair ? new MutexOptions(true, null, null, null, null, null) : DEFAULT;
+    }
+}
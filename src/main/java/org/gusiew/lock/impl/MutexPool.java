@@ -0,0 +1,49 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Per thread free lists of retired {@link ReentrantMutex} instances, so locking values that are not active
+ * does not allocate new mutex each time.
+ * <p>Mutex is recycled to the list of thread that retired it and reused by same thread, free list is never shared
+ * so no synchronization is needed. Each list is bounded, mutexes that do not fit are left to garbage collector
+ */
+@ThreadSafe
+final class MutexPool {
+
+    private static final int FREE_LIST_CAPACITY = 16;
+
+    private final ThreadLocal<FreeList> freeLists = ThreadLocal.withInitial(FreeList::new);
+
+    /**
+     * @return retired mutex or null if current thread has none
+     */
+    ReentrantMutex poll() {
+        return freeLists.get().poll();
+    }
+
+    void recycle(ReentrantMutex reentrantMutex) {
+        freeLists.get().offer(reentrantMutex);
+    }
+
+    private static final class FreeList {
+
+        private final ReentrantMutex[] mutexes = new ReentrantMutex[FREE_LIST_CAPACITY];
+        private int size;
+
+        ReentrantMutex poll() {
+            if(size == 0) {
+                return null;
+            }
+            ReentrantMutex reentrantMutex = mutexes[--size];
+            mutexes[size] = null;
+            return reentrantMutex;
+        }
+
+        void offer(ReentrantMutex reentrantMutex) {
+            if(size < mutexes.length) {
+                mutexes[size++] = reentrantMutex;
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Thread parked in {@link ReentrantMutex} waiter queue, see {@link AsyncMutexWaiter} for asynchronous acquisitions.
+ * <p>Waiter is either granted the lock by releasing thread (fair mode or asynchronous waiter) or cancelled by itself
+ * when it gives up waiting, whichever happens first. Waiter of {@link CombiningMutexWaiter} kind may be
+ * completed by lock holder instead. Other waiter state changes are not possible
+ */
+@ThreadSafe
+class MutexWaiter {
+
+    private static final int WAITING = 0;
+    private static final int GRANTED = 1;
+    private static final int CANCELLED = 2;
+    private static final int COMPLETED = 3;
+
+    private static final AtomicIntegerFieldUpdater<MutexWaiter> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(MutexWaiter.class, "state");
+
+    private final Object owner;
+    private volatile int state;
+    /**
+     * Set before waiter is queued and only if metrics are recorded, queue publishes them
+     */
+    long queuedNanos;
+    Thread queuedBehind;
+
+    /**
+     * @param owner waiting thread or handle of asynchronous acquisition, becomes mutex holder when lock is granted
+     */
+    MutexWaiter(Object owner) {
+        this.owner = owner;
+    }
+
+    Object getOwner() {
+        return owner;
+    }
+
+    boolean isAsync() {
+        return false;
+    }
+
+    /**
+     * Tells waiter that lock was granted or may be available
+     */
+    void wake() {
+        LockSupport.unpark((Thread) owner);
+    }
+
+    boolean isWaiting() {
+        return state == WAITING;
+    }
+
+    boolean isGranted() {
+        return state == GRANTED;
+    }
+
+    /**
+     * @return false if waiter already gave up waiting
+     */
+    boolean grant() {
+        return STATE.compareAndSet(this, WAITING, GRANTED);
+    }
+
+    /**
+     * @return false if waiter was already granted the lock and has to take it
+     */
+    boolean cancel() {
+        return STATE.compareAndSet(this, WAITING, CANCELLED);
+    }
+
+    boolean isCompleted() {
+        return state == COMPLETED;
+    }
+
+    /**
+     * Marks that lock holder did the work waiter waited for, waiter does not need the lock anymore
+     *
+     * @return false if waiter is not waiting anymore
+     */
+    boolean markCompleted() {
+        return STATE.compareAndSet(this, WAITING, COMPLETED);
+    }
+}
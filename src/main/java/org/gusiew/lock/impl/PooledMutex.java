@@ -0,0 +1,46 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.Immutable;
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.exception.MutexNotActiveException;
+
+/**
+ * Mutex produced by {@link PooledReentrantLocker}, handle of recycled {@link ReentrantMutex} in even or odd generations.
+ * <p>Each mutex has two handles created with it and gives out the one of its current generation, so acquisitions
+ * do not allocate. Once the mutex is recycled for other value, release through handle of previous generation fails
+ * with {@link MutexNotActiveException} instead of releasing the other value. Handle of the generation before it
+ * is given out again, its excess release can not be told apart from release by the current holder
+ */
+@Immutable
+final class PooledMutex implements Mutex {
+
+    private final ReentrantMutex reentrantMutex;
+    /**
+     * Lowest bit of generations this handle is given out in
+     */
+    private final int parity;
+
+    PooledMutex(ReentrantMutex reentrantMutex, int parity) {
+        this.reentrantMutex = reentrantMutex;
+        this.parity = parity;
+    }
+
+    /**
+     * @see ReentrantMutex#release()
+     */
+    @Override
+    public void release() {
+        if((reentrantMutex.getGeneration() & 1) != parity) {
+            throw new MutexNotActiveException();
+        }
+        reentrantMutex.release();
+    }
+
+    @Override
+    public String toString() {
+        return "PooledMutex{" +
+                "mutex=" + reentrantMutex +
+                ", parity=" + parity +
+                '}';
+    }
+}
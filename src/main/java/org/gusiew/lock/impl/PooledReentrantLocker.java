@@ -0,0 +1,81 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.api.Locker;
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.exception.MutexNotActiveException;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * {@link ReentrantLocker} that recycles mutexes, created by {@link ReentrantLocker.Builder#buildPooled()}.
+ * <p>Locking value that is not active does not allocate new mutex, mutex retired on last release is recycled instead,
+ * see {@link MutexPool}. Active mutexes are registered without entry objects, so steady state locking
+ * does not allocate at all. Mutex itself is never returned, acquisitions get one of two handles the mutex alternates
+ * between its generations, see {@link PooledMutex}. Released handle fails with {@link MutexNotActiveException}
+ * as released mutex without pooling, also after its mutex was reused for other value once. Excess release
+ * through handle of a mutex reused twice or more since is not detected, so it may release other value
+ * <p>Otherwise behaves as {@link ReentrantLocker} built with same settings
+ */
+@ThreadSafe
+public class PooledReentrantLocker implements Locker {
+
+    private final ReentrantLocker reentrantLocker;
+
+    PooledReentrantLocker(ReentrantLocker reentrantLocker) {
+        this.reentrantLocker = reentrantLocker;
+    }
+
+    /**
+     * @see ReentrantLocker#lock(Object)
+     */
+    @Override
+    public Mutex lock(Object value) {
+        return reentrantLocker.lock(value).handle();
+    }
+
+    /**
+     * @see ReentrantLocker#lockWithLease(Object, long, TimeUnit)
+     */
+    public Mutex lockWithLease(Object value, long leaseTime, TimeUnit unit) {
+        return reentrantLocker.lockWithLease(value, leaseTime, unit).handle();
+    }
+
+    @Override
+    public Mutex tryLock(Object value) {
+        return handle(reentrantLocker.tryLock(value));
+    }
+
+    @Override
+    public Mutex tryLock(Object value, long timeout, TimeUnit unit) throws InterruptedException {
+        return handle(reentrantLocker.tryLock(value, timeout, unit));
+    }
+
+    @Override
+    public Mutex lockInterruptibly(Object value) throws InterruptedException {
+        return reentrantLocker.lockInterruptibly(value).handle();
+    }
+
+    @Override
+    public Mutex lockAll(Collection<?> values) {
+        return reentrantLocker.lockAll(values);
+    }
+
+    @Override
+    public CompletableFuture<Mutex> lockAsync(Object value, Executor executor) {
+        return reentrantLocker.lockAsync(value, executor);
+    }
+
+    @Override
+    public <T> T combine(Object value, Function<Object, ? extends T> operation) {
+        return reentrantLocker.combine(value, operation);
+    }
+
+    private Mutex handle(ReentrantMutex reentrantMutex) {
+        return reentrantMutex == null ? null : reentrantMutex.handle();
+    }
+}
@@ -0,0 +1,265 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.exception.MutexActiveButDifferent;
+import org.gusiew.lock.impl.exception.MutexHeldByOtherThreadException;
+import org.gusiew.lock.impl.exception.MutexNotActiveException;
+import org.gusiew.lock.impl.util.StripedMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.gusiew.lock.impl.util.ThreadUtil.sameThreads;
+
+/**
+ * Read and write lock on single value, produced by {@link ReentrantReadWriteLocker}
+ * <p>Read and write locks are released through {@link #getReadMutex()} and {@link #getWriteMutex()} views.
+ * <p>State is guarded by {@link ReentrantLock}, waiting threads park on its condition instead of waiting on monitor,
+ * so virtual threads do not pin carrier threads. Every lock hold and every waiting thread counts as user,
+ * last user that leaves retires the mutex and removes it from active mutexes, retired mutex can not be joined anymore
+ */
+@ThreadSafe
+public class ReadWriteMutex {
+
+    private final Object lock;
+
+    /**
+     * See {@link StripedMap} for concurrency guarantees
+     */
+    private final StripedMap<Object, ReadWriteMutex> locks;
+    private final boolean writerPreferred;
+    private final WriteStamps writeStamps;
+
+    private final Mutex readMutex = this::releaseRead;
+    private final Mutex writeMutex = this::releaseWrite;
+
+    private final ReentrantLock stateLock = new ReentrantLock();
+    private final Condition stateChanged = stateLock.newCondition();
+
+    @GuardedBy("stateLock")
+    private final Map<Thread, Integer> readHolds = new HashMap<>();
+    @GuardedBy("stateLock")
+    private Thread writerThread;
+    @GuardedBy("stateLock")
+    private int writeEntranceCount;
+    @GuardedBy("stateLock")
+    private int waitingWriters;
+    @GuardedBy("stateLock")
+    private int users;
+    @GuardedBy("stateLock")
+    private boolean retired;
+
+    ReadWriteMutex(final Object value, StripedMap<Object, ReadWriteMutex> locks, boolean writerPreferred,
+                   WriteStamps writeStamps) {
+        this.lock = value;
+        this.locks = locks;
+        this.writerPreferred = writerPreferred;
+        this.writeStamps = writeStamps;
+    }
+
+    Object getLock() {
+        return lock;
+    }
+
+    /**
+     * @return mutex that releases read lock held by current thread
+     */
+    public Mutex getReadMutex() {
+        return readMutex;
+    }
+
+    /**
+     * @return mutex that releases write lock held by current thread
+     */
+    public Mutex getWriteMutex() {
+        return writeMutex;
+    }
+
+    /**
+     * Registers current thread as mutex user, registered user has to acquire read or write lock
+     *
+     * @return false if mutex is retired, it is not active anymore and other mutex has to be used
+     */
+    boolean tryJoin() {
+        stateLock.lock();
+        try {
+            if(retired) {
+                return false;
+            }
+            users++;
+            return true;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Removes retired mutex from active mutexes in case retiring thread did not do it yet
+     */
+    void helpRemoveRetired() {
+        locks.remove(lock, this);
+    }
+
+    /**
+     * Acquires read lock for user registered by {@link #tryJoin()}. Thread that already holds read or write lock
+     * enters immediately, otherwise it waits while write lock is held or, if writers are preferred, requested
+     *
+     * @return true if thread was interrupted while waiting
+     */
+    boolean acquireReadLock() {
+        stateLock.lock();
+        try {
+            Thread currentThread = Thread.currentThread();
+            boolean wasInterrupted = false;
+            if(!readHolds.containsKey(currentThread) && writerThread != currentThread) {
+                while (writerThread != null || (writerPreferred && waitingWriters > 0)) {
+                    wasInterrupted |= waitForStateChange();
+                }
+            }
+            readHolds.merge(currentThread, 1, Integer::sum);
+            return wasInterrupted;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Acquires write lock for user registered by {@link #tryJoin()}, waits while any other thread holds
+     * read or write lock
+     *
+     * @return true if thread was interrupted while waiting
+     * @throws IllegalStateException if current thread holds read lock, read lock can not be upgraded
+     */
+    boolean acquireWriteLock() {
+        stateLock.lock();
+        try {
+            Thread currentThread = Thread.currentThread();
+            if(writerThread == currentThread) {
+                writeEntranceCount++;
+                return false;
+            }
+            if(readHolds.containsKey(currentThread)) {
+                leave();
+                throw new IllegalStateException("Read lock can not be upgraded to write lock");
+            }
+            boolean wasInterrupted = false;
+            waitingWriters++;
+            while (writerThread != null || !readHolds.isEmpty()) {
+                wasInterrupted |= waitForStateChange();
+            }
+            waitingWriters--;
+            writerThread = currentThread;
+            writeEntranceCount = 1;
+            writeStamps.writeLocked(lock);
+            return wasInterrupted;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    @GuardedBy("stateLock")
+    private boolean waitForStateChange() {
+        try {
+            stateChanged.await();
+        } catch (InterruptedException e) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Read lock must be released same time as acquired
+     *
+     * @throws MutexNotActiveException if mutex is not active
+     * @throws MutexHeldByOtherThreadException if current thread does not hold read lock
+     * @throws MutexActiveButDifferent if other mutex with same value is active
+     */
+    private void releaseRead() {
+        validateWith(locks.get(lock));
+        stateLock.lock();
+        try {
+            Thread currentThread = Thread.currentThread();
+            Integer holds = readHolds.get(currentThread);
+            if(holds == null) {
+                throw new MutexHeldByOtherThreadException();
+            }
+            if(holds == 1) {
+                readHolds.remove(currentThread);
+                if(readHolds.isEmpty()) {
+                    stateChanged.signalAll();
+                }
+            } else {
+                readHolds.put(currentThread, holds - 1);
+            }
+            leave();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    /**
+     * Write lock must be released same time as acquired
+     *
+     * @throws MutexNotActiveException if mutex is not active
+     * @throws MutexHeldByOtherThreadException if current thread does not hold write lock
+     * @throws MutexActiveButDifferent if other mutex with same value is active
+     */
+    private void releaseWrite() {
+        validateWith(locks.get(lock));
+        stateLock.lock();
+        try {
+            if(writerThread == null || !sameThreads(Thread.currentThread(), writerThread)) {
+                throw new MutexHeldByOtherThreadException();
+            }
+            writeEntranceCount--;
+            if(writeEntranceCount == 0) {
+                writerThread = null;
+                writeStamps.writeUnlocked(lock);
+                stateChanged.signalAll();
+            }
+            leave();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    private void validateWith(ReadWriteMutex readWriteMutex) {
+        if(readWriteMutex == null) {
+            throw new MutexNotActiveException();
+        } else if(this != readWriteMutex) {
+            throw new MutexActiveButDifferent();
+        }
+    }
+
+    /**
+     * Unregisters user, last user retires the mutex
+     */
+    @GuardedBy("stateLock")
+    private void leave() {
+        users--;
+        if(users == 0) {
+            retired = true;
+            locks.remove(lock, this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        stateLock.lock();
+        try {
+            return "ReadWriteMutex{" +
+                    "lock=" + lock +
+                    ", readHolds=" + readHolds.size() +
+                    ", writerThread=" + writerThread +
+                    ", writeEntranceCount=" + writeEntranceCount +
+                    ", waitingWriters=" + waitingWriters +
+                    '}';
+        } finally {
+            stateLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.api.IntLocker;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of {@link IntLocker}, locks the value widened to long with {@link ReentrantLongLocker}
+ */
+@ThreadSafe
+public class ReentrantIntLocker implements IntLocker {
+
+    private final ReentrantLongLocker longLocker;
+
+    /**
+     * Default constructor, sets concurrency level to 16
+     */
+    public ReentrantIntLocker() {
+        this.longLocker = new ReentrantLongLocker();
+    }
+
+    /**
+     * @param concurrencyLevel concurrency level to set, see {@link ReentrantLocker}
+     * @param fair true for fair locker, see {@link ReentrantLocker.Builder#fair}
+     */
+    public ReentrantIntLocker(int concurrencyLevel, boolean fair) {
+        this.longLocker = new ReentrantLongLocker(concurrencyLevel, fair);
+    }
+
+    @Override
+    public ReentrantMutex lock(int value) {
+        return longLocker.lock(value);
+    }
+
+    @Override
+    public ReentrantMutex tryLock(int value) {
+        return longLocker.tryLock(value);
+    }
+
+    @Override
+    public ReentrantMutex tryLock(int value, long timeout, TimeUnit unit) throws InterruptedException {
+        return longLocker.tryLock(value, timeout, unit);
+    }
+
+    @Override
+    public ReentrantMutex lockInterruptibly(int value) throws InterruptedException {
+        return longLocker.lockInterruptibly(value);
+    }
+}
@@ -1,25 +1,67 @@
 package org.gusiew.lock.impl;
 
 import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.api.Equivalence;
+import org.gusiew.lock.api.LockerMetrics;
 import org.gusiew.lock.api.Locker;
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.exception.MutexDeadlockException;
+import org.gusiew.lock.impl.exception.MutexLeaseExpiredException;
 import org.gusiew.lock.impl.internal.ActiveMutexesUpdatedHandler;
 import org.gusiew.lock.impl.internal.MutexFactory;
+import org.gusiew.lock.impl.util.CompactStripedMap;
 import org.gusiew.lock.impl.util.StripedMap;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.gusiew.lock.impl.util.ConditionUtil.not;
+
 /**
- * Currently the only implementation of {@link Locker}.
+ * Default implementation of {@link Locker}, see {@link MappedFileLocker} for locking across processes.
  *
  * <p>Has synchronized/wait like behavior:
  * <ul>
  *   <li>Allows holder thread to reenter but needs to be released same number of times as acquired</li>
- *   <li>Has synchronized/wait like semantics (does not provide fairness)</li>
- *   <li>Does not react to interruptions but propagates the status </li>
- *   <li>Mutual exclusive locking, may deadlock if used inappropriately</li>
+ *   <li>Has synchronized/wait like semantics, by default does not provide fairness.
+ *       Fair locker grants each value lock to waiting threads in arrival order, see {@link Builder#fair}</li>
+ *   <li>Uncontended lock and release do not take any monitor, mutex state is updated with CAS operations.
+ *       Only threads that have to wait for the lock park, release unparks only the first waiting thread</li>
+ *   <li>No monitor is held while waiting, so waiting virtual threads do not pin carrier threads</li>
+ *   <li>{@link #lockAsync} never blocks, lock is handed over to queued asynchronous acquisition on release
+ *       and the future is completed on supplied executor</li>
+ *   <li>{@link #combine} lets thread that acquires hot value lock run operations queued by waiting threads in a batch,
+ *       instead of handing the lock over to each of them. In fair mode combined operations may overtake
+ *       threads waiting in {@link #lock}</li>
+ *   <li>{@link #lock} does not react to interruptions but propagates the status,
+ *       {@link #lockInterruptibly} and timed {@link #tryLock} stop waiting when interrupted</li>
+ *   <li>Thread that gives up waiting (timeout or interruption) unregisters from the mutex,
+ *       mutex with no holder and no waiting threads is removed from lock registry</li>
+ *   <li>Mutual exclusive locking, may deadlock if used inappropriately.
+ *       Use {@link #lockAll} when several values have to be held at once</li>
  *   <li>If number of distinct locks and threads is known in advance,
  *        concurrency level can be set to relax synchronization.
- *        Concurrency level specifies number of stripes in locker lock registry.
- *        Each stripe is locked independently
+ *        Concurrency level specifies number of stripes in locker lock registry, rounded up to power of two.
+ *        Each stripe is updated independently
  *   </li>
+ *   <li>Pooling locker recycles mutexes of values that are not locked anymore, see {@link Builder#buildPooled}</li>
+ *   <li>Values are same lock if they are equal, unless {@link Equivalence} is given,
+ *       see {@link Builder#equivalence}</li>
+ *   <li>Acquisitions, wait and hold times, active mutexes and waiters can be observed with {@link LockerMetrics},
+ *       see {@link Builder#metrics}</li>
+ *   <li>Deadlocks can be detected when thread starts waiting,
+ *       see {@link Builder#deadlockDetector}</li>
+ *   <li>Waiting threads park right away unless {@link WaitStrategy} lets them spin first,
+ *       see {@link Builder#waitStrategy}</li>
+ *   <li>Value can be locked with a lease, so it is taken from holder that stalls or dies while holding it,
+ *       see {@link #lockWithLease}, {@link Builder#leases} and {@link Leases}</li>
  * </ul>
  * <p>Assumes that value is immutable
  * <p>Lock entrances count and number of waiting threads are stored as ints so int max value is the limit
@@ -30,18 +72,38 @@ public class ReentrantLocker implements Locker {
     private static final int DEFAULT_NUMBER_OF_STRIPES = 16;
 
     /**
-     * See {@link StripedMap} for concurrency guarantees
+     * See {@link CompactStripedMap} for concurrency guarantees
+     */
+    private final CompactStripedMap<Object, ReentrantMutex> locks;
+    /**
+     * Null if mutexes are not pooled
+     */
+    private final MutexPool pool;
+    /**
+     * Settings of created mutexes
+     */
+    private final MutexOptions mutexOptions;
+    /**
+     * Null if values are compared with equals
+     */
+    private final Equivalence equivalence;
+    /**
+     * Reusable lookup keys, null if values are compared with equals and are keys themselves
+     */
+    private final ThreadLocal<EquivalentKey> lookupKeys;
+    /**
+     * Null if values can not be locked with a lease
      */
-    private final StripedMap<Object, ReentrantMutex> locks;
+    private final Leases leases;
 
-    private MutexFactory mutexFactory = this::createAndLock;
+    private MutexFactory mutexFactory = ReentrantMutex::new;
     private ActiveMutexesUpdatedHandler activeMutexesUpdatedHandler = () -> {};
 
     /**
      * Default constructor, sets concurrency level to 16
      */
     public ReentrantLocker() {
-        this(DEFAULT_NUMBER_OF_STRIPES);
+        this(builder());
     }
 
     /**
@@ -49,35 +111,296 @@ public class ReentrantLocker implements Locker {
      * @param concurrencyLevel concurrency level to set, see class comments
      */
     public ReentrantLocker(int concurrencyLevel) {
-        locks = new StripedMap<>(concurrencyLevel);
+        this(builder().concurrencyLevel(concurrencyLevel));
+    }
+
+    private ReentrantLocker(Builder builder) {
+        this(builder, null);
+    }
+
+    /**
+     * @param pool pool to recycle mutexes to, null if mutexes are not pooled
+     */
+    private ReentrantLocker(Builder builder, MutexPool pool) {
+        this.locks = new CompactStripedMap<>(builder.concurrencyLevel);
+        this.pool = pool;
+        this.mutexOptions = new MutexOptions(builder.fair, pool, builder.metrics, builder.deadlockDetector,
+                builder.waitStrategy, builder.leases);
+        this.equivalence = builder.equivalence;
+        this.lookupKeys = equivalence == null ? null : ThreadLocal.withInitial(() -> new EquivalentKey(equivalence));
+        this.leases = builder.leases;
     }
 
+    /**
+     * @return builder of locker with other than default settings, see {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @throws MutexDeadlockException if locker detects deadlocks
+     *         and waiting for the value would deadlock
+     */
     @Override
     public ReentrantMutex lock(final Object value) {
-        ReentrantMutex reentrantMutex;
-        boolean tryAcquireState = false;
-        boolean wasInterrupted = false;
+        ReentrantMutex reentrantMutex = registerOrJoin(value);
+        if (reentrantMutex.enteredByCurrentThread()) {
+            return reentrantMutex;
+        }
+        setInterruptionOnThreadIfNeeded(reentrantMutex.acquireLock());
+        return reentrantMutex;
+    }
+
+    /**
+     * Locks value like {@link #lock}, lock is taken from current thread if it does not release it within lease time.
+     * Lease covers the outermost acquisition: if current thread holds the value already, lock is only reentered
+     * and lease of outermost acquisition, if any, still applies. See {@link Leases} for expiry
+     *
+     * @param leaseTime time after which lock is taken from current thread
+     * @throws IllegalStateException if locker was not created with {@link Leases}
+     * @throws MutexDeadlockException if locker detects deadlocks
+     *         and waiting for the value would deadlock
+     * @see MutexLeaseExpiredException
+     */
+    public ReentrantMutex lockWithLease(final Object value, long leaseTime, TimeUnit unit) {
+        if(leases == null) {
+            throw new IllegalStateException("Leases are not enabled");
+        }
+        ReentrantMutex reentrantMutex = lock(value);
+        reentrantMutex.startLease(unit.toNanos(leaseTime));
+        return reentrantMutex;
+    }
+
+    @Override
+    public ReentrantMutex tryLock(final Object value) {
+        ReentrantMutex reentrantMutex = registerOrJoin(value);
+        if (reentrantMutex.enteredByCurrentThread() || reentrantMutex.tryAcquireLockOrLeave()) {
+            return reentrantMutex;
+        }
+        return null;
+    }
+
+    @Override
+    public ReentrantMutex tryLock(final Object value, long timeout, TimeUnit unit) throws InterruptedException {
+        throwIfInterrupted();
+        ReentrantMutex reentrantMutex = registerOrJoin(value);
+        if (reentrantMutex.enteredByCurrentThread() || reentrantMutex.acquireLockInterruptibly(ReentrantMutex.timeoutNanos(timeout, unit))) {
+            return reentrantMutex;
+        }
+        return null;
+    }
+
+    @Override
+    public ReentrantMutex lockInterruptibly(final Object value) throws InterruptedException {
+        throwIfInterrupted();
+        ReentrantMutex reentrantMutex = registerOrJoin(value);
+        if (!reentrantMutex.enteredByCurrentThread()) {
+            reentrantMutex.acquireLockInterruptibly(ReentrantMutex.NO_TIMEOUT);
+        }
+        return reentrantMutex;
+    }
 
+    @Override
+    public CompletableFuture<Mutex> lockAsync(final Object value, final Executor executor) {
         validate(value);
+        CompletableFuture<Mutex> future = new CompletableFuture<>();
+        Object key = lookupKey(value);
+        try {
+            lockAsync(key, future, executor);
+        } finally {
+            releaseLookupKey(key);
+        }
+        return future;
+    }
 
-        synchronized (locks.getStripe(value)) {
-            reentrantMutex = locks.get(value);
+    private void lockAsync(final Object key, CompletableFuture<Mutex> future, final Executor executor) {
+        for (;;) {
+            ReentrantMutex reentrantMutex = locks.get(key);
             if (reentrantMutex == null) {
-                reentrantMutex = mutexFactory.createAndLock(value);
-                locks.put(reentrantMutex.getLock(), reentrantMutex);
+                reentrantMutex = createAndLock(registrationKey(key));
+                AsyncMutex asyncMutex = new AsyncMutex(reentrantMutex);
+                reentrantMutex.transferTo(asyncMutex);
+                ReentrantMutex activeMutex = locks.putIfAbsent(reentrantMutex.getLock(), reentrantMutex);
+                if (activeMutex == null) {
+                    reentrantMutex.publish();
+                    activeMutexesUpdatedHandler.activeMutexesUpdated();
+                    new AsyncMutexWaiter(asyncMutex, future, executor).complete();
+                    return;
+                }
+                reentrantMutex.discard();
+                reentrantMutex = activeMutex;
+            }
+
+            if (reentrantMutex.tryJoin(key)) {
+                reentrantMutex.acquireLockAsync(future, executor);
+                return;
+            }
+
+            reentrantMutex.helpRemoveRetired();
+        }
+    }
+
+    @Override
+    public <T> T combine(final Object value, final Function<Object, ? extends T> operation) {
+        if(operation == null) {
+            throw new NullPointerException();
+        }
+        ReentrantMutex reentrantMutex = registerOrJoin(value);
+        if (reentrantMutex.enteredByCurrentThread()) {
+            //Queued operations must not run inside critical section of reentered lock
+            boolean outermost = reentrantMutex.getEntranceCount() == 1;
+            try {
+                T result = operation.apply(value);
+                if(outermost) {
+                    reentrantMutex.combineWaiting();
+                }
+                return result;
+            } finally {
+                reentrantMutex.release();
+            }
+        }
+        return reentrantMutex.combine(value, operation);
+    }
+
+    /**
+     * Values are sorted by registry stripe, then spread hash code, then class name and natural order if values
+     * of the same class are comparable. Distinct values this order can not tell apart are acquired with {@link #tryLock(Object)},
+     * on failure everything acquired so far is released and locking starts over once contended value is available
+     */
+    @Override
+    public Mutex lockAll(final Collection<?> values) {
+        List<Object> ordered = distinctKeys(values);
+        ordered.sort(this::compareInLockOrder);
+
+        List<Mutex> acquired = new ArrayList<>(ordered.size());
+        try {
+            while (not(tryLockAllInOrder(ordered, acquired))) {
+                acquired.clear();
+            }
+        } catch (MutexDeadlockException e) {
+            //Values locked so far are released, caller gets either all of them or none
+            new CompositeMutex(acquired).release();
+            throw e;
+        }
+        return new CompositeMutex(acquired);
+    }
+
+    /**
+     * @return registration keys of values, each lock once
+     */
+    private List<Object> distinctKeys(final Collection<?> values) {
+        Set<Object> keys = new HashSet<>();
+        for (Object value : values) {
+            validate(value);
+            keys.add(equivalence == null ? value : new EquivalentKey(equivalence).set(value));
+        }
+        return new ArrayList<>(keys);
+    }
+
+    private boolean tryLockAllInOrder(List<Object> ordered, List<Mutex> acquired) {
+        for (int i = 0; i < ordered.size(); i++) {
+            Object value = valueOf(ordered.get(i));
+            if(i > 0 && compareInLockOrder(ordered.get(i - 1), ordered.get(i)) == 0) {
+                ReentrantMutex reentrantMutex = tryLock(value);
+                if(reentrantMutex == null) {
+                    new CompositeMutex(acquired).release();
+                    acquired.clear();
+                    lock(value).release();
+                    return false;
+                }
+                acquired.add(handle(reentrantMutex));
             } else {
-                tryAcquireState = reentrantMutex.synchronizeAndTryAcquireState();
+                acquired.add(handle(lock(value)));
             }
         }
+        return true;
+    }
 
-        activeMutexesUpdatedHandler.activeMutexesUpdated();
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private int compareInLockOrder(Object first, Object second) {
+        int byStripe = Integer.compare(locks.getStripeIndex(first), locks.getStripeIndex(second));
+        if(byStripe != 0) {
+            return byStripe;
+        }
+        int byHash = Integer.compare(StripedMap.spread(first.hashCode()), StripedMap.spread(second.hashCode()));
+        if(byHash != 0) {
+            return byHash;
+        }
+        if(first.getClass() != second.getClass()) {
+            //Values of other classes are not compared with each other, class name keeps ties transitive
+            return first.getClass().getName().compareTo(second.getClass().getName());
+        }
+        if(first instanceof Comparable) {
+            return ((Comparable) first).compareTo(second);
+        }
+        return 0;
+    }
 
-        if (tryAcquireState) {
-            wasInterrupted = reentrantMutex.synchronizeAndAcquireLock();
+    /**
+     * Registers new mutex held by current thread, reenters mutex already held by current thread
+     * or joins active mutex held by other thread. Joined mutex has to be acquired or left by the caller
+     */
+    private ReentrantMutex registerOrJoin(final Object value) {
+        validate(value);
+        Object key = lookupKey(value);
+        try {
+            return registerOrJoinKey(key);
+        } finally {
+            releaseLookupKey(key);
         }
-        setInterruptionOnThreadIfNeeded(wasInterrupted);
+    }
 
-        return reentrantMutex;
+    private ReentrantMutex registerOrJoinKey(final Object key) {
+        for (;;) {
+            ReentrantMutex reentrantMutex = locks.get(key);
+            if (reentrantMutex == null) {
+                reentrantMutex = createAndLock(registrationKey(key));
+                ReentrantMutex activeMutex = locks.putIfAbsent(reentrantMutex.getLock(), reentrantMutex);
+                if (activeMutex == null) {
+                    reentrantMutex.publish();
+                    activeMutexesUpdatedHandler.activeMutexesUpdated();
+                    return reentrantMutex;
+                }
+                reentrantMutex.discard();
+                reentrantMutex = activeMutex;
+            }
+
+            if (reentrantMutex.tryReenter()) {
+                return reentrantMutex;
+            }
+
+            if (reentrantMutex.tryJoin(key)) {
+                activeMutexesUpdatedHandler.activeMutexesUpdated();
+                return reentrantMutex;
+            }
+
+            reentrantMutex.helpRemoveRetired();
+        }
+    }
+
+    /**
+     * @return key to look up active mutex of the value with, has to be released after lookup
+     */
+    private Object lookupKey(Object value) {
+        return lookupKeys == null ? value : lookupKeys.get().set(value);
+    }
+
+    private void releaseLookupKey(Object key) {
+        if(lookupKeys != null) {
+            ((EquivalentKey) key).clear();
+        }
+    }
+
+    /**
+     * @return key to register mutex of looked up value with
+     */
+    private Object registrationKey(Object lookupKey) {
+        return lookupKeys == null ? lookupKey : ((EquivalentKey) lookupKey).copy();
+    }
+
+    private Object valueOf(Object key) {
+        return equivalence == null ? key : ((EquivalentKey) key).getValue();
     }
 
     private void validate(Object value) {
@@ -86,8 +409,31 @@ public class ReentrantLocker implements Locker {
         }
     }
 
+    /**
+     * @return mutex of value held by current thread, recycled one if pooling locker has it
+     */
     private ReentrantMutex createAndLock(Object value) {
-        return new ReentrantMutex(value, locks);
+        if(pool != null) {
+            ReentrantMutex reentrantMutex = pool.poll();
+            if(reentrantMutex != null) {
+                reentrantMutex.reinitialize(value);
+                return reentrantMutex;
+            }
+        }
+        return mutexFactory.createAndLock(value, locks, mutexOptions);
+    }
+
+    /**
+     * @return mutex itself, or handle of its current generation if mutexes are pooled, see {@link PooledMutex}
+     */
+    private Mutex handle(ReentrantMutex reentrantMutex) {
+        return pool == null ? reentrantMutex : reentrantMutex.handle();
+    }
+
+    private void throwIfInterrupted() throws InterruptedException {
+        if(Thread.interrupted()) {
+            throw new InterruptedException();
+        }
     }
 
     private void setInterruptionOnThreadIfNeeded(boolean wasInterrupted) {
@@ -95,4 +441,117 @@ public class ReentrantLocker implements Locker {
             Thread.currentThread().interrupt();
         }
     }
+
+    /**
+     * Settings of {@link ReentrantLocker}, each one is off unless set:
+     * <pre>
+     *     ReentrantLocker locker = ReentrantLocker.builder()
+     *             .fair(true)
+     *             .metrics(new LockerStatistics())
+     *             .build();
+     * </pre>
+     * Builder can be reused, each {@link #build()} creates independent locker
+     */
+    public static final class Builder {
+
+        private int concurrencyLevel = DEFAULT_NUMBER_OF_STRIPES;
+        private boolean fair;
+        private Equivalence equivalence;
+        private LockerMetrics metrics;
+        private DeadlockDetector deadlockDetector;
+        private WaitStrategy waitStrategy;
+        private Leases leases;
+
+        private Builder() {
+        }
+
+        /**
+         * @param concurrencyLevel concurrency level to set, see class comments of {@link ReentrantLocker}, 16 by default
+         */
+        public Builder concurrencyLevel(int concurrencyLevel) {
+            this.concurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        /**
+         * Fair locker hands the lock over directly to the longest waiting thread on release and threads that
+         * come later can not overtake waiting ones. No thread starves under sustained contention, but every contended
+         * release waits for the next holder to be scheduled, so throughput on hot values is lower than without fairness
+         *
+         * @param fair true for fair locker
+         */
+        public Builder fair(boolean fair) {
+            this.fair = fair;
+            return this;
+        }
+
+        /**
+         * Locker uses given equivalence instead of value equality.
+         * Looking up active value does not allocate, value is wrapped in registration key only when it becomes active.
+         * Registered value is referenced until it is released, so its content must not change in the meantime
+         *
+         * @param equivalence equivalence of values, null to use equals and hashCode of values
+         */
+        public Builder equivalence(Equivalence equivalence) {
+            this.equivalence = equivalence;
+            return this;
+        }
+
+        /**
+         * Locker reports lock events to given metrics, see {@link org.gusiew.lock.impl.metrics.LockerStatistics}
+         * for implementation that can be exported via JMX. Without metrics no event is reported and no time is measured
+         *
+         * @param metrics receiver of lock events, null to not record metrics
+         */
+        public Builder metrics(LockerMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Locker checks waits for deadlocks, see {@link DeadlockDetector}. Thread that would wait in a cycle
+         * gets {@link MutexDeadlockException} from {@link ReentrantLocker#lock} or
+         * {@link ReentrantLocker#lockInterruptibly} instead of waiting forever. Check is done only when thread has to wait, uncontended locking is not affected
+         *
+         * @param deadlockDetector wait-for graph, may be shared by lockers, null to not detect deadlocks
+         */
+        public Builder deadlockDetector(DeadlockDetector deadlockDetector) {
+            this.deadlockDetector = deadlockDetector;
+            return this;
+        }
+
+        /**
+         * Waiting threads of locker follow given strategy, e.g. spin before they park when critical sections
+         * are short, see {@link WaitStrategies}
+         *
+         * @param waitStrategy how queued threads wait before they retry, null to park right away
+         */
+        public Builder waitStrategy(WaitStrategy waitStrategy) {
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+
+        /**
+         * Values of locker can be locked with a lease, see {@link ReentrantLocker#lockWithLease}.
+         * Reentering and releasing a value of such locker takes one more CAS operation, so holder and expiring lease
+         * never update the lock at the same time. Locks taken without lease never expire
+         *
+         * @param leases timer of leases, may be shared by lockers, null to not allow leases
+         */
+        public Builder leases(Leases leases) {
+            this.leases = leases;
+            return this;
+        }
+
+        public ReentrantLocker build() {
+            return new ReentrantLocker(this);
+        }
+
+        /**
+         * @return locker that recycles mutexes of values that are not locked anymore, see {@link PooledReentrantLocker}
+         */
+        public PooledReentrantLocker buildPooled() {
+            return new PooledReentrantLocker(new ReentrantLocker(this, new MutexPool()));
+        }
+    }
 }
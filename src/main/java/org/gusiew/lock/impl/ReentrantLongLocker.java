@@ -0,0 +1,121 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.api.LongLocker;
+import org.gusiew.lock.impl.util.LongStripedMap;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of {@link LongLocker} with same semantics as {@link ReentrantLocker}
+ * <p>Active mutexes are kept in {@link LongStripedMap}, so locking a value neither boxes it nor creates map entry.
+ * Only mutex is allocated when value becomes active
+ */
+@ThreadSafe
+public class ReentrantLongLocker implements LongLocker {
+
+    private static final int DEFAULT_NUMBER_OF_STRIPES = 16;
+
+    /**
+     * See {@link LongStripedMap} for concurrency guarantees
+     */
+    private final LongStripedMap<ReentrantMutex> locks;
+    private final boolean fair;
+
+    /**
+     * Default constructor, sets concurrency level to 16
+     */
+    public ReentrantLongLocker() {
+        this(DEFAULT_NUMBER_OF_STRIPES);
+    }
+
+    /**
+     * @param concurrencyLevel concurrency level to set, see {@link ReentrantLocker}
+     */
+    public ReentrantLongLocker(int concurrencyLevel) {
+        this(concurrencyLevel, false);
+    }
+
+    /**
+     * @param concurrencyLevel concurrency level to set, see {@link ReentrantLocker}
+     * @param fair true for fair locker, see {@link ReentrantLocker.Builder#fair}
+     */
+    public ReentrantLongLocker(int concurrencyLevel, boolean fair) {
+        this.locks = new LongStripedMap<>(concurrencyLevel);
+        this.fair = fair;
+    }
+
+    @Override
+    public ReentrantMutex lock(final long value) {
+        ReentrantMutex reentrantMutex = registerOrJoin(value);
+        if (reentrantMutex.heldByCurrentThread()) {
+            return reentrantMutex;
+        }
+        if (reentrantMutex.acquireLock()) {
+            Thread.currentThread().interrupt();
+        }
+        return reentrantMutex;
+    }
+
+    @Override
+    public ReentrantMutex tryLock(final long value) {
+        ReentrantMutex reentrantMutex = registerOrJoin(value);
+        if (reentrantMutex.heldByCurrentThread() || reentrantMutex.tryAcquireLockOrLeave()) {
+            return reentrantMutex;
+        }
+        return null;
+    }
+
+    @Override
+    public ReentrantMutex tryLock(final long value, long timeout, TimeUnit unit) throws InterruptedException {
+        throwIfInterrupted();
+        ReentrantMutex reentrantMutex = registerOrJoin(value);
+        if (reentrantMutex.heldByCurrentThread() || reentrantMutex.acquireLockInterruptibly(ReentrantMutex.timeoutNanos(timeout, unit))) {
+            return reentrantMutex;
+        }
+        return null;
+    }
+
+    @Override
+    public ReentrantMutex lockInterruptibly(final long value) throws InterruptedException {
+        throwIfInterrupted();
+        ReentrantMutex reentrantMutex = registerOrJoin(value);
+        if (!reentrantMutex.heldByCurrentThread()) {
+            reentrantMutex.acquireLockInterruptibly(ReentrantMutex.NO_TIMEOUT);
+        }
+        return reentrantMutex;
+    }
+
+    /**
+     * See {@link ReentrantLocker} registerOrJoin
+     */
+    private ReentrantMutex registerOrJoin(final long value) {
+        for (;;) {
+            ReentrantMutex reentrantMutex = locks.get(value);
+            if (reentrantMutex == null) {
+                reentrantMutex = new LongReentrantMutex(value, locks, fair);
+                ReentrantMutex activeMutex = locks.putIfAbsent(value, reentrantMutex);
+                if (activeMutex == null) {
+                    return reentrantMutex;
+                }
+                reentrantMutex = activeMutex;
+            }
+
+            if (reentrantMutex.tryReenter()) {
+                return reentrantMutex;
+            }
+
+            if (reentrantMutex.tryJoin()) {
+                return reentrantMutex;
+            }
+
+            reentrantMutex.helpRemoveRetired();
+        }
+    }
+
+    private void throwIfInterrupted() throws InterruptedException {
+        if(Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+}
@@ -1,45 +1,228 @@
 package org.gusiew.lock.impl;
 
-import jdk.nashorn.internal.ir.annotations.Immutable;
-import net.jcip.annotations.GuardedBy;
 import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.api.LockerMetrics;
 import org.gusiew.lock.api.Mutex;
 import org.gusiew.lock.impl.exception.MutexActiveButDifferent;
+import org.gusiew.lock.impl.exception.MutexDeadlockException;
 import org.gusiew.lock.impl.exception.MutexHeldByOtherThreadException;
+import org.gusiew.lock.impl.exception.MutexLeaseExpiredException;
 import org.gusiew.lock.impl.exception.MutexNotActiveException;
-import org.gusiew.lock.impl.util.StripedMap;
+import org.gusiew.lock.impl.util.CompactStripedMap;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import static org.gusiew.lock.impl.util.ConditionUtil.not;
-import static org.gusiew.lock.impl.util.ThreadUtil.sameThreads;
 
 /**
  * Currently the only implementation of {@link org.gusiew.lock.api.Mutex}.
  * <p>Produced by {@link ReentrantLocker#lock}
  * <p> See {@link ReentrantLocker} for more details
+ *
+ * <p>State is kept in two atomic words, so uncontended acquire and release need only CAS operations:
+ * <ul>
+ *   <li>holder - set by CAS from null when lock is acquired, cleared by holder on release.
+ *       Holder is either a thread or {@link AsyncMutex} handle of asynchronous acquisition</li>
+ *   <li>users - number of threads and asynchronous acquisitions that hold or wait for the mutex. Last user
+ *       retires the mutex and removes it from active mutexes, retired mutex can not be joined anymore</li>
+ * </ul>
+ * With {@link MutexPool} retired mutex is recycled and registered again for other value. It can not be joined
+ * until it is registered and joining thread checks that mutex still represents the value it looked up,
+ * as it may have found the mutex before it was recycled. Each recycling starts new generation of the mutex,
+ * handle of acquisition in previous generation can not release it, see {@link PooledMutex}
+ * <p>Threads that have to wait park in per mutex waiter queue. Release unparks only the first waiter,
+ * so single release does not wake up all waiting threads and mutex monitor is never used.
+ * Asynchronous acquisitions wait in the same queue, lock is handed over directly to them.
+ * <p>In fair mode release hands the lock directly to the first waiter instead, and threads that are not queued
+ * do not take the lock while others wait
+ * <p>Queued thread may spin before it parks, see {@link WaitStrategy}
+ * <p>Threads that wait in {@link #combine} leave their operations in the waiter queue, thread that acquires the lock
+ * there runs queued operations in a batch, so lock is not handed over for each of them
+ * <p>With {@link Leases} holder may lose the lock to timer thread, see {@link #expire}. Holder then reenters
+ * and releases by swapping itself in holder for a busy marker first, so its entrance count never changes
+ * while the lease expires
  */
 @ThreadSafe
 public class ReentrantMutex implements Mutex {
-    @Immutable
-    private final Object lock;
+
+    private static final int RETIRED = -1;
+    /**
+     * Recycled mutex not registered in active mutexes yet
+     */
+    private static final int UNPUBLISHED = -2;
+    private static final int MAX_COMBINED_OPERATIONS = 64;
+    /**
+     * Holder while holder thread or expiring lease updates state of leased lock
+     */
+    private static final Object LEASE_BUSY = new Object();
+    /**
+     * Tested while stripe of active mutexes is locked, so mutex recycled in the meantime is not removed
+     */
+    private static final Predicate<ReentrantMutex> IS_RETIRED = reentrantMutex -> reentrantMutex.users == RETIRED;
+
+    /**
+     * Passed to {@link #acquireLockInterruptibly(long)} to wait until lock is acquired or thread is interrupted.
+     * Not a timeout caller can ask for, see {@link #timeoutNanos(long, TimeUnit)}
+     */
+    static final long NO_TIMEOUT = Long.MIN_VALUE;
+
+    private static final AtomicReferenceFieldUpdater<ReentrantMutex, Object> HOLDER =
+            AtomicReferenceFieldUpdater.newUpdater(ReentrantMutex.class, Object.class, "holder");
+    private static final AtomicIntegerFieldUpdater<ReentrantMutex> USERS =
+            AtomicIntegerFieldUpdater.newUpdater(ReentrantMutex.class, "users");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ReentrantMutex, Queue> WAITERS =
+            AtomicReferenceFieldUpdater.newUpdater(ReentrantMutex.class, Queue.class, "waiters");
+
+    /**
+     * Changed only while mutex is retired in {@link MutexPool}, visibility guaranteed by volatile users
+     */
+    private Object lock;
+    /**
+     * Number of times mutex was recycled, handles of acquisitions in earlier lives are not active anymore.
+     * Changed and visible as lock
+     */
+    private int generation;
 
     /**
-     * See {@link StripedMap} for concurrency guarantees
+     * See {@link CompactStripedMap} for concurrency guarantees
      */
-    private final StripedMap<Object, ReentrantMutex> locks;
+    private final CompactStripedMap<Object, ReentrantMutex> locks;
 
-    @GuardedBy("this")
-    private Thread holderThread;
-    @GuardedBy("this")
+    private volatile Object holder;
+    /**
+     * Modified only by holder (or by thread that grants the lock, before holder is published),
+     * visibility for next holder guaranteed by volatile holder
+     */
     private int entranceCount;
-    @GuardedBy("this")
-    private int waitingThreadsCount;
+    private volatile int users;
+    /**
+     * Threads parked until lock is available, created when first thread has to wait
+     */
+    private volatile Queue<MutexWaiter> waiters;
+    private final boolean fair;
+    /**
+     * Pool retired mutex is recycled to, null if mutexes are not pooled
+     */
+    private final MutexPool pool;
+    /**
+     * Receiver of lock events, null if metrics are not recorded
+     */
+    private final LockerMetrics metrics;
+    /**
+     * Wait-for graph untimed waits are checked in, null if deadlocks are not detected
+     */
+    private final DeadlockDetector deadlockDetector;
+    /**
+     * Null if waiting threads park right away
+     */
+    private final WaitStrategy waitStrategy;
+    /**
+     * Null if holders can not have leases
+     */
+    private final Leases leases;
+    /**
+     * Lease of current acquisition, null if it has none. Set by holder, cleared on outermost release or expiry
+     */
+    private volatile Leases.Lease lease;
+    /**
+     * Set when holder thread reentered leased lock and did not check yet that it holds it,
+     * lease does not expire until it does
+     */
+    private volatile boolean reentering;
+    /**
+     * Thread whose lease expired last, so its release can tell why it does not hold the lock anymore
+     */
+    private volatile Thread expiredHolder;
+    /**
+     * Learned by wait strategy, updated by threads that acquired the lock after waiting without synchronization
+     */
+    private int spinLimit = WaitStrategies.INITIAL_SPIN_LIMIT;
+    /**
+     * Time of outermost acquisition, set only if metrics are recorded. Modified and visible as entrance count
+     */
+    private long acquiredNanos;
+    /**
+     * Handles given out by pooling locker in even and odd generations, created once with the mutex
+     * so acquisitions do not allocate. Null if mutexes are not pooled, see {@link PooledMutex}
+     */
+    private final PooledMutex[] handles;
+
+    protected ReentrantMutex(final Object value, CompactStripedMap<Object, ReentrantMutex> locks) {
+        this(value, locks, MutexOptions.DEFAULT);
+    }
 
-    protected ReentrantMutex(final Object value, StripedMap<Object, ReentrantMutex> locks) {
+    /**
+     * @param locks active mutexes, null for subclass that keeps its own registry
+     * @param options settings of locker that creates the mutex
+     */
+    protected ReentrantMutex(final Object value, CompactStripedMap<Object, ReentrantMutex> locks, MutexOptions options) {
         //TODO Assume value immutability for now
         this.lock = value;
         this.locks = locks;
-        this.holderThread = getCurrentThread();
+        this.fair = options.fair;
+        this.pool = options.pool;
+        this.metrics = options.metrics;
+        this.deadlockDetector = options.deadlockDetector;
+        this.waitStrategy = options.waitStrategy;
+        this.leases = options.leases;
+        this.handles = pool == null ? null : new PooledMutex[]{new PooledMutex(this, 0), new PooledMutex(this, 1)};
+        this.holder = getCurrentThread();
         this.entranceCount = 1;
+        this.users = 1;
+    }
+
+    /**
+     * Prepares mutex taken from {@link MutexPool} for value, held by current thread. Nothing learned or left over
+     * by earlier lives is kept. Mutex can not be joined until {@link #publish()} is called after it is registered
+     * in active mutexes
+     */
+    void reinitialize(final Object value) {
+        this.lock = value;
+        this.generation++;
+        this.holder = getCurrentThread();
+        this.entranceCount = 1;
+        this.waiters = null;
+        this.lease = null;
+        this.reentering = false;
+        this.expiredHolder = null;
+        this.spinLimit = WaitStrategies.INITIAL_SPIN_LIMIT;
+        this.acquiredNanos = 0;
+        this.users = UNPUBLISHED;
+    }
+
+    /**
+     * Allows joining of recycled mutex, must be called by creating thread once mutex is registered
+     */
+    void publish() {
+        if(metrics != null) {
+            metrics.mutexActivated();
+            acquired();
+        }
+        if(users == UNPUBLISHED) {
+            users = 1;
+        }
+    }
+
+    /**
+     * Returns mutex that creating thread failed to register to the pool.
+     * Threads that found it before it was recycled see it retired
+     */
+    void discard() {
+        if(pool != null) {
+            holder = null;
+            users = RETIRED;
+            pool.recycle(this);
+        }
     }
 
     /**
@@ -50,108 +233,799 @@ public class ReentrantMutex implements Mutex {
      * @throws MutexActiveButDifferent If mutex active but not same instance as registered in active mutexes,
      *                                  can happen if release called on released mutex and other mutex with
      *                                  same value created in meantime and active
+     * @throws MutexLeaseExpiredException if lease of the thread expired and lock was taken from it,
+     *                                    reported once to thread whose lease on this mutex expired last
      */
     @Override
     public void release() {
-        synchronized (locks.getStripe(lock)) {
-            validateWith(locks.get(lock));
-            synchronizeAndRelease();
-        }
+        releaseAs(getCurrentThread());
     }
 
-    private void validateWith(ReentrantMutex reentrantMutex) {
-        if(reentrantMutex == null) {
+    /**
+     * Release through handle of acquisition that remembers generation of the mutex, see {@link AsyncMutex}
+     *
+     * @throws MutexNotActiveException if mutex was recycled since the handle acquired it
+     */
+    void releaseAs(Object owner, int acquiredGeneration) {
+        if(generation != acquiredGeneration) {
             throw new MutexNotActiveException();
-        } else if(this != reentrantMutex) {
-            throw new MutexActiveButDifferent();
         }
+        releaseAs(owner);
+    }
+
+    /**
+     * Releases the lock held by given owner, thread for synchronous acquisitions or {@link AsyncMutex} handle
+     */
+    void releaseAs(Object owner) {
+        if(leases != null) {
+            releaseLeasedAs(owner);
+            return;
+        }
+        validateWith(activeMutex());
+        if (holder == owner) {
+            tryReleasingState();
+        } else {
+            throw new MutexHeldByOtherThreadException();
+        }
+    }
+
+    /**
+     * Release that can not race with lease expiry, outermost release cancels the lease
+     */
+    private void releaseLeasedAs(Object owner) {
+        if(expiredHolder == owner && holder != owner) {
+            expiredHolder = null;
+            throw new MutexLeaseExpiredException();
+        }
+        validateWith(activeMutex());
+        if(not(lockHolder(owner))) {
+            //Lease may have expired while owner waited for the busy marker
+            if(expiredHolder == owner) {
+                expiredHolder = null;
+                throw new MutexLeaseExpiredException();
+            }
+            throw new MutexHeldByOtherThreadException();
+        }
+        if(entranceCount > 1) {
+            entranceCount--;
+            holder = owner;
+            return;
+        }
+        Leases.Lease currentLease = lease;
+        if(currentLease != null) {
+            lease = null;
+            currentLease.cancel();
+        }
+        //Lease is cleared, so it can not expire anymore once owner is holder again
+        holder = owner;
+        tryReleasingState();
     }
 
-    private synchronized void synchronizeAndRelease() {
-        synchronized (this) {
-            if (sameThreads(Thread.currentThread(), holderThread)) {
-                boolean released = tryReleasingState();
-                if (released) {
-                    notifyLockAvailable();
+    /**
+     * Swaps owner in holder for busy marker, waits while lease expiry holds the marker
+     *
+     * @return false if owner does not hold the lock
+     */
+    private boolean lockHolder(Object owner) {
+        for (;;) {
+            Object currentHolder = holder;
+            if(currentHolder == owner) {
+                if(HOLDER.compareAndSet(this, owner, LEASE_BUSY)) {
+                    return true;
                 }
+            } else if(currentHolder == LEASE_BUSY) {
+                Thread.yield();
             } else {
-                throw new MutexHeldByOtherThreadException();
+                return false;
             }
         }
     }
 
+    private void validateWith(ReentrantMutex reentrantMutex) {
+        if(reentrantMutex == null) {
+            throw new MutexNotActiveException();
+        } else if(this != reentrantMutex) {
+            throw new MutexActiveButDifferent();
+        }
+    }
+
     protected Object getLock() {
         return lock;
     }
 
-    synchronized boolean synchronizeAndTryAcquireState() {
-        boolean sameThreads = sameThreads(getCurrentThread(), getHolderThread());
-        if(sameThreads) {
+    int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return handle of current generation given out by pooling locker, see {@link PooledMutex}
+     */
+    Mutex handle() {
+        return handles[generation & 1];
+    }
+
+    /**
+     * @return mutex registered in active mutexes for value of this mutex, null if there is none
+     */
+    ReentrantMutex activeMutex() {
+        return locks.get(lock);
+    }
+
+    /**
+     * Removes this mutex from active mutexes, called by thread that retired it
+     */
+    void unregister() {
+        locks.remove(lock, this);
+    }
+
+    /**
+     * Increases entrance count if current thread already holds the mutex
+     *
+     * @return true if mutex was reentered
+     */
+    boolean tryReenter() {
+        if(leases != null) {
+            return tryReenterLeased();
+        }
+        boolean heldByCurrentThread = heldByCurrentThread();
+        if(heldByCurrentThread) {
             entranceCount++;
-        } else {
-            waitingThreadsCount++;
+            if(metrics != null) {
+                metrics.reentered();
+            }
+        }
+        return heldByCurrentThread;
+    }
+
+    private boolean tryReenterLeased() {
+        Thread currentThread = getCurrentThread();
+        if(not(lockHolder(currentThread))) {
+            return false;
+        }
+        entranceCount++;
+        if(metrics != null) {
+            metrics.reentered();
+        }
+        reentering = true;
+        holder = currentThread;
+        return true;
+    }
+
+    /**
+     * Check of thread that registered or joined the mutex, or reentered it, see {@link #tryReenter()}.
+     * Leased lock reentered by current thread can not expire before this check
+     *
+     * @return true if current thread holds the mutex, false if it is registered user that has to acquire it
+     */
+    boolean enteredByCurrentThread() {
+        boolean heldByCurrentThread = heldByCurrentThread();
+        if(heldByCurrentThread && leases != null && reentering) {
+            reentering = false;
+        }
+        return heldByCurrentThread;
+    }
+
+    /**
+     * Starts lease of current acquisition if current thread acquired the lock and did not reenter it,
+     * reentrant acquisitions are covered by lease of outermost acquisition
+     *
+     * @throws IllegalStateException if holders can not have leases
+     */
+    void startLease(long leaseNanos) {
+        if(leases == null) {
+            throw new IllegalStateException("Leases are not enabled");
+        }
+        if(entranceCount == 1 && lease == null) {
+            lease = leases.start(this, getCurrentThread(), leaseNanos);
+        }
+    }
+
+    /**
+     * Called by timer thread when lease is due. Lock is taken from holder as if it released all its entrances,
+     * unless lease ended in meantime. Holder reentering the lock is given until next tick
+     */
+    void expire(Leases.Lease expiredLease) {
+        Thread thread = expiredLease.getHolder();
+        if(lease != expiredLease) {
+            return;
+        }
+        StackTraceElement[] stackTrace = thread.getStackTrace();
+        if(not(HOLDER.compareAndSet(this, thread, LEASE_BUSY))) {
+            return;
+        }
+        if(lease != expiredLease || reentering) {
+            holder = thread;
+            if(lease == expiredLease) {
+                leases.retry(expiredLease);
+            }
+            return;
+        }
+        Object value = lock;
+        lease = null;
+        expiredHolder = thread;
+        entranceCount = 1;
+        tryReleasingState();
+        leases.expired(value, thread, stackTrace);
+    }
+
+    /**
+     * Registers current thread as mutex user, registered user has to acquire the lock
+     *
+     * @param value value mutex was found for in active mutexes
+     * @return false if mutex is retired or was recycled for other value, it is not active anymore for the value
+     *         and other mutex has to be used
+     */
+    boolean tryJoin(Object value) {
+        if(not(tryJoin())) {
+            return false;
+        }
+        if(pool != null && not(lock.equals(value))) {
+            leave();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Registers current thread as user of mutex that is never recycled
+     *
+     * @return false if mutex is retired, it is not active anymore and other mutex has to be used
+     */
+    boolean tryJoin() {
+        for (;;) {
+            int currentUsers = users;
+            if(currentUsers == RETIRED) {
+                return false;
+            }
+            if(currentUsers == UNPUBLISHED) {
+                Thread.yield();
+            } else if(USERS.compareAndSet(this, currentUsers, currentUsers + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes retired mutex from active mutexes in case retiring thread did not do it yet.
+     * Mutex recycled and registered again in meantime is not retired, so it is not removed
+     */
+    void helpRemoveRetired() {
+        Object currentLock = lock;
+        locks.remove(currentLock, this, IS_RETIRED);
+    }
+
+    /**
+     * Passes mutex created by current thread to asynchronous acquisition, must be called before mutex is published
+     */
+    void transferTo(AsyncMutex asyncMutex) {
+        holder = asyncMutex;
+    }
+
+    /**
+     * Acquires the lock for asynchronous user registered by {@link #tryJoin(Object)}, never waits.
+     * If lock is held, acquisition is queued and completed by thread that hands the lock over
+     */
+    void acquireLockAsync(CompletableFuture<Mutex> future, Executor executor) {
+        AsyncMutex asyncMutex = new AsyncMutex(this);
+        AsyncMutexWaiter waiter = new AsyncMutexWaiter(asyncMutex, future, executor);
+        if(not(fair && hasWaitingThreads()) && casHolder(asyncMutex)) {
+            acquired();
+            waiter.complete();
+            return;
+        }
+        enqueue(waiter);
+        if((not(fair) || firstWaiting() == waiter) && casHolder(asyncMutex)) {
+            if(waiter.cancel()) {
+                acquiredAfterWaiting(waiter);
+                dequeue(waiters, waiter);
+                waiter.complete();
+            }
         }
-        return not(sameThreads);
     }
 
-    synchronized boolean synchronizeAndAcquireLock() {
+    /**
+     * Acquires the lock for user registered by {@link #tryJoin(Object)}, parks in waiter queue only if lock is held
+     *
+     * @return true if thread was interrupted while waiting
+     * @throws MutexDeadlockException if waiting would deadlock, user leaves the mutex
+     */
+    boolean acquireLock() {
+        if(tryAcquireLock()) {
+            acquired();
+            return false;
+        }
+        MutexWaiter waiter = enqueue(new MutexWaiter(getCurrentThread()));
         boolean wasInterrupted = false;
-        while (not(lockAvailable())) {
-            wasInterrupted |= waitForLockAvailable();
+        try {
+            String cycle = detectDeadlock(waiter);
+            if(cycle != null) {
+                leave();
+                throw new MutexDeadlockException(cycle);
+            }
+            int attempt = 0;
+            boolean parked = false;
+            while (not(tryAcquireLock(waiter))) {
+                if(spin(attempt++)) {
+                    continue;
+                }
+                parked = true;
+                LockSupport.park(this);
+                if(Thread.interrupted()) {
+                    wasInterrupted |= handleInterruption();
+                }
+            }
+            adaptSpinLimit(parked);
+            acquiredAfterWaiting(waiter);
+        } finally {
+            dequeue(waiters, waiter);
+            stopDeadlockDetection();
         }
-        acquireState();
         return wasInterrupted;
     }
 
-    private boolean lockAvailable() {
-        return holderThread == null;
+    /**
+     * Acquires the lock for user registered by {@link #tryJoin(Object)} only if it is available,
+     * otherwise user leaves the mutex
+     *
+     * @return true if lock was acquired
+     */
+    boolean tryAcquireLockOrLeave() {
+        if(tryAcquireLock()) {
+            acquired();
+            return true;
+        }
+        leave();
+        return false;
+    }
+
+    /**
+     * Timeout given to timed tryLock, negative timeout means not to wait like zero
+     *
+     * @return timeout in nanoseconds, never negative
+     */
+    static long timeoutNanos(long timeout, TimeUnit unit) {
+        return Math.max(unit.toNanos(timeout), 0);
     }
 
-    private boolean waitForLockAvailable() {
+    /**
+     * Acquires the lock for user registered by {@link #tryJoin(Object)}, parks in waiter queue until lock is acquired,
+     * timeout elapses or thread is interrupted. User that gives up waiting leaves the mutex.
+     * <p>In fair mode lock granted before waiter gave up is taken, interruption status is restored then
+     *
+     * @param timeoutNanos maximum time to wait or {@link #NO_TIMEOUT}
+     * @return true if lock was acquired, false if timeout elapsed
+     * @throws InterruptedException if thread was interrupted while waiting
+     * @throws MutexDeadlockException if waiting without timeout would deadlock
+     */
+    boolean acquireLockInterruptibly(long timeoutNanos) throws InterruptedException {
+        if(tryAcquireLock()) {
+            acquired();
+            return true;
+        }
+        MutexWaiter waiter = enqueue(new MutexWaiter(getCurrentThread()));
+        long deadline = System.nanoTime() + timeoutNanos;
+        boolean acquired = false;
+        boolean interrupted = false;
+        try {
+            if(timeoutNanos == NO_TIMEOUT) {
+                String cycle = detectDeadlock(waiter);
+                if(cycle != null) {
+                    throw new MutexDeadlockException(cycle);
+                }
+            }
+            int attempt = 0;
+            boolean parked = false;
+            while (not(acquired = tryAcquireLock(waiter))) {
+                long remainingNanos = timeoutNanos == NO_TIMEOUT ? NO_TIMEOUT : deadline - System.nanoTime();
+                boolean timedOut = timeoutNanos != NO_TIMEOUT && remainingNanos <= 0;
+                if(interrupted || timedOut) {
+                    if(waiter.cancel()) {
+                        if(interrupted) {
+                            throw new InterruptedException();
+                        }
+                        return false;
+                    }
+                    continue;
+                }
+                if(spin(attempt++)) {
+                    interrupted = Thread.interrupted();
+                    continue;
+                }
+                parked = true;
+                if(timeoutNanos == NO_TIMEOUT) {
+                    LockSupport.park(this);
+                } else {
+                    LockSupport.parkNanos(this, remainingNanos);
+                }
+                interrupted = Thread.interrupted();
+            }
+            adaptSpinLimit(parked);
+            acquiredAfterWaiting(waiter);
+            if(interrupted) {
+                getCurrentThread().interrupt();
+            }
+            return true;
+        } finally {
+            dequeue(waiters, waiter);
+            stopDeadlockDetection();
+            if(not(acquired)) {
+                leave();
+            }
+        }
+    }
+
+    /**
+     * Runs operation for user registered by {@link #tryJoin(Object)} while the lock is held. If lock is held by other thread
+     * operation is queued and run either by current thread once it acquires the lock or by other combining thread.
+     * Thread that runs operations releases the lock after the batch. Interruptions are ignored but status is propagated
+     *
+     * @return operation result
+     */
+    <T> T combine(Object value, Function<Object, ? extends T> operation) {
+        CombiningMutexWaiter<T> waiter = new CombiningMutexWaiter<>(getCurrentThread(), value, operation);
+        boolean acquired = tryAcquireLock();
+        if(acquired) {
+            acquired();
+        } else {
+            enqueue(waiter);
+            boolean wasInterrupted = false;
+            try {
+                int attempt = 0;
+                boolean parked = false;
+                while (not(waiter.isCompleted()) && not(acquired = tryAcquireLock(waiter))) {
+                    if(spin(attempt++)) {
+                        continue;
+                    }
+                    parked = true;
+                    LockSupport.park(this);
+                    wasInterrupted |= Thread.interrupted();
+                }
+                if(acquired) {
+                    adaptSpinLimit(parked);
+                    acquiredAfterWaiting(waiter);
+                }
+            } finally {
+                dequeue(waiters, waiter);
+                if(wasInterrupted) {
+                    getCurrentThread().interrupt();
+                }
+            }
+        }
+        //Waiter may be completed by holder that released the lock just before current thread acquired it
+        if(waiter.isCompleted()) {
+            if(acquired) {
+                tryReleasingState();
+            } else {
+                leave();
+            }
+            return waiter.getResult();
+        }
         try {
-            wait();
-        } catch (InterruptedException e) {
-            return handleInterruption();
+            waiter.run();
+            combineWaiting();
+        } finally {
+            tryReleasingState();
+        }
+        return waiter.getResult();
+    }
+
+    /**
+     * Runs operations of queued combining waiters, must be called by lock holder. Operation of waiter that acquired
+     * the lock itself in the meantime is not run, as waiter state is not waiting anymore. Number of operations is
+     * bounded, so holder is not kept combining while other threads keep queueing
+     */
+    void combineWaiting() {
+        Queue<MutexWaiter> queue = waiters;
+        if(queue == null) {
+            return;
+        }
+        int combined = 0;
+        for (MutexWaiter waiter : queue) {
+            if(combined == MAX_COMBINED_OPERATIONS) {
+                return;
+            }
+            if(waiter instanceof CombiningMutexWaiter && waiter.isWaiting()) {
+                ((CombiningMutexWaiter<?>) waiter).run();
+                if(waiter.markCompleted()) {
+                    waiter.wake();
+                }
+                combined++;
+            }
+        }
+    }
+
+    /**
+     * Adds waiter to waiter queue. Thread has to check lock availability after it is enqueued
+     * and before it parks, otherwise release that happened in between would not unpark it
+     */
+    private MutexWaiter enqueue(MutexWaiter waiter) {
+        if(metrics != null) {
+            waiter.queuedNanos = System.nanoTime();
+            waiter.queuedBehind = getHolderThread();
+            metrics.waitingStarted();
+        }
+        waiters().add(waiter);
+        return waiter;
+    }
+
+    /**
+     * Removes waiter that is not waiting anymore, waiter is removed only once
+     */
+    private void dequeue(Queue<MutexWaiter> queue, MutexWaiter waiter) {
+        queue.remove(waiter);
+        if(metrics != null) {
+            metrics.waitingEnded();
+        }
+    }
+
+    /**
+     * @return true if queued thread spun and should retry acquisition without parking
+     */
+    private boolean spin(int attempt) {
+        return waitStrategy != null && waitStrategy.spin(attempt, spinLimit);
+    }
+
+    private void adaptSpinLimit(boolean parked) {
+        if(waitStrategy != null) {
+            spinLimit = waitStrategy.adapt(spinLimit, not(parked));
+        }
+    }
+
+    /**
+     * Registers queued thread in wait-for graph, thread that would deadlock gives up waiting.
+     * Waiter granted the lock in the meantime takes it, as no deadlock is possible then
+     *
+     * @return description of deadlock, null if there is none or deadlocks are not detected
+     */
+    private String detectDeadlock(MutexWaiter waiter) {
+        if(deadlockDetector == null) {
+            return null;
+        }
+        String cycle = deadlockDetector.startedWaiting(this);
+        return cycle != null && waiter.cancel() ? cycle : null;
+    }
+
+    private void stopDeadlockDetection() {
+        if(deadlockDetector != null) {
+            deadlockDetector.stoppedWaiting();
+        }
+    }
+
+    /**
+     * Records outermost acquisition without waiting, called by new holder
+     */
+    private void acquired() {
+        if(metrics != null) {
+            acquiredNanos = System.nanoTime();
+            metrics.acquired();
+        }
+    }
+
+    /**
+     * Records outermost acquisition of queued waiter, called by new holder
+     * or by granting thread before asynchronous acquisition is completed
+     */
+    private void acquiredAfterWaiting(MutexWaiter waiter) {
+        if(metrics != null) {
+            acquiredNanos = System.nanoTime();
+            metrics.acquiredAfterWaiting(lock, waiter.queuedBehind, acquiredNanos - waiter.queuedNanos);
+        }
+    }
+
+    private Queue<MutexWaiter> waiters() {
+        Queue<MutexWaiter> queue = waiters;
+        if(queue == null) {
+            queue = new ConcurrentLinkedQueue<>();
+            if(not(WAITERS.compareAndSet(this, null, queue))) {
+                queue = waiters;
+            }
+        }
+        return queue;
+    }
+
+    boolean heldByCurrentThread() {
+        return holder == getCurrentThread();
+    }
+
+    /**
+     * Acquire attempt of thread that is not queued. In fair mode it can not overtake waiting threads
+     */
+    private boolean tryAcquireLock() {
+        if(fair && hasWaitingThreads()) {
+            return false;
+        }
+        return casHolder(getCurrentThread());
+    }
+
+    /**
+     * Acquire attempt of queued thread. In fair mode only first waiting thread can take free lock
+     */
+    private boolean tryAcquireLock(MutexWaiter waiter) {
+        if(waiter.isGranted()) {
+            takeGrantedLock();
+            return true;
+        }
+        if(fair && firstWaiting() != waiter) {
+            return false;
+        }
+        return casHolder(getCurrentThread());
+    }
+
+    private boolean casHolder(Object owner) {
+        if(lockAvailable() && HOLDER.compareAndSet(this, null, owner)) {
+            entranceCount = 1;
+            return true;
         }
         return false;
     }
 
-    protected boolean handleInterruption() {
-        return true;
+    /**
+     * Granted waiter may be woken up before granting thread published it as holder, window is only few instructions
+     */
+    private void takeGrantedLock() {
+        Thread currentThread = getCurrentThread();
+        while (holder != currentThread) {
+            Thread.yield();
+        }
     }
 
-    private void acquireState() {
-        waitingThreadsCount--;
-        entranceCount++;
-        holderThread = Thread.currentThread();
+    private boolean hasWaitingThreads() {
+        return firstWaiting() != null;
     }
 
-    private boolean tryReleasingState() {
-        boolean canNotify = false;
+    private MutexWaiter firstWaiting() {
+        Queue<MutexWaiter> queue = waiters;
+        if(queue != null) {
+            for (MutexWaiter waiter : queue) {
+                if(waiter.isWaiting()) {
+                    return waiter;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean lockAvailable() {
+        return holder == null;
+    }
+
+    protected boolean handleInterruption() {
+        return true;
+    }
+
+    private void tryReleasingState() {
         entranceCount--;
         if(entranceCount == 0) {
-            holderThread = null;
-            if(waitingThreadsCount == 0) {
-                locks.remove(lock);
-            } else {
-                canNotify = true;
+            if(metrics != null) {
+                metrics.released(lock, System.nanoTime() - acquiredNanos);
+            }
+            if(tryHandOff()) {
+                return;
             }
+            holder = null;
+            leave();
         } else if(entranceCount < 0) {
             throw new IllegalStateException("Entrance count should never be less than 0");
         }
-        return canNotify;
     }
 
-    private void notifyLockAvailable() {
-        notify();
+    /**
+     * Passes the lock directly to first waiter, lock is never free in between so no thread can overtake.
+     * Without fairness only asynchronous waiter gets the lock this way, parked thread is not woken up for it.
+     * Granted waiter is still registered user, so releasing thread never retires the mutex here
+     *
+     * @return false if lock was not handed over
+     */
+    private boolean tryHandOff() {
+        Queue<MutexWaiter> queue = waiters;
+        if(queue == null) {
+            return false;
+        }
+        for (MutexWaiter waiter : queue) {
+            if(not(waiter.isWaiting())) {
+                continue;
+            }
+            if(not(fair) && not(waiter.isAsync())) {
+                return false;
+            }
+            if(waiter.grant()) {
+                entranceCount = 1;
+                if(waiter.isAsync()) {
+                    acquiredAfterWaiting(waiter);
+                }
+                holder = waiter.getOwner();
+                USERS.decrementAndGet(this);
+                removeIfAsync(queue, waiter);
+                waiter.wake();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waiting thread removes itself from the queue once it wakes up, asynchronous waiter has to be removed
+     * by granting thread
+     */
+    private void removeIfAsync(Queue<MutexWaiter> queue, MutexWaiter waiter) {
+        if(waiter.isAsync()) {
+            dequeue(queue, waiter);
+        }
     }
 
+    /**
+     * Unregisters user, last user retires the mutex. Otherwise first waiter is signalled,
+     * so wakeup consumed by user that gave up waiting is passed on
+     */
+    private void leave() {
+        for (;;) {
+            int currentUsers = users;
+            if(currentUsers == 1) {
+                if(USERS.compareAndSet(this, 1, RETIRED)) {
+                    if(metrics != null) {
+                        metrics.mutexRetired();
+                    }
+                    unregister();
+                    recycle();
+                    return;
+                }
+            } else if(USERS.compareAndSet(this, currentUsers, currentUsers - 1)) {
+                signalFirstWaiter();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Retired mutex is not used by retiring thread anymore, other threads may still reference it
+     * but can not join it until it is registered again
+     */
+    private void recycle() {
+        if(pool != null) {
+            pool.recycle(this);
+        }
+    }
+
+    /**
+     * Only first waiter is woken up, it competes for the lock with threads that did not have to wait yet.
+     * Woken thread that loses stays first in the queue and parks again.
+     * Asynchronous waiter can not compete by itself, free lock is taken on its behalf
+     */
+    private void signalFirstWaiter() {
+        Queue<MutexWaiter> queue = waiters;
+        if(queue == null) {
+            return;
+        }
+        Thread currentThread = getCurrentThread();
+        for (MutexWaiter waiter : queue) {
+            if(waiter.isWaiting() && waiter.getOwner() != currentThread) {
+                if(not(waiter.isAsync())) {
+                    waiter.wake();
+                } else if(casHolder(waiter.getOwner())) {
+                    if(waiter.grant()) {
+                        acquiredAfterWaiting(waiter);
+                        dequeue(queue, waiter);
+                        waiter.wake();
+                    } else {
+                        holder = null;
+                        signalFirstWaiter();
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return thread that holds the mutex, null if mutex is free or held by asynchronous acquisition
+     */
     protected Thread getHolderThread() {
-        return holderThread;
+        Object currentHolder = holder;
+        return currentHolder instanceof Thread ? (Thread) currentHolder : null;
     }
 
     protected boolean noWaitingThreads() {
-        return waitingThreadsCount == 0;
+        return getWaitingThreadsCount() == 0;
     }
 
     protected int getEntranceCount() {
@@ -159,11 +1033,18 @@ public class ReentrantMutex implements Mutex {
     }
 
     protected int getWaitingThreadsCount() {
-        return waitingThreadsCount;
+        int currentUsers = users;
+        if(currentUsers == RETIRED || currentUsers == UNPUBLISHED) {
+            return 0;
+        }
+        return lockAvailable() ? currentUsers : currentUsers - 1;
     }
 
+    /**
+     * Unregisters waiting thread that gave up acquiring the lock
+     */
     protected void decreaseWaitingThreadsCount() {
-        waitingThreadsCount--;
+        leave();
     }
 
     private Thread getCurrentThread() {
@@ -174,9 +1055,9 @@ public class ReentrantMutex implements Mutex {
     public String toString() {
         return "ReentrantMutex{" +
                 "lock=" + lock +
-                ", holderThread=" + holderThread +
+                ", holder=" + holder +
                 ", entranceCount=" + entranceCount +
-                ", waitingThreadsCount=" + waitingThreadsCount +
+                ", waitingThreadsCount=" + getWaitingThreadsCount() +
                 '}';
     }
 
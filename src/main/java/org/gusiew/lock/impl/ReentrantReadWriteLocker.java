@@ -0,0 +1,113 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.api.ReadWriteLocker;
+import org.gusiew.lock.impl.util.StripedMap;
+
+/**
+ * Implementation of {@link ReadWriteLocker} with same registry and auto removal semantics as {@link ReentrantLocker}
+ *
+ * <ul>
+ *   <li>Any number of threads can hold read lock, write lock is exclusive</li>
+ *   <li>Read and write locks are reentrant, each needs to be released same number of times as acquired</li>
+ *   <li>Writer can acquire read lock (downgrade), reader can not acquire write lock,
+ *       {@link IllegalStateException} is thrown instead of deadlock</li>
+ *   <li>With writer preference new readers wait while writer waits, so writers do not starve on read heavy values.
+ *       Without it readers enter whenever write lock is not held</li>
+ *   <li>Does not react to interruptions but propagates the status</li>
+ *   <li>Mutex is removed from lock registry when no thread holds or waits for any of its locks</li>
+ *   <li>Optimistic read does not touch lock registry and does not create mutex, it reads single version word.
+ *       Versions are kept per group of values, so write lock on other value of the group may fail validation</li>
+ * </ul>
+ * <p>Assumes that value is immutable
+ */
+@ThreadSafe
+public class ReentrantReadWriteLocker implements ReadWriteLocker {
+
+    private static final int DEFAULT_NUMBER_OF_STRIPES = 16;
+    private static final int STAMP_SLOTS_PER_STRIPE = 4;
+
+    /**
+     * See {@link StripedMap} for concurrency guarantees
+     */
+    private final StripedMap<Object, ReadWriteMutex> locks;
+    private final boolean writerPreferred;
+    private final WriteStamps writeStamps;
+
+    /**
+     * Default constructor, sets concurrency level to 16 and prefers writers
+     */
+    public ReentrantReadWriteLocker() {
+        this(DEFAULT_NUMBER_OF_STRIPES, true);
+    }
+
+    /**
+     * @param concurrencyLevel concurrency level to set, see {@link ReentrantLocker}
+     * @param writerPreferred true if new readers should wait while writer waits
+     */
+    public ReentrantReadWriteLocker(int concurrencyLevel, boolean writerPreferred) {
+        this.locks = new StripedMap<>(concurrencyLevel);
+        this.writerPreferred = writerPreferred;
+        this.writeStamps = new WriteStamps(locks.getNumberOfStripes() * STAMP_SLOTS_PER_STRIPE);
+    }
+
+    @Override
+    public Mutex readLock(final Object value) {
+        ReadWriteMutex readWriteMutex = join(value);
+        setInterruptionOnThreadIfNeeded(readWriteMutex.acquireReadLock());
+        return readWriteMutex.getReadMutex();
+    }
+
+    @Override
+    public Mutex writeLock(final Object value) {
+        ReadWriteMutex readWriteMutex = join(value);
+        setInterruptionOnThreadIfNeeded(readWriteMutex.acquireWriteLock());
+        return readWriteMutex.getWriteMutex();
+    }
+
+    @Override
+    public long tryOptimisticRead(final Object value) {
+        validate(value);
+        return writeStamps.tryOptimisticRead(value);
+    }
+
+    @Override
+    public boolean validate(final Object value, long stamp) {
+        validate(value);
+        return writeStamps.validate(value, stamp);
+    }
+
+    private void validate(Object value) {
+        if(value == null) {
+            throw new NullPointerException();
+        }
+    }
+
+    private ReadWriteMutex join(final Object value) {
+        validate(value);
+
+        for (;;) {
+            ReadWriteMutex readWriteMutex = locks.get(value);
+            if (readWriteMutex == null) {
+                readWriteMutex = new ReadWriteMutex(value, locks, writerPreferred, writeStamps);
+                ReadWriteMutex activeMutex = locks.putIfAbsent(readWriteMutex.getLock(), readWriteMutex);
+                if (activeMutex != null) {
+                    readWriteMutex = activeMutex;
+                }
+            }
+
+            if (readWriteMutex.tryJoin()) {
+                return readWriteMutex;
+            }
+
+            readWriteMutex.helpRemoveRetired();
+        }
+    }
+
+    private void setInterruptionOnThreadIfNeeded(boolean wasInterrupted) {
+        if(wasInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
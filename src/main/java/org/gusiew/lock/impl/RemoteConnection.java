@@ -0,0 +1,186 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection of {@link RemoteLocker} to {@link LockServer}, shared by all threads of the locker.
+ * <p>Requests are pipelined: thread sends its request and waits only for its own response,
+ * responses are read by reader thread and matched to requests by id.
+ * <p>With batching, requests are queued and thread that finds no other thread writing writes all queued requests
+ * with single write, including requests other threads queued in meantime. Thread that finds other thread writing
+ * leaves its request to it. Without batching each thread writes its own request
+ */
+@ThreadSafe
+final class RemoteConnection implements Closeable {
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = LockProtocol.RESPONSE_SIZE * 1024;
+
+    private final SocketChannel channel;
+    private final boolean batching;
+    private final Queue<ByteBuffer> queued = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean writing = new AtomicBoolean();
+    @GuardedBy("writing")
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    /**
+     * Requests waiting for response by id
+     */
+    private final Map<Long, CompletableFuture<Boolean>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+    private volatile boolean closed;
+
+    RemoteConnection(InetSocketAddress address, boolean batching) throws IOException {
+        this.channel = SocketChannel.open(address);
+        this.batching = batching;
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Thread reader = new Thread(this::read, "lock-client-" + address);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    long nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    /**
+     * @param timeoutNanos {@link ReentrantMutex#NO_TIMEOUT} to wait until value is locked
+     * @return future completed with true when lock is granted, false when request timed out
+     * @throws IllegalStateException if connection is closed
+     */
+    CompletableFuture<Boolean> lock(long id, ByteBuffer value, long timeoutNanos) {
+        CompletableFuture<Boolean> granted = new CompletableFuture<>();
+        pending.put(id, granted);
+        if(closed) {
+            pending.remove(id);
+            throw closedException(null);
+        }
+        send(timeoutNanos == ReentrantMutex.NO_TIMEOUT
+                ? LockProtocol.lock(id, value) : LockProtocol.tryLock(id, timeoutNanos, value));
+        return granted;
+    }
+
+    void release(long id) {
+        send(LockProtocol.release(id));
+    }
+
+    /**
+     * Stops waiting for request whose future was cancelled. Grant that arrives anyway is released
+     */
+    void cancel(long id) {
+        pending.remove(id);
+        send(LockProtocol.cancel(id));
+    }
+
+    private void send(ByteBuffer request) {
+        if(closed) {
+            throw closedException(null);
+        }
+        try {
+            if(batching) {
+                queued.add(request);
+                while (writing.compareAndSet(false, true)) {
+                    try {
+                        writeQueued();
+                    } finally {
+                        writing.set(false);
+                    }
+                    //Requests queued after last check are written by this thread, their senders did not wait
+                    if(queued.isEmpty()) {
+                        break;
+                    }
+                }
+            } else {
+                synchronized (channel) {
+                    writeFully(request);
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw closedException(e);
+        }
+    }
+
+    @GuardedBy("writing")
+    private void writeQueued() throws IOException {
+        while (!queued.isEmpty()) {
+            writeBuffer.clear();
+            ByteBuffer request;
+            while ((request = queued.peek()) != null && request.remaining() <= writeBuffer.remaining()) {
+                writeBuffer.put(queued.poll());
+            }
+            writeBuffer.flip();
+            writeFully(writeBuffer);
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void read() {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        IOException failure = null;
+        try {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.remaining() >= LockProtocol.RESPONSE_SIZE) {
+                    byte status = buffer.get();
+                    responded(buffer.getLong(), status == LockProtocol.GRANTED);
+                }
+                buffer.compact();
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            close();
+            for (CompletableFuture<Boolean> granted : pending.values()) {
+                granted.completeExceptionally(closedException(failure));
+            }
+            pending.clear();
+        }
+    }
+
+    /**
+     * Grant that nobody waits for anymore (request was cancelled) is released right away
+     */
+    private void responded(long id, boolean granted) {
+        CompletableFuture<Boolean> future = pending.remove(id);
+        if((future == null || !future.complete(granted)) && granted && !closed) {
+            release(id);
+        }
+    }
+
+    /**
+     * Server releases all locks of closed connection
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            //Nothing to release anymore
+        }
+    }
+
+    private static IllegalStateException closedException(IOException cause) {
+        return new IllegalStateException("Connection to lock server closed", cause);
+    }
+}
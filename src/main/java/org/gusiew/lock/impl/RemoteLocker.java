@@ -0,0 +1,148 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.api.Locker;
+import org.gusiew.lock.api.Mutex;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Implementation of {@link Locker} that locks values on {@link LockServer}, so they are locked across
+ * all processes connected to the server.
+ * <ul>
+ *   <li>Threads of this process queue for a value in {@link ReentrantLocker}, only the thread that holds it locally
+ *       asks the server. Locks are reentrant and mutexes have same release contract as {@link ReentrantMutex}</li>
+ *   <li>All threads share one connection, requests are pipelined: thread waits only for its own response.
+ *       Requests of concurrent threads are written together in batches, see {@link #RemoteLocker(InetSocketAddress, boolean)}</li>
+ *   <li>Release is sent without waiting for the server, so lock costs one round trip and release none</li>
+ *   <li>Values are strings, integers, longs or byte arrays, see {@link LockProtocol}</li>
+ *   <li>If connection is closed, server releases all locks of this locker. Waiting threads and later
+ *       operations fail with {@link IllegalStateException}</li>
+ * </ul>
+ */
+@ThreadSafe
+public class RemoteLocker extends TwoLevelLocker<ByteBuffer> implements Closeable {
+
+    private final RemoteConnection connection;
+    /**
+     * Request ids of locks held on the server by encoded value, changed only by holder of local lock
+     */
+    private final Map<ByteBuffer, Long> remoteIds = new ConcurrentHashMap<>();
+
+    /**
+     * Connects with batching of requests
+     */
+    public RemoteLocker(InetSocketAddress address) throws IOException {
+        this(address, true);
+    }
+
+    /**
+     * @param batching true if thread that writes requests writes also requests queued by other threads
+     *                 in meantime, false if each thread writes its own request with separate write
+     */
+    public RemoteLocker(InetSocketAddress address, boolean batching) throws IOException {
+        this.connection = new RemoteConnection(address, batching);
+    }
+
+    @Override
+    ByteBuffer keyOf(Object value) {
+        return LockProtocol.encodeValue(value);
+    }
+
+    @Override
+    boolean acquireOuter(ByteBuffer value, long timeoutNanos, boolean interruptible) throws InterruptedException {
+        long id = connection.nextId();
+        boolean acquired = await(id, connection.lock(id, value, timeoutNanos), interruptible);
+        if(acquired) {
+            remoteIds.put(value, id);
+        }
+        return acquired;
+    }
+
+    /**
+     * Interrupted thread cancels the request, or releases the lock if it was granted in meantime
+     */
+    private boolean await(long id, CompletableFuture<Boolean> granted, boolean interruptible) throws InterruptedException {
+        boolean interrupted = false;
+        try {
+            for (;;) {
+                try {
+                    return granted.get();
+                } catch (InterruptedException e) {
+                    if(!interruptible) {
+                        interrupted = true;
+                        continue;
+                    }
+                    if(granted.cancel(false)) {
+                        connection.cancel(id);
+                    } else if(!granted.isCompletedExceptionally() && granted.join()) {
+                        connection.release(id);
+                    }
+                    throw e;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Lock request failed", e.getCause());
+                }
+            }
+        } finally {
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Request is sent without blocking and the future is completed when the server grants the lock.
+     * Cancelling the future cancels pending request
+     */
+    @Override
+    void acquireOuterAsync(ByteBuffer value, Mutex localMutex, CompletableFuture<Mutex> future, Executor executor) {
+        long id = connection.nextId();
+        CompletableFuture<Boolean> granted;
+        try {
+            granted = connection.lock(id, value, ReentrantMutex.NO_TIMEOUT);
+        } catch (RuntimeException e) {
+            localMutex.release();
+            future.completeExceptionally(e);
+            return;
+        }
+        future.whenComplete((mutex, cancelled) -> {
+            if(future.isCancelled() && granted.cancel(false)) {
+                connection.cancel(id);
+            }
+        });
+        granted.whenComplete((acquired, grantFailure) -> {
+            if(grantFailure != null) {
+                localMutex.release();
+                future.completeExceptionally(grantFailure);
+                return;
+            }
+            remoteIds.put(value, id);
+            Mutex mutex = TwoLevelMutex.async(this, value, localMutex);
+            execute(executor, () -> complete(future, mutex), mutex, future);
+        });
+    }
+
+    @Override
+    void releaseOuter(ByteBuffer value) {
+        Long id = remoteIds.remove(value);
+        if(id != null) {
+            connection.release(id);
+        }
+    }
+
+    /**
+     * Closes connection, server releases all locks held by this locker
+     */
+    @Override
+    public void close() {
+        connection.close();
+    }
+}
@@ -0,0 +1,116 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.api.KeyedExecutor;
+import org.gusiew.lock.impl.util.StripedMap;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Implementation of {@link KeyedExecutor} that runs tasks of each value serially on shared executor
+ *
+ * <ul>
+ *   <li>No thread waits for a value, tasks wait in per value queue instead</li>
+ *   <li>Value queue is drained by single executor task at a time, in batches,
+ *       so single hot value does not occupy executor thread forever</li>
+ *   <li>Queue is registered in {@link StripedMap} while it has pending tasks and removed after last one,
+ *       same as {@link ReentrantMutex} is removed after last user</li>
+ *   <li>If executor rejects a new value queue, caller gets {@link RejectedExecutionException} and tasks
+ *       enqueued for the value in meantime are rejected too. Executor that rejects next batch of draining queue
+ *       does not stop it, thread that drained previous batch continues</li>
+ * </ul>
+ * <p>Assumes that value is immutable
+ */
+@ThreadSafe
+public class SerialKeyedExecutor implements KeyedExecutor {
+
+    private static final int DEFAULT_NUMBER_OF_STRIPES = 16;
+
+    /**
+     * See {@link StripedMap} for concurrency guarantees
+     */
+    private final StripedMap<Object, SerialTaskQueue> queues;
+    private final Executor executor;
+
+    /**
+     * @param executor executor that runs the tasks, sets concurrency level to 16
+     */
+    public SerialKeyedExecutor(Executor executor) {
+        this(executor, DEFAULT_NUMBER_OF_STRIPES);
+    }
+
+    /**
+     * @param executor executor that runs the tasks
+     * @param concurrencyLevel concurrency level to set, see {@link ReentrantLocker}
+     */
+    public SerialKeyedExecutor(Executor executor, int concurrencyLevel) {
+        this.executor = executor;
+        this.queues = new StripedMap<>(concurrencyLevel);
+    }
+
+    @Override
+    public void execute(final Object value, final Runnable task) {
+        if(value == null || task == null) {
+            throw new NullPointerException();
+        }
+
+        for (;;) {
+            SerialTaskQueue queue = queues.get(value);
+            if (queue == null) {
+                queue = new SerialTaskQueue(value, task, queues, executor);
+                if (queues.putIfAbsent(value, queue) == null) {
+                    queue.start();
+                    return;
+                }
+                continue;
+            }
+
+            if (queue.tryEnqueue(task)) {
+                return;
+            }
+
+            queue.helpRemoveRetired();
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submit(final Object value, final Callable<T> task) {
+        if(task == null) {
+            throw new NullPointerException();
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        execute(value, new SubmittedTask<>(task, future));
+        return future;
+    }
+
+    /**
+     * Completes future of submitted task, also when task is rejected
+     */
+    private static final class SubmittedTask<T> implements SerialTaskQueue.RejectableTask {
+
+        private final Callable<T> task;
+        private final CompletableFuture<T> future;
+
+        private SubmittedTask(Callable<T> task, CompletableFuture<T> future) {
+            this.task = task;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            try {
+                future.complete(task.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+
+        @Override
+        public void reject(RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
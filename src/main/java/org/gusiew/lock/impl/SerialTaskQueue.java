@@ -0,0 +1,187 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.impl.util.StripedMap;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import static org.gusiew.lock.impl.util.ConditionUtil.not;
+
+/**
+ * Tasks of single value of {@link SerialKeyedExecutor}, drained by at most one executor task at a time
+ * <p>Pending counter plays the role of {@link ReentrantMutex} users: it counts queued and running tasks,
+ * task that finishes as the last one retires the queue and removes it from active queues.
+ * Retired queue does not accept tasks anymore
+ * <p>Once queue is draining, executor that rejects next batch does not stop it: current executor thread
+ * goes on with next batch. If executor rejects the queue when it starts, queue is retired
+ * and tasks enqueued in meantime are rejected, see {@link #start()}
+ */
+@ThreadSafe
+final class SerialTaskQueue implements Runnable {
+
+    private static final int RETIRED = -1;
+    private static final int TASKS_PER_BATCH = 64;
+
+    private static final AtomicIntegerFieldUpdater<SerialTaskQueue> PENDING =
+            AtomicIntegerFieldUpdater.newUpdater(SerialTaskQueue.class, "pending");
+
+    private final Object value;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final StripedMap<Object, SerialTaskQueue> queues;
+    private final Executor executor;
+
+    private volatile int pending;
+
+    SerialTaskQueue(Object value, Runnable firstTask, StripedMap<Object, SerialTaskQueue> queues, Executor executor) {
+        this.value = value;
+        this.queues = queues;
+        this.executor = executor;
+        this.tasks.add(firstTask);
+        this.pending = 1;
+    }
+
+    /**
+     * Schedules draining of newly registered queue
+     *
+     * @throws RejectedExecutionException if executor rejects the queue, queue is retired then.
+     *                                    First task is not run, other tasks enqueued in meantime
+     *                                    are rejected with the same exception
+     */
+    void start() {
+        try {
+            executor.execute(this);
+        } catch (RejectedExecutionException e) {
+            int enqueued = retire();
+            queues.remove(value, this);
+            nextTask();
+            for (int i = 1; i < enqueued; i++) {
+                reject(nextTask(), e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return number of tasks pending when queue was retired
+     */
+    private int retire() {
+        for (;;) {
+            int currentPending = pending;
+            if(PENDING.compareAndSet(this, currentPending, RETIRED)) {
+                return currentPending;
+            }
+        }
+    }
+
+    /**
+     * Rejected task of {@link SerialKeyedExecutor#submit} completes its future exceptionally,
+     * rejection of other task is passed to uncaught exception handler of current thread
+     */
+    private static void reject(Runnable task, RejectedExecutionException e) {
+        if(task instanceof RejectableTask) {
+            ((RejectableTask) task).reject(e);
+        } else {
+            Thread currentThread = Thread.currentThread();
+            currentThread.getUncaughtExceptionHandler().uncaughtException(currentThread, e);
+        }
+    }
+
+    /**
+     * Adds task to queue that is being drained
+     *
+     * @return false if queue is retired, other queue has to be used
+     */
+    boolean tryEnqueue(Runnable task) {
+        int currentPending;
+        do {
+            currentPending = pending;
+            if(currentPending == RETIRED) {
+                return false;
+            }
+        } while (not(PENDING.compareAndSet(this, currentPending, currentPending + 1)));
+        tasks.add(task);
+        return true;
+    }
+
+    /**
+     * Removes retired queue from active queues in case retiring thread did not do it yet
+     */
+    void helpRemoveRetired() {
+        queues.remove(value, this);
+    }
+
+    @Override
+    public void run() {
+        for (;;) {
+            for (int i = 0; i < TASKS_PER_BATCH; i++) {
+                runSafely(nextTask());
+                if(finishTask()) {
+                    return;
+                }
+            }
+            try {
+                executor.execute(this);
+                return;
+            } catch (RejectedExecutionException e) {
+                //Current executor thread drains next batch itself
+            }
+        }
+    }
+
+    /**
+     * Pending counter is increased before task is added, so task that is counted may not be visible yet
+     */
+    private Runnable nextTask() {
+        Runnable task;
+        while ((task = tasks.poll()) == null) {
+            Thread.yield();
+        }
+        return task;
+    }
+
+    private void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            Thread currentThread = Thread.currentThread();
+            currentThread.getUncaughtExceptionHandler().uncaughtException(currentThread, t);
+        }
+    }
+
+    /**
+     * @return true if it was the last pending task and queue is retired
+     */
+    private boolean finishTask() {
+        for (;;) {
+            int currentPending = pending;
+            if(currentPending == 1) {
+                if(PENDING.compareAndSet(this, 1, RETIRED)) {
+                    queues.remove(value, this);
+                    return true;
+                }
+            } else if(PENDING.compareAndSet(this, currentPending, currentPending - 1)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Task that can be told it will not run
+     */
+    interface RejectableTask extends Runnable {
+
+        void reject(RejectedExecutionException e);
+    }
+
+    @Override
+    public String toString() {
+        return "SerialTaskQueue{" +
+                "value=" + value +
+                ", pending=" + pending +
+                '}';
+    }
+}
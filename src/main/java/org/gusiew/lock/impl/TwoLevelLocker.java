@@ -0,0 +1,218 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.api.Locker;
+import org.gusiew.lock.api.Mutex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Base of lockers that lock values across processes, {@link MappedFileLocker} and {@link RemoteLocker}.
+ * <p>Value is locked in two levels: threads of this process queue for the key of the value in {@link ReentrantLocker},
+ * only the thread that holds the key locally takes the outer lock shared with other processes.
+ * Outer lock is released on outermost release of the local mutex, see {@link TwoLevelMutex}.
+ * Locks are reentrant and mutexes have same release contract as {@link ReentrantMutex}
+ *
+ * @param <K> key of value in both levels, keys are ordered same way in all processes
+ */
+@ThreadSafe
+abstract class TwoLevelLocker<K extends Comparable<K>> implements Locker {
+
+    /**
+     * Serializes threads of this process that lock the same key
+     */
+    private final ReentrantLocker localLocker = new ReentrantLocker();
+
+    /**
+     * @throws NullPointerException if value is null
+     */
+    abstract K keyOf(Object value);
+
+    /**
+     * Takes the outer lock of the key, called by thread that holds the key locally for the first time
+     *
+     * @param timeoutNanos maximum time to wait, zero to not wait, {@link ReentrantMutex#NO_TIMEOUT} to wait until taken
+     * @param interruptible false if waiting thread ignores interrupts
+     * @return false if waiting time elapsed
+     */
+    abstract boolean acquireOuter(K key, long timeoutNanos, boolean interruptible) throws InterruptedException;
+
+    /**
+     * Takes the outer lock of the key for asynchronous acquisition that holds the key locally, must not block.
+     * Future is completed by {@link #complete}, or exceptionally once local mutex is released
+     */
+    abstract void acquireOuterAsync(K key, Mutex localMutex, CompletableFuture<Mutex> future, Executor executor);
+
+    /**
+     * Called by holder of local lock on outermost release
+     */
+    abstract void releaseOuter(K key);
+
+    @Override
+    public Mutex lock(final Object value) {
+        return lockKey(keyOf(value));
+    }
+
+    private Mutex lockKey(K key) {
+        ReentrantMutex localMutex = localLocker.lock(key);
+        if(localMutex.getEntranceCount() == 1) {
+            acquireOuterUninterruptiblyOrRelease(key, localMutex, ReentrantMutex.NO_TIMEOUT);
+        }
+        return new TwoLevelMutex<>(this, key, localMutex);
+    }
+
+    @Override
+    public Mutex tryLock(final Object value) {
+        K key = keyOf(value);
+        ReentrantMutex localMutex = localLocker.tryLock(key);
+        if(localMutex == null) {
+            return null;
+        }
+        if(localMutex.getEntranceCount() == 1 && !acquireOuterUninterruptiblyOrRelease(key, localMutex, 0)) {
+            return null;
+        }
+        return new TwoLevelMutex<>(this, key, localMutex);
+    }
+
+    @Override
+    public Mutex tryLock(final Object value, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + ReentrantMutex.timeoutNanos(timeout, unit);
+        K key = keyOf(value);
+        ReentrantMutex localMutex = localLocker.tryLock(key, timeout, unit);
+        if(localMutex == null) {
+            return null;
+        }
+        if(localMutex.getEntranceCount() == 1
+                && !acquireOuterOrRelease(key, localMutex, Math.max(deadline - System.nanoTime(), 0), true)) {
+            return null;
+        }
+        return new TwoLevelMutex<>(this, key, localMutex);
+    }
+
+    @Override
+    public Mutex lockInterruptibly(final Object value) throws InterruptedException {
+        K key = keyOf(value);
+        ReentrantMutex localMutex = localLocker.lockInterruptibly(key);
+        if(localMutex.getEntranceCount() == 1) {
+            acquireOuterOrRelease(key, localMutex, ReentrantMutex.NO_TIMEOUT, true);
+        }
+        return new TwoLevelMutex<>(this, key, localMutex);
+    }
+
+    /**
+     * @return false if waiting time elapsed, local mutex is released then
+     */
+    private boolean acquireOuterOrRelease(K key, Mutex localMutex, long timeoutNanos, boolean interruptible)
+            throws InterruptedException {
+        boolean acquired = false;
+        try {
+            acquired = acquireOuter(key, timeoutNanos, interruptible);
+            return acquired;
+        } finally {
+            if(!acquired) {
+                localMutex.release();
+            }
+        }
+    }
+
+    private boolean acquireOuterUninterruptiblyOrRelease(K key, Mutex localMutex, long timeoutNanos) {
+        try {
+            return acquireOuterOrRelease(key, localMutex, timeoutNanos, false);
+        } catch (InterruptedException e) {
+            //Not thrown when waiting is not interruptible
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Keys are locked one by one in their order, which is same in all processes.
+     * Values of equal keys are locked once
+     */
+    @Override
+    public Mutex lockAll(final Collection<?> values) {
+        SortedSet<K> ordered = new TreeSet<>();
+        for (Object value : values) {
+            ordered.add(keyOf(value));
+        }
+        List<Mutex> acquired = new ArrayList<>(ordered.size());
+        try {
+            for (K key : ordered) {
+                acquired.add(lockKey(key));
+            }
+        } catch (RuntimeException | Error e) {
+            new CompositeMutex(acquired).release();
+            throw e;
+        }
+        return new CompositeMutex(acquired);
+    }
+
+    /**
+     * Waits for other threads of this process without blocking, outer lock is taken once key is locked
+     * in this process, see {@link #acquireOuterAsync}
+     */
+    @Override
+    public CompletableFuture<Mutex> lockAsync(final Object value, final Executor executor) {
+        K key = keyOf(value);
+        CompletableFuture<Mutex> future = new CompletableFuture<>();
+        localLocker.lockAsync(key, Runnable::run).whenComplete((localMutex, failure) -> {
+            if(failure != null) {
+                future.completeExceptionally(failure);
+                return;
+            }
+            if(future.isDone()) {
+                localMutex.release();
+                return;
+            }
+            acquireOuterAsync(key, localMutex, future, executor);
+        });
+        return future;
+    }
+
+    /**
+     * Completes asynchronous acquisition with mutex created by {@link TwoLevelMutex#async}.
+     * Locks are released if future was cancelled in meantime
+     */
+    static void complete(CompletableFuture<Mutex> future, Mutex mutex) {
+        if(!future.complete(mutex)) {
+            mutex.release();
+        }
+    }
+
+    /**
+     * Runs step of asynchronous acquisition on given executor. If executor rejects it,
+     * locks acquired so far are released and the future fails
+     */
+    static void execute(Executor executor, Runnable step, Mutex acquired, CompletableFuture<Mutex> future) {
+        try {
+            executor.execute(step);
+        } catch (RejectedExecutionException e) {
+            acquired.release();
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Operation is run by calling thread, operations are not combined
+     */
+    @Override
+    public <T> T combine(final Object value, final Function<Object, ? extends T> operation) {
+        if(operation == null) {
+            throw new NullPointerException();
+        }
+        Mutex mutex = lock(value);
+        try {
+            return operation.apply(value);
+        } finally {
+            mutex.release();
+        }
+    }
+}
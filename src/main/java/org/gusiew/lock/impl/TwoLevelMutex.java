@@ -0,0 +1,78 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.api.Mutex;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mutex produced by {@link TwoLevelLocker}, holds both the outer lock of the key and the mutex of the key in this process.
+ * Outermost release releases the outer lock before the local mutex, so other processes can take it
+ * before the next thread of this process asks for it
+ *
+ * @param <K> key of locked value
+ */
+@ThreadSafe
+final class TwoLevelMutex<K extends Comparable<K>> implements Mutex {
+
+    private final TwoLevelLocker<K> locker;
+    private final K key;
+    private final Mutex localMutex;
+    /**
+     * Set when asynchronous acquisition is released, null for acquisitions owned by a thread
+     */
+    private final AtomicBoolean released;
+
+    TwoLevelMutex(TwoLevelLocker<K> locker, K key, ReentrantMutex localMutex) {
+        this(locker, key, localMutex, null);
+    }
+
+    private TwoLevelMutex(TwoLevelLocker<K> locker, K key, Mutex localMutex, AtomicBoolean released) {
+        this.locker = locker;
+        this.key = key;
+        this.localMutex = localMutex;
+        this.released = released;
+    }
+
+    /**
+     * @param localMutex mutex produced by {@link ReentrantLocker#lockAsync}, it is released once
+     */
+    static <K extends Comparable<K>> TwoLevelMutex<K> async(TwoLevelLocker<K> locker, K key, Mutex localMutex) {
+        return new TwoLevelMutex<>(locker, key, localMutex, new AtomicBoolean());
+    }
+
+    /**
+     * Same contract as {@link ReentrantMutex#release()}, local mutex is validated before the outer lock is released
+     *
+     * @throws IllegalStateException if outer lock was lost already, e.g. connection to lock server was closed
+     *                               or slot was taken over by other process, local mutex is released anyway
+     */
+    @Override
+    public void release() {
+        if(outermostRelease()) {
+            try {
+                locker.releaseOuter(key);
+            } finally {
+                localMutex.release();
+            }
+        } else {
+            localMutex.release();
+        }
+    }
+
+    private boolean outermostRelease() {
+        if(released != null) {
+            return released.compareAndSet(false, true);
+        }
+        ReentrantMutex reentrantMutex = (ReentrantMutex) localMutex;
+        return reentrantMutex.heldByCurrentThread() && reentrantMutex.getEntranceCount() == 1;
+    }
+
+    @Override
+    public String toString() {
+        return "TwoLevelMutex{" +
+                "key=" + key +
+                ", localMutex=" + localMutex +
+                '}';
+    }
+}
@@ -0,0 +1,101 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.Immutable;
+import org.gusiew.lock.impl.util.ThreadUtil;
+
+/**
+ * Standard {@link WaitStrategy} implementations
+ * <ul>
+ *   <li>{@link #park()} - parks right away, the default. Best when threads outnumber cores or locks are held long</li>
+ *   <li>{@link #busySpin(int)} - retries in a tight loop, lowest hand-over latency for cores dedicated to waiters</li>
+ *   <li>{@link #spinWait(int)} - retries with spin-wait hint, which lets sibling hardware thread run
+ *       and saves power. Same as busy spin on Java 8</li>
+ *   <li>{@link #yielding(int)} - yields the processor between retries, lets holder run if it was descheduled</li>
+ *   <li>{@link #adaptive()} - spins with spin-wait hint as long as spinning paid off recently on the same mutex.
+ *       Limit doubles when waiter got the lock while spinning and halves when it had to park,
+ *       so mutexes with short hold times are spun on and mutexes with long ones are not</li>
+ * </ul>
+ */
+public final class WaitStrategies {
+
+    static final int INITIAL_SPIN_LIMIT = 64;
+    private static final int MINIMUM_ADAPTIVE_SPIN_LIMIT = 4;
+    private static final int MAXIMUM_ADAPTIVE_SPIN_LIMIT = 1 << 14;
+
+    private static final WaitStrategy PARK = (attempt, spinLimit) -> false;
+    private static final WaitStrategy ADAPTIVE = new AdaptiveWaitStrategy();
+
+    private WaitStrategies() {
+    }
+
+    public static WaitStrategy park() {
+        return PARK;
+    }
+
+    /**
+     * @param spins retries before parking
+     */
+    public static WaitStrategy busySpin(int spins) {
+        validate(spins);
+        return (attempt, spinLimit) -> attempt < spins;
+    }
+
+    /**
+     * @param spins retries before parking
+     */
+    public static WaitStrategy spinWait(int spins) {
+        validate(spins);
+        return (attempt, spinLimit) -> {
+            if(attempt < spins) {
+                ThreadUtil.onSpinWait();
+                return true;
+            }
+            return false;
+        };
+    }
+
+    /**
+     * @param yields retries before parking
+     */
+    public static WaitStrategy yielding(int yields) {
+        validate(yields);
+        return (attempt, spinLimit) -> {
+            if(attempt < yields) {
+                Thread.yield();
+                return true;
+            }
+            return false;
+        };
+    }
+
+    public static WaitStrategy adaptive() {
+        return ADAPTIVE;
+    }
+
+    private static void validate(int spins) {
+        if(spins < 0) {
+            throw new IllegalArgumentException("Number of spins can not be negative");
+        }
+    }
+
+    @Immutable
+    private static final class AdaptiveWaitStrategy implements WaitStrategy {
+
+        @Override
+        public boolean spin(int attempt, int spinLimit) {
+            if(attempt < spinLimit) {
+                ThreadUtil.onSpinWait();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public int adapt(int spinLimit, boolean acquiredWhileSpinning) {
+            if(acquiredWhileSpinning) {
+                return Math.min(spinLimit * 2, MAXIMUM_ADAPTIVE_SPIN_LIMIT);
+            }
+            return Math.max(spinLimit / 2, MINIMUM_ADAPTIVE_SPIN_LIMIT);
+        }
+    }
+}
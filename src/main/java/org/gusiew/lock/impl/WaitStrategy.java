@@ -0,0 +1,32 @@
+package org.gusiew.lock.impl;
+
+/**
+ * Decides how thread queued for a held lock waits before it tries to acquire it again: spins and retries
+ * right away or parks until release wakes it up. See {@link WaitStrategies} for implementations.
+ * <p>Parking costs a sleep and wake-up round trip, which may be longer than critical section itself.
+ * Spinning saves it if lock is released soon, but burns CPU and delays the holder if threads outnumber cores.
+ * <p>Each mutex keeps a spin limit that strategy can learn, e.g. from how often spinning waiter got the lock.
+ * Limit is updated without synchronization, lost updates only slow down learning
+ */
+public interface WaitStrategy {
+
+    /**
+     * Called by queued thread after failed acquisition, before it parks
+     *
+     * @param attempt number of failed acquisitions since thread was queued, starting at 0
+     * @param spinLimit spin limit learned for the mutex, see {@link #adapt(int, boolean)}
+     * @return true if thread spun and should try to acquire again without parking, false to park
+     */
+    boolean spin(int attempt, int spinLimit);
+
+    /**
+     * Called by queued thread that acquired the lock
+     *
+     * @param spinLimit current spin limit of the mutex
+     * @param acquiredWhileSpinning true if thread acquired the lock without parking
+     * @return new spin limit of the mutex
+     */
+    default int adapt(int spinLimit, boolean acquiredWhileSpinning) {
+        return spinLimit;
+    }
+}
@@ -0,0 +1,69 @@
+package org.gusiew.lock.impl;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.impl.util.StripedMap;
+import org.gusiew.lock.impl.util.UnsafeUtil;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Versions of values guarded by write locks, used for optimistic reads of {@link ReentrantReadWriteLocker}
+ * <p>Values are hashed into fixed number of slots, so versions exist without any per value object and reading one
+ * does not write anything. Each slot is a single long: low 16 bits count write locks currently held on values
+ * of the slot, high bits count write lock acquisitions and releases. Every write lock acquisition and release
+ * changes the slot, so stamp taken before is not valid anymore.
+ * <p>Values sharing a slot invalidate each other stamps, which only makes optimistic read fall back to read lock.
+ * Slots are 64 bytes apart so that writers of different slots do not share cache lines
+ */
+@ThreadSafe
+final class WriteStamps {
+
+    private static final int SLOT_SPACING_SHIFT = 3;
+    private static final long WRITERS_MASK = 0xFFFFL;
+    private static final long WRITE_ACQUIRED = (1L << 16) + 1;
+    private static final long WRITE_RELEASED = (1L << 16) - 1;
+    private static final long INITIAL_VERSION = 1L << 16;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    /**
+     * @param numberOfSlots number of slots, rounded up to power of two
+     */
+    WriteStamps(int numberOfSlots) {
+        int roundedUp = numberOfSlots <= 1 ? 1 : Integer.highestOneBit(numberOfSlots - 1) << 1;
+        this.slots = new AtomicLongArray(roundedUp << SLOT_SPACING_SHIFT);
+        this.mask = roundedUp - 1;
+        for (int i = 0; i < roundedUp; i++) {
+            slots.set(i << SLOT_SPACING_SHIFT, INITIAL_VERSION);
+        }
+    }
+
+    /**
+     * @return stamp to validate later, or zero if write lock on the value (or other value of the slot) is held
+     */
+    long tryOptimisticRead(Object value) {
+        long slot = slots.get(indexOf(value));
+        return (slot & WRITERS_MASK) == 0 ? slot : 0L;
+    }
+
+    /**
+     * @return true if no write lock on the value was acquired since stamp was issued
+     */
+    boolean validate(Object value, long stamp) {
+        UnsafeUtil.loadFence();
+        return stamp != 0L && slots.get(indexOf(value)) == stamp;
+    }
+
+    void writeLocked(Object value) {
+        slots.addAndGet(indexOf(value), WRITE_ACQUIRED);
+    }
+
+    void writeUnlocked(Object value) {
+        slots.addAndGet(indexOf(value), WRITE_RELEASED);
+    }
+
+    private int indexOf(Object value) {
+        return (StripedMap.spread(value.hashCode()) & mask) << SLOT_SPACING_SHIFT;
+    }
+}
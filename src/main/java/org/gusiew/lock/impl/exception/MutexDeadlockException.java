@@ -0,0 +1,15 @@
+package org.gusiew.lock.impl.exception;
+
+import org.gusiew.lock.impl.DeadlockDetector;
+
+/**
+ * Thrown by lock of locker with {@link DeadlockDetector} to thread that would wait for lock in a cycle
+ * of threads that wait for each other. Thread does not wait and does not hold the value it tried to lock,
+ * locks it holds already are kept. See {@link DeadlockDetector} for more details
+ */
+public class MutexDeadlockException extends MutexException {
+
+    public MutexDeadlockException(String message) {
+        super(message);
+    }
+}
@@ -2,6 +2,14 @@ package org.gusiew.lock.impl.exception;
 
 /**
  * Base exception class for exceptions thrown during {@link org.gusiew.lock.impl.ReentrantMutex#release()}
+ * and by locking that can not succeed, see {@link MutexDeadlockException}
  */
 public abstract class MutexException extends RuntimeException {
+
+    protected MutexException() {
+    }
+
+    protected MutexException(String message) {
+        super(message);
+    }
 }
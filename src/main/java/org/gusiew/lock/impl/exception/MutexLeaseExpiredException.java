@@ -0,0 +1,11 @@
+package org.gusiew.lock.impl.exception;
+
+import org.gusiew.lock.impl.Leases;
+import org.gusiew.lock.impl.ReentrantMutex;
+
+/**
+ * Thrown by {@link ReentrantMutex#release()} to thread whose lease expired, the lock was taken from it
+ * and may be held by other thread already. See {@link Leases} for more details
+ */
+public class MutexLeaseExpiredException extends MutexException {
+}
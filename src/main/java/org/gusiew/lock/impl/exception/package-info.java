@@ -1,4 +1,6 @@
 /**
- * Exceptions thrown by {@link org.gusiew.lock.impl.ReentrantMutex#release()}
+ * Exceptions thrown by {@link org.gusiew.lock.impl.ReentrantMutex#release()}, including
+ * {@link org.gusiew.lock.impl.exception.MutexLeaseExpiredException} thrown to holder whose lease expired,
+ * and {@link org.gusiew.lock.impl.exception.MutexDeadlockException} thrown by lock when deadlock is detected
  */
-package org.gusiew.lock.impl.exception;
\ No newline at end of file
+package org.gusiew.lock.impl.exception;
@@ -1,8 +1,10 @@
 package org.gusiew.lock.impl.internal;
 
+import org.gusiew.lock.impl.MutexOptions;
 import org.gusiew.lock.impl.ReentrantMutex;
+import org.gusiew.lock.impl.util.CompactStripedMap;
 
 @FunctionalInterface
 public interface MutexFactory {
-    ReentrantMutex createAndLock(Object value);
+    ReentrantMutex createAndLock(Object value, CompactStripedMap<Object, ReentrantMutex> locks, MutexOptions options);
 }
@@ -0,0 +1,33 @@
+package org.gusiew.lock.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Thread acquired value lock after waiting for it, committed by acquiring thread
+ * (by releasing thread that handed the lock over to asynchronous acquisition)
+ */
+@Name("org.gusiew.lock.ContendedLock")
+@Label("Value Lock Contended")
+@Description("Value lock acquired after waiting for it")
+@Category({"Java Application", "Value Lock"})
+@StackTrace(true)
+class ContendedLockEvent extends Event {
+
+    @Label("Value")
+    @Description("String representation of the locked value")
+    String value;
+
+    @Label("Holder")
+    @Description("Thread that held the lock when waiting started")
+    Thread holder;
+
+    @Label("Wait Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long waitTime;
+}
@@ -0,0 +1,133 @@
+package org.gusiew.lock.impl.jfr;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.api.LockerMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LockerMetrics} that emits Java Flight Recorder events, so value lock contention shows up in recordings
+ * with the value, unlike built-in monitor events that only show the mutex:
+ * <ul>
+ *   <li>{@code org.gusiew.lock.ContendedLock} - lock acquired after waiting, with waiting and holding thread
+ *       and wait time</li>
+ *   <li>{@code org.gusiew.lock.LongHold} - lock released after it was held longer than threshold</li>
+ * </ul>
+ * Events are enabled in recording settings as any other JFR events. Value is converted to string only for
+ * event that is committed, when recording is off cost is the check of event state.
+ * <p>Other events are passed to delegate, so statistics can be recorded at the same time
+ * <p>Example
+ * <pre> {@code
+ *     LockerMetrics metrics = new JfrLockerMetrics(new LockerStatistics(), 10, TimeUnit.MILLISECONDS);
+ *     Locker l = ReentrantLocker.builder().metrics(metrics).build();
+ *  }
+ *  </pre>
+ */
+@ThreadSafe
+public class JfrLockerMetrics implements LockerMetrics {
+
+    private static final LockerMetrics NO_METRICS = new NoLockerMetrics();
+
+    private final LockerMetrics delegate;
+    private final long longHoldThresholdNanos;
+
+    /**
+     * @param delegate metrics all events are passed to as well, null if there are none
+     * @param longHoldThreshold minimum hold time of reported long hold
+     * @param unit unit of threshold
+     */
+    public JfrLockerMetrics(LockerMetrics delegate, long longHoldThreshold, TimeUnit unit) {
+        this.delegate = delegate == null ? NO_METRICS : delegate;
+        this.longHoldThresholdNanos = unit.toNanos(longHoldThreshold);
+    }
+
+    @Override
+    public void acquired() {
+        delegate.acquired();
+    }
+
+    @Override
+    public void acquiredAfterWaiting(Object value, Thread holder, long waitNanos) {
+        delegate.acquiredAfterWaiting(value, holder, waitNanos);
+        ContendedLockEvent event = new ContendedLockEvent();
+        if(event.shouldCommit()) {
+            event.value = String.valueOf(value);
+            event.holder = holder;
+            event.waitTime = waitNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void reentered() {
+        delegate.reentered();
+    }
+
+    @Override
+    public void released(Object value, long holdNanos) {
+        delegate.released(value, holdNanos);
+        if(holdNanos >= longHoldThresholdNanos) {
+            LongHoldEvent event = new LongHoldEvent();
+            if(event.shouldCommit()) {
+                event.value = String.valueOf(value);
+                event.holdTime = holdNanos;
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public void mutexActivated() {
+        delegate.mutexActivated();
+    }
+
+    @Override
+    public void mutexRetired() {
+        delegate.mutexRetired();
+    }
+
+    @Override
+    public void waitingStarted() {
+        delegate.waitingStarted();
+    }
+
+    @Override
+    public void waitingEnded() {
+        delegate.waitingEnded();
+    }
+
+    private static final class NoLockerMetrics implements LockerMetrics {
+
+        @Override
+        public void acquired() {
+        }
+
+        @Override
+        public void acquiredAfterWaiting(Object value, Thread holder, long waitNanos) {
+        }
+
+        @Override
+        public void reentered() {
+        }
+
+        @Override
+        public void released(Object value, long holdNanos) {
+        }
+
+        @Override
+        public void mutexActivated() {
+        }
+
+        @Override
+        public void mutexRetired() {
+        }
+
+        @Override
+        public void waitingStarted() {
+        }
+
+        @Override
+        public void waitingEnded() {
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.gusiew.lock.impl.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Value lock was held longer than threshold of {@link JfrLockerMetrics}, committed by releasing thread
+ */
+@Name("org.gusiew.lock.LongHold")
+@Label("Value Lock Long Hold")
+@Description("Value lock held longer than threshold")
+@Category({"Java Application", "Value Lock"})
+@StackTrace(true)
+class LongHoldEvent extends Event {
+
+    @Label("Value")
+    @Description("String representation of the locked value")
+    String value;
+
+    @Label("Hold Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long holdTime;
+}
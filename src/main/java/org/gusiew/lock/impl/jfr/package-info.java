@@ -0,0 +1,5 @@
+/**
+ * Java Flight Recorder events of value locks, see {@link org.gusiew.lock.impl.jfr.JfrLockerMetrics}.
+ * <p>Requires JDK with {@code jdk.jfr} (JDK 11 or 8u262 and later), classes are loaded only if used
+ */
+package org.gusiew.lock.impl.jfr;
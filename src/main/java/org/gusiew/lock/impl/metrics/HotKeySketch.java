@@ -0,0 +1,212 @@
+package org.gusiew.lock.impl.metrics;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Streaming top-K of values that threads waited for the longest, memory is fixed regardless of number of distinct values.
+ * <p>Wait times are added to Count-Min sketch, which estimates total wait time of any value with overestimation only.
+ * Space-Saving summary keeps {@code capacity} values with highest estimates: tracked value gets its new estimate,
+ * untracked value replaces tracked value with lowest estimate only if its own estimate is higher.
+ * Value that is hot stays tracked, value seen once does not push it out.
+ * <p>Only every {@code sampleRate}-th contended acquisition on average is recorded, so recording cost is shared.
+ * Shares are not affected by sampling, as all values are sampled equally.
+ * <p>Recording is synchronized, it is done by threads that already waited for the lock. Tracked values are retained
+ * until they are pushed out or sketch is reset, so they should be immutable
+ */
+@ThreadSafe
+public class HotKeySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MINIMUM_WIDTH = 256;
+    private static final int WIDTH_PER_TRACKED_VALUE = 32;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final int capacity;
+    private final int sampleRate;
+    private final int widthMask;
+
+    @GuardedBy("this")
+    private final long[][] estimates;
+    @GuardedBy("this")
+    private final Object[] trackedValues;
+    @GuardedBy("this")
+    private final long[] trackedEstimates;
+    @GuardedBy("this")
+    private int trackedCount;
+    @GuardedBy("this")
+    private long total;
+
+    /**
+     * Records every contended acquisition
+     *
+     * @param capacity number of hottest values tracked
+     */
+    public HotKeySketch(int capacity) {
+        this(capacity, 1);
+    }
+
+    /**
+     * @param capacity number of hottest values tracked
+     * @param sampleRate one in how many contended acquisitions is recorded on average
+     */
+    public HotKeySketch(int capacity, int sampleRate) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if(sampleRate <= 0) {
+            throw new IllegalArgumentException("Sample rate must be positive");
+        }
+        this.capacity = capacity;
+        this.sampleRate = sampleRate;
+        int width = Math.max(MINIMUM_WIDTH, Integer.highestOneBit(capacity * WIDTH_PER_TRACKED_VALUE - 1) << 1);
+        this.widthMask = width - 1;
+        this.estimates = new long[DEPTH][width];
+        this.trackedValues = new Object[capacity];
+        this.trackedEstimates = new long[capacity];
+    }
+
+    /**
+     * Records that thread waited for value, subject to sampling
+     */
+    public void record(Object value, long waitNanos) {
+        if(sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0) {
+            add(value, Math.max(waitNanos, 0));
+        }
+    }
+
+    private synchronized void add(Object value, long weight) {
+        total += weight;
+        long estimate = addToSketch(value.hashCode(), weight);
+        int tracked = indexOf(value);
+        if(tracked >= 0) {
+            trackedEstimates[tracked] = estimate;
+        } else if(trackedCount < capacity) {
+            trackedValues[trackedCount] = value;
+            trackedEstimates[trackedCount] = estimate;
+            trackedCount++;
+        } else {
+            int coldest = indexOfLowestEstimate();
+            if(estimate > trackedEstimates[coldest]) {
+                trackedValues[coldest] = value;
+                trackedEstimates[coldest] = estimate;
+            }
+        }
+    }
+
+    /**
+     * @return estimate of total weight of the hash after adding to it, lowest of all rows
+     */
+    private long addToSketch(int hash, long weight) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int column = mix(hash ^ SEEDS[row]) & widthMask;
+            estimates[row][column] += weight;
+            estimate = Math.min(estimate, estimates[row][column]);
+        }
+        return estimate;
+    }
+
+    private int indexOf(Object value) {
+        for (int i = 0; i < trackedCount; i++) {
+            if(trackedValues[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOfLowestEstimate() {
+        int lowest = 0;
+        for (int i = 1; i < trackedCount; i++) {
+            if(trackedEstimates[i] < trackedEstimates[lowest]) {
+                lowest = i;
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * murmur3 32 bit finalizer
+     */
+    private static int mix(int hash) {
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * @return tracked values, hottest first
+     */
+    public synchronized List<HotKey> getHotKeys() {
+        List<HotKey> hotKeys = new ArrayList<>(trackedCount);
+        for (int i = 0; i < trackedCount; i++) {
+            double share = total == 0 ? 0 : (double) trackedEstimates[i] / total;
+            hotKeys.add(new HotKey(trackedValues[i], trackedEstimates[i] * sampleRate, Math.min(share, 1)));
+        }
+        hotKeys.sort((first, second) -> Long.compare(second.getWaitNanos(), first.getWaitNanos()));
+        return Collections.unmodifiableList(hotKeys);
+    }
+
+    public synchronized void reset() {
+        for (long[] row : estimates) {
+            Arrays.fill(row, 0);
+        }
+        Arrays.fill(trackedValues, null);
+        Arrays.fill(trackedEstimates, 0);
+        trackedCount = 0;
+        total = 0;
+    }
+
+    /**
+     * Value with estimated wait time, estimate may exceed the real wait time but never falls below sampled one
+     */
+    @Immutable
+    public static final class HotKey {
+
+        private final Object value;
+        private final long waitNanos;
+        private final double waitShare;
+
+        HotKey(Object value, long waitNanos, double waitShare) {
+            this.value = value;
+            this.waitNanos = waitNanos;
+            this.waitShare = waitShare;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        /**
+         * @return estimated total time threads waited for the value, scaled by sample rate
+         */
+        public long getWaitNanos() {
+            return waitNanos;
+        }
+
+        /**
+         * @return estimated fraction of all recorded wait time spent waiting for the value, between 0 and 1
+         */
+        public double getWaitShare() {
+            return waitShare;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s %.1f%%", value, waitShare * 100);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.gusiew.lock.impl.metrics;
+
+import net.jcip.annotations.ThreadSafe;
+import org.gusiew.lock.api.LockerMetrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link LockerMetrics} that keeps counters in {@link LongAdder}s and times in {@link LatencyHistogram}s,
+ * so threads recording events do not contend with each other.
+ * <p>Example
+ * <pre> {@code
+ *     LockerStatistics statistics = new LockerStatistics();
+ *     Locker l = ReentrantLocker.builder().metrics(statistics).build();
+ *     statistics.registerMBean("orders");
+ *  }
+ *  </pre>
+ * Registered statistics are visible in JMX clients as {@code org.gusiew.lock:type=LockerStatistics,name=orders}
+ * <p>Values threads wait for the longest are tracked only if {@link HotKeySketch} is given
+ */
+@ThreadSafe
+public class LockerStatistics implements LockerMetrics, LockerStatisticsMXBean {
+
+    private static final String OBJECT_NAME_PREFIX = "org.gusiew.lock:type=LockerStatistics,name=";
+
+    private final LongAdder uncontendedAcquisitions = new LongAdder();
+    private final LongAdder reentrantAcquisitions = new LongAdder();
+    private final LongAdder activeMutexes = new LongAdder();
+    private final LongAdder waiters = new LongAdder();
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+    private final LatencyHistogram holdTime = new LatencyHistogram();
+    /**
+     * Null if hot values are not tracked
+     */
+    private final HotKeySketch hotKeys;
+
+    public LockerStatistics() {
+        this(null);
+    }
+
+    /**
+     * @param hotKeys sketch contended values are recorded to, null to not track hot values
+     */
+    public LockerStatistics(HotKeySketch hotKeys) {
+        this.hotKeys = hotKeys;
+    }
+
+    @Override
+    public void acquired() {
+        uncontendedAcquisitions.increment();
+    }
+
+    @Override
+    public void acquiredAfterWaiting(Object value, Thread holder, long waitNanos) {
+        waitTime.record(waitNanos);
+        if(hotKeys != null) {
+            hotKeys.record(value, waitNanos);
+        }
+    }
+
+    @Override
+    public void reentered() {
+        reentrantAcquisitions.increment();
+    }
+
+    @Override
+    public void released(Object value, long holdNanos) {
+        holdTime.record(holdNanos);
+    }
+
+    @Override
+    public void mutexActivated() {
+        activeMutexes.increment();
+    }
+
+    @Override
+    public void mutexRetired() {
+        activeMutexes.decrement();
+    }
+
+    @Override
+    public void waitingStarted() {
+        waiters.increment();
+    }
+
+    @Override
+    public void waitingEnded() {
+        waiters.decrement();
+    }
+
+    @Override
+    public long getAcquisitions() {
+        return uncontendedAcquisitions.sum() + reentrantAcquisitions.sum() + waitTime.getCount();
+    }
+
+    @Override
+    public long getReentrantAcquisitions() {
+        return reentrantAcquisitions.sum();
+    }
+
+    @Override
+    public long getContendedAcquisitions() {
+        return waitTime.getCount();
+    }
+
+    @Override
+    public long getActiveMutexes() {
+        return activeMutexes.sum();
+    }
+
+    @Override
+    public long getWaiters() {
+        return waiters.sum();
+    }
+
+    public LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    public LatencyHistogram getHoldTime() {
+        return holdTime;
+    }
+
+    /**
+     * @return sketch of hot values, null if they are not tracked
+     */
+    public HotKeySketch getHotKeySketch() {
+        return hotKeys;
+    }
+
+    @Override
+    public String[] getHotKeys() {
+        if(hotKeys == null) {
+            return new String[0];
+        }
+        return hotKeys.getHotKeys().stream().map(HotKeySketch.HotKey::toString).toArray(String[]::new);
+    }
+
+    @Override
+    public double getWaitTimeMean() {
+        return waitTime.getMean();
+    }
+
+    @Override
+    public long getWaitTime50thPercentile() {
+        return waitTime.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getWaitTime99thPercentile() {
+        return waitTime.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getWaitTimeMax() {
+        return waitTime.getMax();
+    }
+
+    @Override
+    public double getHoldTimeMean() {
+        return holdTime.getMean();
+    }
+
+    @Override
+    public long getHoldTime50thPercentile() {
+        return holdTime.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getHoldTime99thPercentile() {
+        return holdTime.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getHoldTimeMax() {
+        return holdTime.getMax();
+    }
+
+    @Override
+    public void reset() {
+        uncontendedAcquisitions.reset();
+        reentrantAcquisitions.reset();
+        waitTime.reset();
+        holdTime.reset();
+        if(hotKeys != null) {
+            hotKeys.reset();
+        }
+    }
+
+    /**
+     * Registers statistics in platform MBean server
+     *
+     * @param name name that tells lockers apart, must be valid {@link ObjectName} value
+     * @return name statistics were registered with
+     * @throws IllegalStateException if name is not valid or already registered
+     */
+    public ObjectName registerMBean(String name) {
+        ObjectName objectName = objectName(name);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        } catch (InstanceAlreadyExistsException | MBeanRegistrationException | NotCompliantMBeanException e) {
+            throw new IllegalStateException("Can not register locker statistics " + objectName, e);
+        }
+        return objectName;
+    }
+
+    /**
+     * Unregisters statistics registered by {@link #registerMBean(String)}, does nothing if not registered
+     */
+    public void unregisterMBean(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = objectName(name);
+        try {
+            if(server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (InstanceNotFoundException | MBeanRegistrationException e) {
+            throw new IllegalStateException("Can not unregister locker statistics " + objectName, e);
+        }
+    }
+
+    private static ObjectName objectName(String name) {
+        try {
+            return new ObjectName(OBJECT_NAME_PREFIX + name);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalStateException("Invalid locker statistics name " + name, e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.gusiew.lock.impl.metrics;
+
+/**
+ * JMX view of {@link LockerStatistics}, times are in nanoseconds
+ */
+public interface LockerStatisticsMXBean {
+
+    /**
+     * @return all acquisitions, including reentrant and contended ones
+     */
+    long getAcquisitions();
+
+    long getReentrantAcquisitions();
+
+    /**
+     * @return acquisitions that had to wait for the lock
+     */
+    long getContendedAcquisitions();
+
+    long getActiveMutexes();
+
+    long getWaiters();
+
+    /**
+     * @return values threads waited for the longest with their share of wait time, hottest first.
+     *         Empty if hot values are not tracked
+     */
+    String[] getHotKeys();
+
+    double getWaitTimeMean();
+
+    long getWaitTime50thPercentile();
+
+    long getWaitTime99thPercentile();
+
+    long getWaitTimeMax();
+
+    double getHoldTimeMean();
+
+    long getHoldTime50thPercentile();
+
+    long getHoldTime99thPercentile();
+
+    long getHoldTimeMax();
+
+    /**
+     * Resets counters, histograms and hot values, current active mutexes and waiters are kept
+     */
+    void reset();
+}
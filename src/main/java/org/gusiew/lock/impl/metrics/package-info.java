@@ -0,0 +1,4 @@
+/**
+ * Recording of {@link org.gusiew.lock.api.LockerMetrics}, see {@link org.gusiew.lock.impl.metrics.LockerStatistics}
+ */
+package org.gusiew.lock.impl.metrics;
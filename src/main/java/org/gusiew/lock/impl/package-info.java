@@ -1,4 +1,8 @@
 /**
- * Locker value API implementations, see {@link org.gusiew.lock.impl.ReentrantLocker}
+ * Locker value API implementations, see {@link org.gusiew.lock.impl.ReentrantLocker},
+ * {@link org.gusiew.lock.impl.ReentrantReadWriteLocker}, {@link org.gusiew.lock.impl.ReentrantLongLocker}
+ * and {@link org.gusiew.lock.impl.SerialKeyedExecutor}.
+ * {@link org.gusiew.lock.impl.MappedFileLocker} locks values across processes of the same host,
+ * {@link org.gusiew.lock.impl.RemoteLocker} across processes connected to {@link org.gusiew.lock.impl.LockServer}
  */
-package org.gusiew.lock.impl;
\ No newline at end of file
+package org.gusiew.lock.impl;
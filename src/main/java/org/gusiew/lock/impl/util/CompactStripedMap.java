@@ -0,0 +1,291 @@
+package org.gusiew.lock.impl.util;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+
+/**
+ * Map divided into stripes that does not create entry objects, counterpart of {@link StripedMap}
+ * for registries that add and remove a key on every use, such as active mutexes of {@link org.gusiew.lock.impl.ReentrantLocker}.
+ * <p>Stripe is selected same way as in {@link StripedMap}, so keys of equal stripe index share a stripe in both maps.
+ * Each stripe is an open addressing table with linear probing, keys, spread hash codes and values are kept
+ * in parallel arrays. Removal shifts following entries back, so table never contains tombstones
+ * and stays at most half full.
+ * <p>Stripe is guarded by {@link StampedLock} as in {@link LongStripedMap}: updates take write lock, lookups read
+ * the table optimistically without any write and fall back to read lock only if table was updated in the meantime.
+ * Optimistic lookup may call equals of a key with key that is being moved, its result is discarded then
+ * <p>Stripes are padded so that neighbouring stripes do not share cache lines, see {@link PaddedStripe}
+ *
+ * @param <K> type of keys, compared with equals
+ * @param <V> type of values, compared by reference
+ */
+@ThreadSafe
+public class CompactStripedMap<K, V> {
+
+    private static final int MAXIMUM_NUMBER_OF_STRIPES = 1 << 16;
+
+    private final Stripe<K, V>[] stripes;
+    private final int mask;
+
+    /**
+     * @param numberOfStripes number of stripes, rounded up to power of two
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public CompactStripedMap(int numberOfStripes) {
+        if(numberOfStripes <= 0) {
+            throw new IllegalArgumentException("Number of stripes must be positive");
+        }
+        stripes = new Stripe[roundUpToPowerOfTwo(numberOfStripes)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new PaddedCompactStripe<>();
+        }
+        mask = stripes.length - 1;
+    }
+
+    private static int roundUpToPowerOfTwo(int numberOfStripes) {
+        int bounded = Math.min(numberOfStripes, MAXIMUM_NUMBER_OF_STRIPES);
+        return bounded == 1 ? 1 : Integer.highestOneBit(bounded - 1) << 1;
+    }
+
+    public V get(K key) {
+        int hash = StripedMap.spread(key.hashCode());
+        return stripes[hash & mask].get(key, hash);
+    }
+
+    /**
+     * @return value already associated with the key or null if value was put
+     */
+    public V putIfAbsent(K key, V value) {
+        int hash = StripedMap.spread(key.hashCode());
+        return stripes[hash & mask].putIfAbsent(key, hash, value);
+    }
+
+    /**
+     * Removes key only if it is currently associated with given value instance
+     */
+    public void remove(K key, V value) {
+        remove(key, value, null);
+    }
+
+    /**
+     * Removes key only if it is currently associated with given value instance and the value meets the condition.
+     * Condition is tested while the stripe is locked, so the key can not be updated in the meantime
+     *
+     * @param condition tested on the value, null to remove it unconditionally
+     */
+    public void remove(K key, V value, Predicate<? super V> condition) {
+        int hash = StripedMap.spread(key.hashCode());
+        stripes[hash & mask].remove(key, hash, value, condition);
+    }
+
+    public boolean isEmpty() {
+        for (Stripe<K, V> stripe : stripes) {
+            if(!stripe.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return index of the stripe that stores the key, between 0 and number of stripes - 1
+     */
+    public int getStripeIndex(K key) {
+        return StripedMap.spread(key.hashCode()) & mask;
+    }
+
+    public int getNumberOfStripes() {
+        return stripes.length;
+    }
+
+    private static class Stripe<K, V> {
+
+        private static final int INITIAL_CAPACITY = 8;
+
+        private final StampedLock lock = new StampedLock();
+
+        /**
+         * Replaced on resize, read optimistically, so lookup always sees arrays of the same table
+         */
+        @GuardedBy("lock")
+        private Table table = new Table(INITIAL_CAPACITY);
+        @GuardedBy("lock")
+        private int size;
+
+        V get(K key, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            if(stamp != 0) {
+                V value = table.get(key, hash);
+                if(lock.validate(stamp)) {
+                    return value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return table.get(key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V putIfAbsent(K key, int hash, V value) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = table.find(key, hash);
+                if(table.values[slot] != null) {
+                    return (V) table.values[slot];
+                }
+                if(2 * (size + 1) > table.capacity()) {
+                    table = table.resize(2 * table.capacity());
+                    slot = table.find(key, hash);
+                }
+                table.keys[slot] = key;
+                table.hashes[slot] = hash;
+                table.values[slot] = value;
+                size++;
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void remove(K key, int hash, V value, Predicate<? super V> condition) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = table.find(key, hash);
+                if(value == null || table.values[slot] != value || (condition != null && !condition.test(value))) {
+                    return;
+                }
+                table.delete(slot);
+                size--;
+                if(table.capacity() > INITIAL_CAPACITY && 8 * size < table.capacity()) {
+                    table = table.resize(table.capacity() / 2);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean isEmpty() {
+            long stamp = lock.readLock();
+            try {
+                return size == 0;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * Padding fields are declared in subclass, so they are laid out after all fields of {@link Stripe}
+     */
+    @SuppressWarnings("unused")
+    private static final class PaddedCompactStripe<K, V> extends Stripe<K, V> {
+
+        private long p01, p02, p03, p04, p05, p06, p07, p08;
+        private long p09, p10, p11, p12, p13, p14, p15, p16;
+    }
+
+    /**
+     * Open addressing table, slot is empty when its value is null
+     */
+    private static final class Table {
+
+        final Object[] keys;
+        final int[] hashes;
+        final Object[] values;
+        final int slotMask;
+
+        Table(int capacity) {
+            keys = new Object[capacity];
+            hashes = new int[capacity];
+            values = new Object[capacity];
+            slotMask = capacity - 1;
+        }
+
+        int capacity() {
+            return values.length;
+        }
+
+        /**
+         * Low bits of spread hash select the stripe, so slot is selected by high bits first
+         */
+        private int home(int hash) {
+            return Integer.rotateRight(hash, 16) & slotMask;
+        }
+
+        /**
+         * Lookup that may run concurrently with updates when read optimistically, so number of probes is bounded,
+         * key of a slot emptied in the meantime is skipped and result is discarded by caller if table changed
+         */
+        @SuppressWarnings("unchecked")
+        <V> V get(Object key, int hash) {
+            int slot = home(hash);
+            for (int probes = 0; probes < values.length; probes++) {
+                Object value = values[slot];
+                if(value == null) {
+                    return null;
+                }
+                if(hashes[slot] == hash) {
+                    Object slotKey = keys[slot];
+                    if(slotKey == key || (slotKey != null && key.equals(slotKey))) {
+                        return (V) value;
+                    }
+                }
+                slot = (slot + 1) & slotMask;
+            }
+            return null;
+        }
+
+        /**
+         * @return slot of the key or empty slot where key belongs, table always has empty slot
+         */
+        int find(Object key, int hash) {
+            int slot = home(hash);
+            while (values[slot] != null && !(hashes[slot] == hash && (keys[slot] == key || key.equals(keys[slot])))) {
+                slot = (slot + 1) & slotMask;
+            }
+            return slot;
+        }
+
+        /**
+         * Empties the slot and shifts back following entries that would not be found otherwise
+         */
+        void delete(int slot) {
+            int empty = slot;
+            int next = slot;
+            for (;;) {
+                next = (next + 1) & slotMask;
+                if(values[next] == null) {
+                    break;
+                }
+                int nextHome = home(hashes[next]);
+                if(((next - nextHome) & slotMask) >= ((next - empty) & slotMask)) {
+                    keys[empty] = keys[next];
+                    hashes[empty] = hashes[next];
+                    values[empty] = values[next];
+                    empty = next;
+                }
+            }
+            keys[empty] = null;
+            values[empty] = null;
+        }
+
+        Table resize(int capacity) {
+            Table resized = new Table(capacity);
+            for (int i = 0; i < values.length; i++) {
+                if(values[i] != null) {
+                    int slot = resized.find(keys[i], hashes[i]);
+                    resized.keys[slot] = keys[i];
+                    resized.hashes[slot] = hashes[i];
+                    resized.values[slot] = values[i];
+                }
+            }
+            return resized;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.gusiew.lock.impl.util;
+
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Map of primitive long keys divided into stripes, counterpart of {@link StripedMap} that neither boxes keys
+ * nor creates entry objects.
+ * <p>Each stripe is an open addressing table with linear probing, keys and values are kept in parallel arrays.
+ * Removal shifts following entries back, so table never contains tombstones and stays at most half full.
+ * <p>Stripe is guarded by {@link StampedLock}: updates take write lock, lookups read the table optimistically
+ * without any write and fall back to read lock only if table was updated in the meantime
+ *
+ * @param <V> type of values, compared by reference
+ */
+@ThreadSafe
+public class LongStripedMap<V> {
+
+    private static final int MAXIMUM_NUMBER_OF_STRIPES = 1 << 16;
+
+    private final Stripe<V>[] stripes;
+    private final int mask;
+
+    /**
+     * @param numberOfStripes number of stripes, rounded up to power of two
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public LongStripedMap(int numberOfStripes) {
+        if(numberOfStripes <= 0) {
+            throw new IllegalArgumentException("Number of stripes must be positive");
+        }
+        stripes = new Stripe[roundUpToPowerOfTwo(numberOfStripes)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe<>();
+        }
+        mask = stripes.length - 1;
+    }
+
+    private static int roundUpToPowerOfTwo(int numberOfStripes) {
+        int bounded = Math.min(numberOfStripes, MAXIMUM_NUMBER_OF_STRIPES);
+        return bounded == 1 ? 1 : Integer.highestOneBit(bounded - 1) << 1;
+    }
+
+    public V get(long key) {
+        long hash = spread(key);
+        return stripes[(int) hash & mask].get(key, hash);
+    }
+
+    /**
+     * @return value already associated with the key or null if value was put
+     */
+    public V putIfAbsent(long key, V value) {
+        long hash = spread(key);
+        return stripes[(int) hash & mask].putIfAbsent(key, hash, value);
+    }
+
+    /**
+     * Removes key only if it is currently associated with given value instance
+     */
+    public void remove(long key, V value) {
+        long hash = spread(key);
+        stripes[(int) hash & mask].remove(key, hash, value);
+    }
+
+    public boolean isEmpty() {
+        for (Stripe<V> stripe : stripes) {
+            if(!stripe.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return index of the stripe that stores the key, between 0 and number of stripes - 1
+     */
+    public int getStripeIndex(long key) {
+        return (int) spread(key) & mask;
+    }
+
+    public int getNumberOfStripes() {
+        return stripes.length;
+    }
+
+    /**
+     * Mixes all bits of the key (murmur3 64 bit finalizer). Low bits select the stripe,
+     * high bits select the slot in stripe table, so keys of a stripe do not share slot bits
+     */
+    static long spread(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Stripe<V> {
+
+        private static final int INITIAL_CAPACITY = 8;
+
+        private final StampedLock lock = new StampedLock();
+
+        /**
+         * Replaced on resize, read optimistically, so lookup always sees arrays of the same table
+         */
+        @GuardedBy("lock")
+        private Table table = new Table(INITIAL_CAPACITY);
+        @GuardedBy("lock")
+        private int size;
+
+        V get(long key, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            if(stamp != 0) {
+                V value = table.get(key, hash);
+                if(lock.validate(stamp)) {
+                    return value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return table.get(key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V putIfAbsent(long key, long hash, V value) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = table.find(key, hash);
+                if(table.values[slot] != null) {
+                    return (V) table.values[slot];
+                }
+                if(2 * (size + 1) > table.capacity()) {
+                    table = table.resize(2 * table.capacity());
+                    slot = table.find(key, hash);
+                }
+                table.keys[slot] = key;
+                table.values[slot] = value;
+                size++;
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void remove(long key, long hash, V value) {
+            long stamp = lock.writeLock();
+            try {
+                int slot = table.find(key, hash);
+                if(value == null || table.values[slot] != value) {
+                    return;
+                }
+                table.delete(slot);
+                size--;
+                if(table.capacity() > INITIAL_CAPACITY && 8 * size < table.capacity()) {
+                    table = table.resize(table.capacity() / 2);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean isEmpty() {
+            long stamp = lock.readLock();
+            try {
+                return size == 0;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * Open addressing table, slot is empty when its value is null
+     */
+    private static final class Table {
+
+        final long[] keys;
+        final Object[] values;
+        final int slotMask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            slotMask = capacity - 1;
+        }
+
+        int capacity() {
+            return values.length;
+        }
+
+        private int home(long hash) {
+            return (int) (hash >>> 32) & slotMask;
+        }
+
+        /**
+         * Lookup that may run concurrently with updates when read optimistically, so number of probes is bounded
+         * and result is discarded by caller if table changed
+         */
+        @SuppressWarnings("unchecked")
+        <V> V get(long key, long hash) {
+            int slot = home(hash);
+            for (int probes = 0; probes < values.length; probes++) {
+                Object value = values[slot];
+                if(value == null) {
+                    return null;
+                }
+                if(keys[slot] == key) {
+                    return (V) value;
+                }
+                slot = (slot + 1) & slotMask;
+            }
+            return null;
+        }
+
+        /**
+         * @return slot of the key or empty slot where key belongs, table always has empty slot
+         */
+        int find(long key, long hash) {
+            int slot = home(hash);
+            while (values[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & slotMask;
+            }
+            return slot;
+        }
+
+        /**
+         * Empties the slot and shifts back following entries that would not be found otherwise
+         */
+        void delete(int slot) {
+            int empty = slot;
+            int next = slot;
+            for (;;) {
+                next = (next + 1) & slotMask;
+                if(values[next] == null) {
+                    break;
+                }
+                int nextHome = home(spread(keys[next]));
+                if(((next - nextHome) & slotMask) >= ((next - empty) & slotMask)) {
+                    keys[empty] = keys[next];
+                    values[empty] = values[next];
+                    empty = next;
+                }
+            }
+            values[empty] = null;
+        }
+
+        Table resize(int capacity) {
+            Table resized = new Table(capacity);
+            for (int i = 0; i < values.length; i++) {
+                if(values[i] != null) {
+                    int slot = resized.find(keys[i], spread(keys[i]));
+                    resized.keys[slot] = keys[i];
+                    resized.values[slot] = values[i];
+                }
+            }
+            return resized;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.gusiew.lock.impl.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stripe of {@link StripedMap} padded to the size of two cache lines.
+ * <p>Stripes are allocated one after another, without padding counters and table reference of
+ * neighbouring stripes share cache lines and threads working on different stripes invalidate each other's caches.
+ * Padding fields are declared in subclass, so they are laid out after all fields of {@link ConcurrentHashMap}
+ */
+@SuppressWarnings("unused")
+class PaddedStripe<K, V> extends ConcurrentHashMap<K, V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private long p01, p02, p03, p04, p05, p06, p07, p08;
+    private long p09, p10, p11, p12, p13, p14, p15, p16;
+}
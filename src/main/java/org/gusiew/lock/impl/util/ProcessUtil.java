@@ -0,0 +1,69 @@
+package org.gusiew.lock.impl.util;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.util.Optional;
+
+/**
+ * Process ids and liveness, {@code ProcessHandle} is used on Java 9 and later
+ */
+public class ProcessUtil {
+
+    /**
+     * {@code ProcessHandle.of(long)} of Java 9 and later, null on Java 8
+     */
+    private static final MethodHandle PROCESS_OF = findProcessHandle("of",
+            MethodType.methodType(Optional.class, long.class), true);
+    /**
+     * {@code ProcessHandle.isAlive()} of Java 9 and later, null on Java 8
+     */
+    private static final MethodHandle PROCESS_IS_ALIVE = findProcessHandle("isAlive",
+            MethodType.methodType(boolean.class), false);
+    private static final File PROC = new File("/proc");
+
+    private ProcessUtil() {
+    }
+
+    /**
+     * @return id of current process, name of runtime MXBean is {@code pid@hostname} on all HotSpot based JVMs
+     */
+    public static long currentPid() {
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int separator = name.indexOf('@');
+        try {
+            return Long.parseLong(separator < 0 ? name : name.substring(0, separator));
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Can not determine process id from " + name, e);
+        }
+    }
+
+    /**
+     * On Java 8 only Linux processes can be checked, process is assumed alive on other systems
+     *
+     * @return false if process with given id does not exist anymore
+     */
+    public static boolean isAlive(long pid) {
+        if(PROCESS_OF != null) {
+            try {
+                Optional<?> process = (Optional<?>) PROCESS_OF.invoke(pid);
+                return process.isPresent() && (boolean) PROCESS_IS_ALIVE.invoke(process.get());
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+        return !PROC.isDirectory() || new File(PROC, Long.toString(pid)).exists();
+    }
+
+    private static MethodHandle findProcessHandle(String name, MethodType type, boolean isStatic) {
+        try {
+            Class<?> processHandle = Class.forName("java.lang.ProcessHandle");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            return isStatic ? lookup.findStatic(processHandle, name, type) : lookup.findVirtual(processHandle, name, type);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
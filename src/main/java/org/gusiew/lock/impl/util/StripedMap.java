@@ -1,70 +1,118 @@
 package org.gusiew.lock.impl.util;
 
-import net.jcip.annotations.GuardedBy;
-
-import java.util.HashMap;
-import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Map split into independent stripes, key is always stored in the stripe selected by its hash code.
+ * <p>Each stripe is a concurrent map so all operations are thread safe and do not need external synchronization.
+ * Stripes do not share any state so updates of keys from different stripes do not contend with each other
+ * <p>Number of stripes is rounded up to power of two, so stripe is selected by masking spread hash code.
+ * Selection does not allocate and does not look up any other map
+ * <p>By default stripes are padded so that neighbouring stripes do not share cache lines
+ */
+@ThreadSafe
 public class StripedMap<K, V> {
 
-    //TODO test
-    //TODO implement map ?
-    private final Map<Integer, Map<K, V>> mapsByStripe;
+    private static final int MAXIMUM_NUMBER_OF_STRIPES = 1 << 16;
+
+    private final ConcurrentMap<K, V>[] stripes;
+    private final int mask;
 
-    @SuppressWarnings("unchecked")
     public StripedMap(int numberOfStripes) {
-        mapsByStripe = IntStream.range(0, numberOfStripes)
-                .boxed()
-                .map(i -> StripeMapPair.pair(i, new HashMap<K, V>()))
-                .collect(Collectors.toMap(p -> p.stripeIndex, p -> p.map));
+        this(numberOfStripes, true);
+    }
+
+    /**
+     * @param numberOfStripes number of stripes, rounded up to power of two
+     * @param padded if true each stripe occupies own cache lines, see {@link PaddedStripe}.
+     *               Unpadded stripes save memory when there are many of them and contention is low
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public StripedMap(int numberOfStripes, boolean padded) {
+        if(numberOfStripes <= 0) {
+            throw new IllegalArgumentException("Number of stripes must be positive");
+        }
+        stripes = new ConcurrentMap[roundUpToPowerOfTwo(numberOfStripes)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = padded ? new PaddedStripe<>() : new ConcurrentHashMap<>();
+        }
+        mask = stripes.length - 1;
+    }
+
+    private static int roundUpToPowerOfTwo(int numberOfStripes) {
+        int bounded = Math.min(numberOfStripes, MAXIMUM_NUMBER_OF_STRIPES);
+        return bounded == 1 ? 1 : Integer.highestOneBit(bounded - 1) << 1;
     }
 
-    @GuardedBy("getStripe(key)")
     public V get(K key) {
         return getStripe(key).get(key);
     }
 
-    @GuardedBy("getStripe(key)")
     public void put(K key, V value) {
         getStripe(key).put(key, value);
     }
 
-    @GuardedBy("getStripe(key)")
-    public void remove(K key) {
-        mapsByStripe.get(getStripeIndex(key)).remove(key);
+    /**
+     * @return value already associated with the key or null if value was put
+     */
+    public V putIfAbsent(K key, V value) {
+        return getStripe(key).putIfAbsent(key, value);
     }
 
-    @GuardedBy("getStripe(0)...getStripe(size-1)")
-    public boolean isEmpty() {
-        return mapsByStripe.values().stream().mapToInt(Map::size).sum() == 0;
+    public void remove(K key) {
+        getStripe(key).remove(key);
     }
 
-    public Map<K, V> getStripe(K key) {
-        return mapsByStripe.get(getStripeIndex(key));
+    /**
+     * Removes key only if it is currently associated with given value instance.
+     * Unlike {@link ConcurrentMap#remove(Object, Object)} values are compared by reference, not by equals
+     */
+    public void remove(K key, V value) {
+        getStripe(key).computeIfPresent(key, (k, v) -> v == value ? null : v);
     }
 
-    private int getStripeIndex(K key) {
-        return key.hashCode() % mapsByStripe.size();
+    public boolean isEmpty() {
+        for (ConcurrentMap<K, V> stripe : stripes) {
+            if(!stripe.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    public int getNumberOfStripes() {
-        return mapsByStripe.size();
+    public ConcurrentMap<K, V> getStripe(K key) {
+        return stripes[getStripeIndex(key)];
     }
 
-    private static class StripeMapPair<K, V> {
+    public ConcurrentMap<K, V> getStripeAt(int stripeIndex) {
+        return stripes[stripeIndex];
+    }
 
-        final Integer stripeIndex;
-        final Map<K, V> map;
+    /**
+     * @return index of the stripe that stores the key, between 0 and number of stripes - 1
+     */
+    public int getStripeIndex(K key) {
+        return spread(key.hashCode()) & mask;
+    }
 
-        private StripeMapPair(Integer stripeIndex, Map<K, V> map) {
-            this.stripeIndex = stripeIndex;
-            this.map = map;
-        }
+    /**
+     * Mixes all bits of hash code into low bits (murmur3 finalizer). Stripe maps select buckets by low bits
+     * of hash code too, without mixing all keys of a stripe would share low bits and collide in buckets
+     */
+    public static int spread(int hashCode) {
+        int h = hashCode;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
 
-        static <K, V> StripeMapPair pair(Integer index, Map<K, V> map) {
-            return new StripeMapPair<>(index, map);
-        }
+    public int getNumberOfStripes() {
+        return stripes.length;
     }
 }
@@ -1,7 +1,38 @@
 package org.gusiew.lock.impl.util;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
 public class ThreadUtil {
+
+    /**
+     * {@code Thread.onSpinWait()} of Java 9 and later, null on Java 8
+     */
+    private static final MethodHandle ON_SPIN_WAIT = findOnSpinWait();
+
     public static boolean sameThreads(Thread thread1, Thread thread2) {
         return thread1.equals(thread2);
     }
+
+    /**
+     * Hints that current thread is busy waiting (pause instruction on x86), does nothing on Java 8
+     */
+    public static void onSpinWait() {
+        if(ON_SPIN_WAIT != null) {
+            try {
+                ON_SPIN_WAIT.invokeExact();
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+
+    private static MethodHandle findOnSpinWait() {
+        try {
+            return MethodHandles.lookup().findStatic(Thread.class, "onSpinWait", MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
 }
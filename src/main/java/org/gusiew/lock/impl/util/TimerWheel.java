@@ -0,0 +1,172 @@
+package org.gusiew.lock.impl.util;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel: timeouts are kept in a ring of buckets, one bucket per tick, and single daemon thread
+ * advances the wheel once per tick and runs tasks of the bucket that are due. Timeout further than one turn
+ * of the wheel waits in its bucket for remaining turns.
+ * <p>Scheduling only queues the timeout and cancelling only marks it, so both are constant time and never
+ * contend with the wheel thread. Queued timeouts are moved to their buckets on next tick,
+ * cancelled ones are dropped when their bucket is visited.
+ * <p>Tasks run late by up to one tick, never early. Tasks run on the wheel thread and must not block
+ */
+@ThreadSafe
+public class TimerWheel implements Closeable {
+
+    private final long tickNanos;
+    private final int mask;
+    /**
+     * Accessed only by wheel thread
+     */
+    private final List<List<Timeout>> buckets;
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final long startNanos;
+    /**
+     * Number of ticks processed, accessed only by wheel thread
+     */
+    private long tick;
+    private final Thread worker;
+    private volatile boolean closed;
+
+    /**
+     * @param tickDuration resolution of the timer
+     * @param ticksPerWheel number of buckets, rounded up to power of two
+     * @param name name of the wheel thread
+     */
+    public TimerWheel(long tickDuration, TimeUnit unit, int ticksPerWheel, String name) {
+        if(tickDuration <= 0 || ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("Tick duration and ticks per wheel must be positive");
+        }
+        this.tickNanos = unit.toNanos(tickDuration);
+        int wheelSize = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        wheelSize = Math.max(wheelSize, 1);
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * @return handle to cancel the task with
+     * @throws IllegalStateException if wheel is closed
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if(closed) {
+            throw new IllegalStateException("Timer wheel closed");
+        }
+        Timeout timeout = new Timeout(task, System.nanoTime() + unit.toNanos(delay));
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (!closed) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long now;
+            while ((now = System.nanoTime()) - deadline < 0) {
+                LockSupport.parkNanos(this, deadline - now);
+                if(closed) {
+                    return;
+                }
+            }
+            transferScheduled();
+            expire(buckets.get((int) (tick & mask)));
+            tick++;
+        }
+    }
+
+    /**
+     * Timeout goes to the bucket of first tick that ends at or after its deadline,
+     * timeout already overdue goes to current tick
+     */
+    private void transferScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if(timeout.cancelled) {
+                continue;
+            }
+            long dueTick = Math.max(ceilDiv(timeout.deadline - startNanos, tickNanos) - 1, tick);
+            timeout.remainingRounds = (dueTick - tick) / buckets.size();
+            buckets.get((int) (dueTick & mask)).add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout> bucket) {
+        for (Iterator<Timeout> iterator = bucket.iterator(); iterator.hasNext(); ) {
+            Timeout timeout = iterator.next();
+            if(timeout.cancelled) {
+                iterator.remove();
+            } else if(timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+            } else {
+                iterator.remove();
+                run(timeout.task);
+            }
+        }
+    }
+
+    /**
+     * Failure of a task is reported to uncaught exception handler, wheel thread keeps running
+     */
+    private void run(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            worker.getUncaughtExceptionHandler().uncaughtException(worker, e);
+        }
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return dividend <= 0 ? 0 : (dividend + divisor - 1) / divisor;
+    }
+
+    /**
+     * Stops the wheel thread, pending tasks are not run
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+    }
+
+    /**
+     * Scheduled task
+     */
+    public static final class Timeout {
+
+        private final Runnable task;
+        private final long deadline;
+        private volatile boolean cancelled;
+        /**
+         * Turns of the wheel left before task is due, accessed only by wheel thread
+         */
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Task is not run unless it is already running or done
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.gusiew.lock.impl.util;
+
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+
+/**
+ * Access to memory fences and atomic operations on off-heap memory that Java 8 exposes only through {@link Unsafe}
+ */
+public class UnsafeUtil {
+
+    private static final Unsafe UNSAFE = loadUnsafe();
+    private static final long BUFFER_ADDRESS_OFFSET = bufferAddressOffset();
+
+    private UnsafeUtil() {
+    }
+
+    /**
+     * Loads before the fence are not reordered with loads and stores after the fence
+     */
+    public static void loadFence() {
+        UNSAFE.loadFence();
+    }
+
+    /**
+     * @return address of the first byte of direct (e.g. memory mapped) buffer, buffer must stay reachable while it is used
+     */
+    public static long address(Buffer directBuffer) {
+        if(!directBuffer.isDirect()) {
+            throw new IllegalArgumentException("Buffer is not direct");
+        }
+        return UNSAFE.getLong(directBuffer, BUFFER_ADDRESS_OFFSET);
+    }
+
+    /**
+     * Atomically sets long at address to value if it holds expected value, address must be 8 byte aligned
+     *
+     * @return true if value was set
+     */
+    public static boolean compareAndSwapLong(long address, long expected, long value) {
+        return UNSAFE.compareAndSwapLong(null, address, expected, value);
+    }
+
+    public static long getLongVolatile(long address) {
+        return UNSAFE.getLongVolatile(null, address);
+    }
+
+    public static void putLongVolatile(long address, long value) {
+        UNSAFE.putLongVolatile(null, address, value);
+    }
+
+    private static Unsafe loadUnsafe() {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return (Unsafe) field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static long bufferAddressOffset() {
+        try {
+            return UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        } catch (NoSuchFieldException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+}
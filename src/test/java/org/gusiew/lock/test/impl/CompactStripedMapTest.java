@@ -0,0 +1,130 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.impl.util.CompactStripedMap;
+import org.gusiew.lock.impl.util.StripedMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactStripedMapTest {
+
+    @Test
+    void shouldBehaveAsMapForRandomOperations() {
+        //given
+        CompactStripedMap<Object, Object> map = new CompactStripedMap<>(2);
+        Map<Object, Object> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        //when
+        for (int i = 0; i < 100_000; i++) {
+            //Few hash codes, so keys collide in stripes and in slots
+            Object key = new Key(random.nextInt(512), random.nextInt(8) - 4);
+            if(random.nextBoolean()) {
+                Object value = new Object();
+                Object previous = map.putIfAbsent(key, value);
+                assertSame(expected.putIfAbsent(key, value), previous);
+            } else {
+                Object current = expected.get(key);
+                map.remove(key, random.nextInt(4) == 0 ? new Object() : current);
+                if(current != null && map.get(key) == null) {
+                    expected.remove(key);
+                }
+            }
+
+            //then
+            assertSame(expected.get(key), map.get(key));
+        }
+        for (Map.Entry<Object, Object> entry : expected.entrySet()) {
+            assertSame(entry.getValue(), map.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    void shouldFindValueByEqualKey() {
+        //given
+        CompactStripedMap<Object, Object> map = new CompactStripedMap<>(16);
+        Object value = new Object();
+        map.putIfAbsent(new Key(1, Integer.MIN_VALUE), value);
+
+        //then
+        assertSame(value, map.get(new Key(1, Integer.MIN_VALUE)));
+        assertNull(map.get(new Key(2, Integer.MIN_VALUE)));
+        assertSame(value, map.putIfAbsent(new Key(1, Integer.MIN_VALUE), new Object()));
+    }
+
+    @Test
+    void shouldRemoveOnlyGivenValueInstanceThatMeetsCondition() {
+        //given
+        CompactStripedMap<Object, String> map = new CompactStripedMap<>(4);
+        String value = "value";
+        map.putIfAbsent("key", value);
+
+        //when
+        map.remove("key", new String(value));
+        map.remove("key", value, v -> false);
+
+        //then
+        assertSame(value, map.get("key"));
+        map.remove("key", value, v -> true);
+        assertNull(map.get("key"));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void shouldBeEmptyAfterAllKeysRemoved() {
+        //given
+        CompactStripedMap<Object, Object> map = new CompactStripedMap<>(4);
+        Object value = new Object();
+        for (int key = 0; key < 10_000; key++) {
+            map.putIfAbsent(key, value);
+        }
+
+        //when
+        for (int key = 0; key < 10_000; key++) {
+            map.remove(key, value);
+        }
+
+        //then
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0));
+    }
+
+    @Test
+    void shouldSelectSameStripeAsStripedMap() {
+        //given
+        CompactStripedMap<Object, Object> map = new CompactStripedMap<>(1000);
+        StripedMap<Object, Object> stripedMap = new StripedMap<>(1000);
+
+        //then
+        assertEquals(stripedMap.getNumberOfStripes(), map.getNumberOfStripes());
+        for (int hashCode : new int[]{Integer.MIN_VALUE, -1, 0, 1, 42, Integer.MAX_VALUE}) {
+            Key key = new Key(0, hashCode);
+            assertEquals(stripedMap.getStripeIndex(key), map.getStripeIndex(key));
+        }
+    }
+
+    private static final class Key {
+
+        private final int id;
+        private final int hashCode;
+
+        Key(int id, int hashCode) {
+            this.id = id;
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id && ((Key) o).hashCode == hashCode;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.DeadlockDetector;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.gusiew.lock.impl.exception.MutexDeadlockException;
+import org.gusiew.lock.test.impl.util.TestReentrantLocker;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlockDetectorTest extends AbstractReentrantLockerTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private final DeadlockDetector deadlockDetector = new DeadlockDetector();
+
+    DeadlockDetectorTest() {
+        locker = new TestReentrantLocker(ReentrantLocker.builder().deadlockDetector(deadlockDetector).build());
+    }
+
+    @Test
+    void shouldFailThreadThatClosesCycleOfTwo() throws Exception {
+        assertCycleDetected(Arrays.asList(VALUE_A, VALUE_B), (l, v) -> l.lock(v));
+    }
+
+    @Test
+    void shouldFailThreadThatClosesCycleOfThree() throws Exception {
+        assertCycleDetected(Arrays.asList(VALUE_A, VALUE_B, VALUE_C), (l, v) -> l.lock(v));
+    }
+
+    @Test
+    void shouldDetectCycleInInterruptibleLock() throws Exception {
+        assertCycleDetected(Arrays.asList(VALUE_A, VALUE_B), (l, v) -> l.lockInterruptibly(v));
+    }
+
+    @Test
+    void shouldWaitWhenThereIsNoCycle() throws Exception {
+        //given
+        Mutex mutex = locker.lock(VALUE_A);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                locker.lock(VALUE_B).release();
+                locker.lock(VALUE_A).release();
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+
+        //when
+        waiter.start();
+        while (waiter.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        mutex.release();
+        waiter.join(TIMEOUT_MILLIS);
+
+        //then
+        assertFalse(waiter.isAlive());
+        assertNull(thrown.get());
+    }
+
+    @Test
+    void lockAllShouldReleaseAcquiredValuesWhenCycleDetected() throws Exception {
+        //given
+        List<Object> all = Arrays.asList(VALUE_A, VALUE_B, VALUE_C);
+        AtomicReference<Mutex> held = new AtomicReference<>();
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        Thread holder = new Thread(() -> {
+            held.set(locker.lock(VALUE_C));
+            await(barrier);
+            //waits for main thread that holds A and B
+            try {
+                locker.lock(VALUE_A).release();
+            } catch (MutexDeadlockException ignored) {
+            }
+            held.get().release();
+        });
+        holder.start();
+        await(barrier);
+
+        //when
+        Mutex mutex = null;
+        try {
+            mutex = locker.lockAll(all);
+        } catch (MutexDeadlockException ignored) {
+        }
+
+        //then
+        if(mutex != null) {
+            mutex.release();
+        }
+        holder.join(TIMEOUT_MILLIS);
+        assertFalse(holder.isAlive());
+    }
+
+    @Test
+    void shouldDetectCycleAcrossLockersSharingDetector() throws Exception {
+        //given
+        ReentrantLocker first = ReentrantLocker.builder().deadlockDetector(deadlockDetector).build();
+        ReentrantLocker second = ReentrantLocker.builder().deadlockDetector(deadlockDetector).build();
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        AtomicInteger detected = new AtomicInteger();
+        Thread thread = new Thread(() -> lockBoth(second, first, barrier, detected));
+
+        //when
+        thread.start();
+        lockBoth(first, second, barrier, detected);
+        thread.join(TIMEOUT_MILLIS);
+
+        //then
+        assertFalse(thread.isAlive());
+        assertTrue(detected.get() >= 1);
+    }
+
+    private static void lockBoth(ReentrantLocker outer, ReentrantLocker inner, CyclicBarrier barrier, AtomicInteger detected) {
+        Mutex mutex = outer.lock(VALUE_A);
+        try {
+            await(barrier);
+            inner.lock(VALUE_A).release();
+        } catch (MutexDeadlockException e) {
+            detected.incrementAndGet();
+        } finally {
+            mutex.release();
+        }
+    }
+
+    /**
+     * Each thread locks its value, then value of next thread, so last one closes the cycle.
+     * Threads closing the cycle at the same time may all be failed, at least one has to be
+     */
+    private void assertCycleDetected(List<String> values, LockFunction lockFunction) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(values.size());
+        AtomicInteger detected = new AtomicInteger();
+        AtomicReference<Throwable> unexpected = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) {
+            String own = values.get(i);
+            String next = values.get((i + 1) % values.size());
+            threads.add(new Thread(() -> {
+                try {
+                    Mutex mutex = lockFunction.lock(locker, own);
+                    try {
+                        await(barrier);
+                        lockFunction.lock(locker, next).release();
+                    } catch (MutexDeadlockException e) {
+                        assertTrue(e.getMessage().startsWith("Deadlock: "));
+                        detected.incrementAndGet();
+                    } finally {
+                        mutex.release();
+                    }
+                } catch (Throwable t) {
+                    unexpected.set(t);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(TIMEOUT_MILLIS);
+            assertFalse(thread.isAlive(), "Deadlock not detected");
+        }
+        assertNull(unexpected.get());
+        assertTrue(detected.get() >= 1);
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface LockFunction {
+        Mutex lock(TestReentrantLocker locker, Object value) throws InterruptedException;
+    }
+}
@@ -0,0 +1,106 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.ContentEquivalence;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.gusiew.lock.test.impl.util.Assertions;
+import org.gusiew.lock.test.impl.util.TestReentrantLocker;
+import org.gusiew.lock.test.impl.util.TestReentrantMutex;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EquivalenceReentrantLockerTest extends AbstractReentrantLockerTest {
+
+    private static final byte[] BYTES_A = {1, 2, 3};
+    private static final byte[] BYTES_A_OTHER_INSTANCE = {1, 2, 3};
+    private static final byte[] BYTES_B = {3, 2, 1};
+
+    EquivalenceReentrantLockerTest() {
+        locker = new TestReentrantLocker(ReentrantLocker.builder().equivalence(new ContentEquivalence()).build());
+    }
+
+    @Test
+    void shouldReenterArrayWithSameContent() {
+        //given
+        TestReentrantMutex first = locker.lock(BYTES_A);
+
+        //when
+        TestReentrantMutex second = locker.lock(BYTES_A_OTHER_INSTANCE);
+
+        //then
+        assertSame(first, second);
+        Assertions.assertActiveAndHeldByCurrentThreadWithEntrances(locker, first, 2);
+
+        second.release();
+        first.release();
+        Assertions.assertNotActive(locker, first);
+    }
+
+    @Test
+    void shouldLockArraysWithDifferentContentSeparately() {
+        //when
+        TestReentrantMutex first = locker.lock(BYTES_A);
+        TestReentrantMutex second = locker.lock(BYTES_B);
+
+        //then
+        assertNotSame(first, second);
+        Assertions.assertActiveAndHeldByCurrentThreadWithEntrances(locker, first, 1);
+        Assertions.assertActiveAndHeldByCurrentThreadWithEntrances(locker, second, 1);
+
+        second.release();
+        first.release();
+    }
+
+    @Test
+    void shouldTreatCharacterSequencesWithSameCharactersAsSameValue() {
+        //given
+        TestReentrantMutex first = locker.lock(VALUE_A);
+
+        //when
+        TestReentrantMutex second = locker.lock(new StringBuilder(VALUE_A));
+        TestReentrantMutex third = locker.lock(VALUE_A.toCharArray());
+
+        //then
+        assertSame(first, second);
+        assertSame(first, third);
+        Assertions.assertActiveAndHeldByCurrentThreadWithEntrances(locker, first, 3);
+
+        third.release();
+        second.release();
+        first.release();
+    }
+
+    @Test
+    void shouldNotLockArrayWithSameContentHeldByOtherThread() throws InterruptedException {
+        //given
+        TestReentrantMutex mutex = locker.lock(BYTES_A);
+        AtomicReference<TestReentrantMutex> acquired = new AtomicReference<>();
+
+        //when
+        Thread thread = new Thread(() -> acquired.set(locker.tryLock(BYTES_A_OTHER_INSTANCE)));
+        thread.start();
+        thread.join();
+
+        //then
+        assertNull(acquired.get());
+        mutex.release();
+    }
+
+    @Test
+    void lockAllShouldLockEquivalentValuesOnce() {
+        //given
+        Mutex mutex = locker.lockAll(Arrays.asList(BYTES_A, BYTES_A_OTHER_INSTANCE, BYTES_B));
+
+        //when
+        TestReentrantMutex reentered = locker.lock(BYTES_A_OTHER_INSTANCE);
+
+        //then
+        assertEquals(2, reentered.getEntranceCount());
+        reentered.release();
+        mutex.release();
+    }
+}
@@ -0,0 +1,117 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.gusiew.lock.test.impl.util.Assertions;
+import org.gusiew.lock.test.impl.util.TestReentrantLocker;
+import org.gusiew.lock.test.impl.util.TestReentrantMutex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.gusiew.lock.test.impl.util.AwaitUtil.awaitWaitingThreads;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FairReentrantLockerTest extends AbstractReentrantLockerTest {
+
+    private static final int NUMBER_OF_WAITING_THREADS = 4;
+
+    FairReentrantLockerTest() {
+        locker = new TestReentrantLocker(ReentrantLocker.builder().fair(true).build());
+    }
+
+    @Test
+    void shouldGrantLockToWaitingThreadsInArrivalOrder() throws InterruptedException {
+        //given
+        TestReentrantMutex mutex = locker.lock(VALUE_A);
+        List<Integer> acquisitionOrder = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < NUMBER_OF_WAITING_THREADS; i++) {
+            int threadIndex = i;
+            Thread thread = new Thread(() -> {
+                TestReentrantMutex m = locker.lock(VALUE_A);
+                acquisitionOrder.add(threadIndex);
+                m.release();
+            });
+            threads.add(thread);
+            thread.start();
+            awaitWaitingThreads(mutex, i + 1);
+        }
+
+        //when
+        mutex.release();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        //then
+        assertEquals(Arrays.asList(0, 1, 2, 3), acquisitionOrder);
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+
+    @Test
+    void shouldNotLetTryLockOvertakeWaitingThread() throws InterruptedException {
+        //given
+        TestReentrantMutex mutex = locker.lock(VALUE_A);
+        List<TestReentrantMutex> overtaken = new CopyOnWriteArrayList<>();
+        Thread waitingThread = new Thread(() -> locker.lock(VALUE_A).release());
+        waitingThread.start();
+        awaitWaitingThreads(mutex, 1);
+
+        //when
+        Thread overtakingThread = new Thread(() -> {
+            TestReentrantMutex m = locker.tryLock(VALUE_A);
+            if(m != null) {
+                overtaken.add(m);
+                m.release();
+            }
+        });
+        overtakingThread.start();
+        overtakingThread.join();
+
+        //then
+        assertTrue(overtaken.isEmpty());
+        mutex.release();
+        waitingThread.join();
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+
+    @Test
+    void shouldPassLockOnWhenFirstWaitingThreadTimesOut() throws InterruptedException {
+        //given
+        TestReentrantMutex mutex = locker.lock(VALUE_A);
+        AtomicBoolean timedOut = new AtomicBoolean();
+        Thread timingOutThread = new Thread(() -> {
+            try {
+                TestReentrantMutex m = locker.tryLock(VALUE_A, 50, TimeUnit.MILLISECONDS);
+                if(m == null) {
+                    timedOut.set(true);
+                } else {
+                    m.release();
+                }
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        timingOutThread.start();
+        awaitWaitingThreads(mutex, 1);
+        Thread waitingThread = new Thread(() -> locker.lock(VALUE_A).release());
+        waitingThread.start();
+        awaitWaitingThreads(mutex, 2);
+
+        //when
+        timingOutThread.join();
+        mutex.release();
+        waitingThread.join();
+
+        //then
+        assertTrue(timedOut.get());
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+}
@@ -0,0 +1,71 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.impl.metrics.HotKeySketch;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HotKeySketchTest {
+
+    @Test
+    void shouldTrackHottestValuesAmongManyColdOnes() {
+        //given
+        HotKeySketch sketch = new HotKeySketch(4);
+        Random random = new Random(42);
+
+        //when
+        for (int i = 0; i < 100_000; i++) {
+            int roll = random.nextInt(10);
+            if(roll < 3) {
+                sketch.record("hot", 1000);
+            } else if(roll < 4) {
+                sketch.record("warm", 1000);
+            } else {
+                sketch.record(random.nextInt(1_000_000), 1000);
+            }
+        }
+
+        //then
+        List<HotKeySketch.HotKey> hotKeys = sketch.getHotKeys();
+        assertEquals(4, hotKeys.size());
+        assertEquals("hot", hotKeys.get(0).getValue());
+        assertEquals("warm", hotKeys.get(1).getValue());
+        assertEquals(0.3, hotKeys.get(0).getWaitShare(), 0.02);
+        assertEquals(0.1, hotKeys.get(1).getWaitShare(), 0.02);
+    }
+
+    @Test
+    void shouldWeightValuesByWaitTime() {
+        //given
+        HotKeySketch sketch = new HotKeySketch(2);
+
+        //when
+        for (int i = 0; i < 100; i++) {
+            sketch.record("frequent", 10);
+        }
+        sketch.record("slow", 10_000);
+
+        //then
+        List<HotKeySketch.HotKey> hotKeys = sketch.getHotKeys();
+        assertEquals("slow", hotKeys.get(0).getValue());
+        assertEquals(10_000, hotKeys.get(0).getWaitNanos());
+        assertEquals("frequent", hotKeys.get(1).getValue());
+        assertEquals(1000, hotKeys.get(1).getWaitNanos());
+    }
+
+    @Test
+    void shouldForgetValuesOnReset() {
+        //given
+        HotKeySketch sketch = new HotKeySketch(2);
+        sketch.record("hot", 1000);
+
+        //when
+        sketch.reset();
+
+        //then
+        assertTrue(sketch.getHotKeys().isEmpty());
+    }
+}
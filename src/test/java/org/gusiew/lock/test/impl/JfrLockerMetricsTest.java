@@ -0,0 +1,100 @@
+package org.gusiew.lock.test.impl;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.gusiew.lock.impl.jfr.JfrLockerMetrics;
+import org.gusiew.lock.impl.metrics.LockerStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JfrLockerMetricsTest {
+
+    private static final String CONTENDED_EVENT = "org.gusiew.lock.ContendedLock";
+    private static final String LONG_HOLD_EVENT = "org.gusiew.lock.LongHold";
+    private static final long HOLD_MILLIS = 20;
+
+    private final LockerStatistics statistics = new LockerStatistics();
+    private final ReentrantLocker locker = ReentrantLocker.builder()
+            .metrics(new JfrLockerMetrics(statistics, HOLD_MILLIS, TimeUnit.MILLISECONDS))
+            .build();
+
+    @Test
+    void shouldRecordContendedWaitAndLongHold() throws Exception {
+        List<RecordedEvent> events = record(() -> {
+            Mutex mutex = locker.lock("A");
+            Thread waiter = new Thread(() -> locker.lock("A").release(), "waiter");
+            waiter.start();
+            sleepUntilWaiting();
+            Thread.sleep(HOLD_MILLIS);
+            mutex.release();
+            waiter.join();
+        });
+
+        RecordedEvent contended = single(events, CONTENDED_EVENT);
+        assertEquals("A", contended.getString("value"));
+        assertEquals("waiter", contended.getThread().getJavaName());
+        assertEquals(Thread.currentThread().getName(), contended.getThread("holder").getJavaName());
+        assertTrue(contended.getDuration("waitTime").toMillis() >= HOLD_MILLIS);
+
+        //Holds of other threads may exceed threshold too when they are descheduled
+        RecordedEvent longHold = single(events.stream()
+                .filter(e -> e.getThread().getJavaName().equals(Thread.currentThread().getName()))
+                .collect(toList()), LONG_HOLD_EVENT);
+        assertEquals("A", longHold.getString("value"));
+        assertTrue(longHold.getDuration("holdTime").toMillis() >= HOLD_MILLIS);
+
+        assertEquals(1, statistics.getContendedAcquisitions());
+    }
+
+    private void sleepUntilWaiting() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (statistics.getWaiters() == 0) {
+            assertTrue(System.nanoTime() < deadline, "Waiter not registered in time");
+            Thread.sleep(1);
+        }
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> named = events.stream().filter(e -> e.getEventType().getName().equals(name)).collect(toList());
+        assertEquals(1, named.size());
+        return named.get(0);
+    }
+
+    private static List<RecordedEvent> record(Scenario scenario) throws Exception {
+        Path file = Files.createTempFile("locker", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(CONTENDED_EVENT);
+            recording.enable(LONG_HOLD_EVENT);
+            recording.start();
+            scenario.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+
+    @FunctionalInterface
+    private interface Scenario {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,194 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.Leases;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.gusiew.lock.impl.exception.MutexException;
+import org.gusiew.lock.impl.exception.MutexLeaseExpiredException;
+import org.gusiew.lock.impl.metrics.LockerStatistics;
+import org.gusiew.lock.test.impl.util.TestReentrantLocker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.gusiew.lock.test.impl.util.AwaitUtil.awaitQuietly;
+import static org.gusiew.lock.test.impl.util.Assertions.assertActiveMutexesEmpty;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeasesTest {
+
+    private static final String VALUE_A = "A";
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private final CountDownLatch expired = new CountDownLatch(1);
+    private final AtomicReference<Object> expiredValue = new AtomicReference<>();
+    private final AtomicReference<Thread> expiredHolder = new AtomicReference<>();
+    private final AtomicReference<StackTraceElement[]> expiredStackTrace = new AtomicReference<>();
+    private final Leases leases = new Leases((value, holder, stackTrace) -> {
+        expiredValue.set(value);
+        expiredHolder.set(holder);
+        expiredStackTrace.set(stackTrace);
+        expired.countDown();
+    }, 5, TimeUnit.MILLISECONDS, 4);
+    private final ReentrantLocker locker = ReentrantLocker.builder().leases(leases).build();
+
+    @AfterEach
+    void close() {
+        leases.close();
+    }
+
+    @Test
+    void shouldHandLockToWaiterAndReportStalledHolderWhenLeaseExpires() throws Exception {
+        //given
+        Mutex mutex = locker.lockWithLease(VALUE_A, 50, TimeUnit.MILLISECONDS);
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> {
+            locker.lock(VALUE_A).release();
+            return true;
+        });
+
+        //when
+        boolean acquired = waiting.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        //then
+        assertTrue(acquired);
+        assertTrue(expired.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(VALUE_A, expiredValue.get());
+        assertSame(Thread.currentThread(), expiredHolder.get());
+        assertTrue(Arrays.stream(expiredStackTrace.get())
+                .anyMatch(e -> e.getMethodName().equals("shouldHandLockToWaiterAndReportStalledHolderWhenLeaseExpires")));
+        assertThrows(MutexLeaseExpiredException.class, mutex::release);
+    }
+
+    @Test
+    void shouldReportExpiryToHolderThatReleasesWhileLeaseIsExpiring() throws Exception {
+        //given
+        Thread holder = Thread.currentThread();
+        CountDownLatch expiring = new CountDownLatch(1);
+        CountDownLatch holderReleasing = new CountDownLatch(1);
+        ReentrantLocker slowlyExpiringLocker = ReentrantLocker.builder()
+                .leases(leases)
+                .metrics(new LockerStatistics() {
+                    @Override
+                    public void released(Object value, long holdNanos) {
+                        super.released(value, holdNanos);
+                        if(Thread.currentThread() != holder) {
+                            expiring.countDown();
+                            awaitQuietly(holderReleasing);
+                        }
+                    }
+                })
+                .build();
+        Mutex mutex = slowlyExpiringLocker.lockWithLease(VALUE_A, 10, TimeUnit.MILLISECONDS);
+
+        //when
+        assertTrue(expiring.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        //then
+        assertThrows(MutexLeaseExpiredException.class, mutex::release);
+        holderReleasing.countDown();
+        assertTrue(expired.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        Mutex other = slowlyExpiringLocker.tryLock(VALUE_A);
+        assertNotNull(other);
+        other.release();
+    }
+
+    @Test
+    void shouldTakeAllEntrancesOfHolder() throws Exception {
+        //given
+        Mutex outer = locker.lockWithLease(VALUE_A, 20, TimeUnit.MILLISECONDS);
+        Mutex inner = locker.lockWithLease(VALUE_A, 1, TimeUnit.DAYS);
+
+        //when
+        assertTrue(expired.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        //then
+        Mutex other = CompletableFuture.supplyAsync(() -> locker.tryLock(VALUE_A)).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertNotNull(other);
+        assertThrows(MutexLeaseExpiredException.class, inner::release);
+        assertNotNull(outer);
+    }
+
+    @Test
+    void shouldNotExpireLeaseReleasedInTime() throws Exception {
+        //given
+        Mutex outer = locker.lockWithLease(VALUE_A, 20, TimeUnit.MILLISECONDS);
+        Mutex inner = locker.lock(VALUE_A);
+
+        //when
+        inner.release();
+        outer.release();
+        Mutex mutex = locker.lock(VALUE_A);
+
+        //then
+        assertFalse(expired.await(60, TimeUnit.MILLISECONDS));
+        assertNull(CompletableFuture.supplyAsync(() -> locker.tryLock(VALUE_A)).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        mutex.release();
+    }
+
+    @Test
+    void shouldNotExpireLeaseBeforeItsTimeWhenLongerThanWheelTurn() throws Exception {
+        //given
+        long startNanos = System.nanoTime();
+        Mutex mutex = locker.lockWithLease(VALUE_A, 100, TimeUnit.MILLISECONDS);
+
+        //when
+        assertTrue(expired.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        //then
+        assertTrue(System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertThrows(MutexLeaseExpiredException.class, mutex::release);
+    }
+
+    @Test
+    void shouldKeepLockUsableWhenLeasesExpireWhileHoldersReenterAndRelease() throws Exception {
+        //given
+        TestReentrantLocker testLocker = new TestReentrantLocker(locker);
+        List<Thread> threads = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 1_000; i++) {
+                    try {
+                        Mutex outer = locker.lockWithLease(VALUE_A, i % 3, TimeUnit.MILLISECONDS);
+                        if(i % 10 == 0) {
+                            //Stalls past the lease
+                            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(3));
+                        }
+                        locker.lock(VALUE_A).release();
+                        outer.release();
+                    } catch (MutexException e) {
+                        //Lease expired, lock may have been taken by other thread already
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            }));
+        }
+
+        //when
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(TIMEOUT_MILLIS);
+        }
+
+        //then
+        assertNull(failure.get());
+        Mutex mutex = testLocker.tryLock(VALUE_A, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertNotNull(mutex);
+        mutex.release();
+        assertActiveMutexesEmpty(testLocker);
+    }
+
+    @Test
+    void shouldRequireLeases() {
+        assertThrows(IllegalStateException.class, () -> new ReentrantLocker().lockWithLease(VALUE_A, 1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,144 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.gusiew.lock.impl.metrics.HotKeySketch;
+import org.gusiew.lock.impl.metrics.LatencyHistogram;
+import org.gusiew.lock.impl.metrics.LockerStatistics;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LockerStatisticsTest {
+
+    private static final String VALUE_A = "A";
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private final LockerStatistics statistics = new LockerStatistics(new HotKeySketch(4));
+    private final ReentrantLocker locker = ReentrantLocker.builder().metrics(statistics).build();
+
+    @Test
+    void shouldCountUncontendedAndReentrantAcquisitions() {
+        //when
+        Mutex first = locker.lock(VALUE_A);
+        Mutex second = locker.lock(VALUE_A);
+
+        //then
+        assertEquals(2, statistics.getAcquisitions());
+        assertEquals(1, statistics.getReentrantAcquisitions());
+        assertEquals(0, statistics.getContendedAcquisitions());
+        assertEquals(1, statistics.getActiveMutexes());
+
+        second.release();
+        assertEquals(0, statistics.getHoldTime().getCount());
+        first.release();
+        assertEquals(1, statistics.getHoldTime().getCount());
+        assertEquals(0, statistics.getActiveMutexes());
+    }
+
+    @Test
+    void shouldRecordContendedAcquisitionAndWaiters() throws Exception {
+        //given
+        Mutex mutex = locker.lock(VALUE_A);
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            locker.lock(VALUE_A).release();
+            acquired.countDown();
+        });
+
+        //when
+        waiter.start();
+        awaitWaiters(1);
+        Thread.sleep(10);
+        mutex.release();
+        assertTrue(acquired.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        waiter.join();
+
+        //then
+        assertEquals(2, statistics.getAcquisitions());
+        assertEquals(1, statistics.getContendedAcquisitions());
+        assertTrue(statistics.getWaitTimeMax() >= TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(0, statistics.getWaiters());
+        assertEquals(0, statistics.getActiveMutexes());
+        assertEquals(2, statistics.getHoldTime().getCount());
+        assertArrayEquals(new String[]{"A 100.0%"}, statistics.getHotKeys());
+    }
+
+    @Test
+    void shouldRecordAsynchronousAcquisitionHandedOver() throws Exception {
+        //given
+        Mutex mutex = locker.lock(VALUE_A);
+
+        //when
+        CompletableFuture<Mutex> future = locker.lockAsync(VALUE_A, Runnable::run);
+        assertEquals(1, statistics.getWaiters());
+        mutex.release();
+        future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS).release();
+
+        //then
+        assertEquals(2, statistics.getAcquisitions());
+        assertEquals(1, statistics.getContendedAcquisitions());
+        assertEquals(0, statistics.getWaiters());
+        assertEquals(0, statistics.getActiveMutexes());
+        assertEquals(2, statistics.getHoldTime().getCount());
+    }
+
+    @Test
+    void shouldExposeStatisticsViaJmx() throws Exception {
+        //given
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = statistics.registerMBean("test");
+        try {
+            //when
+            locker.lock(VALUE_A).release();
+
+            //then
+            assertEquals(1L, server.getAttribute(name, "Acquisitions"));
+            assertEquals(0L, server.getAttribute(name, "ActiveMutexes"));
+            server.invoke(name, "reset", new Object[0], new String[0]);
+            assertEquals(0L, server.getAttribute(name, "Acquisitions"));
+        } finally {
+            statistics.unregisterMBean("test");
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    void histogramShouldReportPercentilesWithBoundedError() {
+        //given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        //when
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        //then
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_500, histogram.getMean(), 1);
+        assertWithinRelativeError(5_000_000, histogram.getValueAtPercentile(50));
+        assertWithinRelativeError(9_900_000, histogram.getValueAtPercentile(99));
+        assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+        assertEquals(0, new LatencyHistogram().getValueAtPercentile(99));
+    }
+
+    private static void assertWithinRelativeError(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / 16, "Value " + actual);
+    }
+
+    private void awaitWaiters(int numberOfWaiters) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (statistics.getWaiters() != numberOfWaiters) {
+            assertTrue(System.nanoTime() < deadline, "Waiters not registered in time");
+            Thread.sleep(1);
+        }
+    }
+}
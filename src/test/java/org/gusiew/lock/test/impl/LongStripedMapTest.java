@@ -0,0 +1,79 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.impl.util.LongStripedMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongStripedMapTest {
+
+    @Test
+    void shouldBehaveAsMapOfBoxedKeysForRandomOperations() {
+        //given
+        LongStripedMap<Object> map = new LongStripedMap<>(1);
+        Map<Long, Object> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        //when
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(512) - 256L;
+            if(random.nextBoolean()) {
+                Object value = new Object();
+                Object previous = map.putIfAbsent(key, value);
+                assertSame(expected.putIfAbsent(key, value), previous);
+            } else {
+                Object current = expected.get(key);
+                map.remove(key, random.nextInt(4) == 0 ? new Object() : current);
+                if(current != null && map.get(key) == null) {
+                    expected.remove(key);
+                }
+            }
+
+            //then
+            assertSame(expected.get(key), map.get(key));
+        }
+        for (long key = -256; key < 256; key++) {
+            assertSame(expected.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    void shouldRemoveOnlyGivenValueInstance() {
+        //given
+        LongStripedMap<Object> map = new LongStripedMap<>(16);
+        Object value = new Object();
+        map.putIfAbsent(Long.MIN_VALUE, value);
+
+        //when
+        map.remove(Long.MIN_VALUE, new Object());
+
+        //then
+        assertSame(value, map.get(Long.MIN_VALUE));
+        map.remove(Long.MIN_VALUE, value);
+        assertNull(map.get(Long.MIN_VALUE));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void shouldBeEmptyAfterAllKeysRemoved() {
+        //given
+        LongStripedMap<Object> map = new LongStripedMap<>(4);
+        Object value = new Object();
+        for (long key = 0; key < 10_000; key++) {
+            map.putIfAbsent(key * 31, value);
+        }
+
+        //when
+        for (long key = 0; key < 10_000; key++) {
+            map.remove(key * 31, value);
+        }
+
+        //then
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0));
+    }
+}
@@ -0,0 +1,206 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.api.Locker;
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.MappedFileLocker;
+import org.gusiew.lock.impl.exception.MutexHeldByOtherThreadException;
+import org.gusiew.lock.impl.exception.MutexNotActiveException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lockers mapping the same file behave as separate processes, each has its own owner word
+ */
+class MappedFileLockerTest {
+
+    private static final String VALUE_A = "A";
+    private static final String VALUE_B = "B";
+    private static final String LOCKED = "locked";
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private final Path file;
+    private final Locker locker;
+    private final Locker otherProcessLocker;
+
+    MappedFileLockerTest() throws IOException {
+        file = Files.createTempFile("locker", ".locks");
+        locker = new MappedFileLocker(file, 256);
+        otherProcessLocker = new MappedFileLocker(file, 256);
+    }
+
+    @AfterEach
+    void deleteFile() throws IOException {
+        Files.delete(file);
+    }
+
+    @Test
+    void shouldHoldSlotUntilOutermostRelease() throws Exception {
+        //given
+        Mutex first = locker.lock(VALUE_A);
+        Mutex second = locker.lock(VALUE_A);
+
+        //when
+        second.release();
+
+        //then
+        assertNull(otherProcessLocker.tryLock(VALUE_A));
+        first.release();
+        assertThrows(MutexNotActiveException.class, first::release);
+        otherProcessLocker.tryLock(VALUE_A).release();
+    }
+
+    @Test
+    void shouldNotReleaseSlotHeldByOtherThread() throws Exception {
+        //given
+        Mutex mutex = locker.lock(VALUE_A);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        //when
+        Thread thread = new Thread(() -> {
+            try {
+                mutex.release();
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        //then
+        assertTrue(failure.get() instanceof MutexHeldByOtherThreadException);
+        assertNull(otherProcessLocker.tryLock(VALUE_A));
+        assertNull(otherProcessLocker.tryLock(VALUE_A, -1, TimeUnit.NANOSECONDS));
+        mutex.release();
+    }
+
+    @Test
+    void shouldWaitUntilOtherProcessReleases() throws Exception {
+        //given
+        Mutex mutex = locker.lock(VALUE_A);
+        CompletableFuture<Mutex> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return otherProcessLocker.tryLock(VALUE_A, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        //when
+        Thread.sleep(10);
+        assertFalse(waiting.isDone());
+        mutex.release();
+
+        //then
+        Mutex acquired = waiting.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertNotNull(acquired);
+        assertNull(locker.tryLock(VALUE_A));
+    }
+
+    @Test
+    void shouldTimeOutWhileOtherProcessHolds() throws Exception {
+        //given
+        Mutex mutex = locker.lock(VALUE_A);
+
+        //when
+        Mutex acquired = otherProcessLocker.tryLock(VALUE_A, 20, TimeUnit.MILLISECONDS);
+
+        //then
+        assertNull(acquired);
+        mutex.release();
+        assertNotNull(locker.tryLock(VALUE_A));
+    }
+
+    @Test
+    void shouldLockAllAndAsynchronously() throws Exception {
+        //given
+        Mutex all = locker.lockAll(Arrays.asList(VALUE_A, VALUE_B, VALUE_A));
+
+        //when
+        CompletableFuture<Mutex> future = otherProcessLocker.lockAsync(VALUE_B, runnable -> new Thread(runnable).start());
+        assertNull(otherProcessLocker.tryLock(VALUE_A));
+        all.release();
+
+        //then
+        Mutex mutex = future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertNull(locker.tryLock(VALUE_B));
+        assertNotNull(locker.tryLock(VALUE_A));
+        mutex.release();
+        assertThrows(MutexNotActiveException.class, mutex::release);
+        assertEquals("B", locker.combine(VALUE_B, v -> v));
+    }
+
+    @Test
+    void shouldFailAsynchronousLockWhenExecutorRejects() throws Exception {
+        //when
+        CompletableFuture<Mutex> future = locker.lockAsync(VALUE_A, runnable -> {
+            throw new RejectedExecutionException();
+        });
+
+        //then
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertTrue(thrown.getCause() instanceof RejectedExecutionException);
+        Mutex mutex = otherProcessLocker.tryLock(VALUE_A);
+        assertNotNull(mutex);
+        mutex.release();
+    }
+
+    @Test
+    void shouldTakeOverSlotOfDeadProcess() throws Exception {
+        //given
+        Process process = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), HolderProcess.class.getName(), file.toString())
+                .redirectErrorStream(true)
+                .start();
+        try {
+            BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals(LOCKED, output.readLine());
+            assertNull(locker.tryLock(VALUE_A));
+
+            //when
+            process.destroyForcibly();
+            assertTrue(process.waitFor(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+            //then
+            Mutex mutex = locker.tryLock(VALUE_A, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertNotNull(mutex);
+            mutex.release();
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    @Test
+    void shouldRejectTableOfDifferentSize() {
+        assertThrows(IllegalArgumentException.class, () -> new MappedFileLocker(file, 1024));
+        assertThrows(IllegalArgumentException.class, () -> new MappedFileLocker(file, 0));
+    }
+
+    /**
+     * Locks value A and holds it until killed
+     */
+    public static class HolderProcess {
+
+        public static void main(String[] args) throws Exception {
+            new MappedFileLocker(Paths.get(args[0]), 256).lock(VALUE_A);
+            System.out.println(LOCKED);
+            System.out.flush();
+            Thread.sleep(Long.MAX_VALUE);
+        }
+    }
+}
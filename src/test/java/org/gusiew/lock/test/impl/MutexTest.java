@@ -9,7 +9,7 @@ import static org.gusiew.lock.api.Mutex.withRunnable;
 import static org.gusiew.lock.api.Mutex.withThrowsRunnable;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
-import static org.mockito.Matchers.any;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 class MutexTest {
@@ -0,0 +1,161 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.PooledReentrantLocker;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.gusiew.lock.impl.exception.MutexNotActiveException;
+import org.gusiew.lock.test.impl.util.Assertions;
+import org.gusiew.lock.test.impl.util.TestReentrantLocker;
+import org.gusiew.lock.test.impl.util.TestReentrantMutex;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PooledReentrantLockerTest extends AbstractReentrantLockerTest {
+
+    private final PooledReentrantLocker pooledLocker = ReentrantLocker.builder().buildPooled();
+
+    PooledReentrantLockerTest() {
+        locker = new TestReentrantLocker(pooledLocker);
+    }
+
+    @Test
+    void shouldReuseReleasedMutexForOtherValue() {
+        //given
+        TestReentrantMutex first = locker.lock(VALUE_A);
+        first.release();
+
+        //when
+        TestReentrantMutex second = locker.lock(VALUE_B);
+
+        //then
+        assertSame(first, second);
+        assertEquals(VALUE_B, second.getLock());
+        Assertions.assertActiveAndHeldByCurrentThreadWithEntrances(locker, second, 1);
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+
+        second.release();
+        Assertions.assertNotActive(locker, second);
+    }
+
+    @Test
+    void shouldThrowOnReleaseOfPooledMutex() {
+        //given
+        TestReentrantMutex mutex = locker.lock(VALUE_A);
+        mutex.release();
+
+        //then
+        assertThrows(MutexNotActiveException.class, mutex::release);
+    }
+
+    @Test
+    void shouldNotReuseMutexRecycledByOtherThread() throws InterruptedException {
+        //given
+        AtomicReference<TestReentrantMutex> released = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            TestReentrantMutex mutex = locker.lock(VALUE_A);
+            mutex.release();
+            released.set(mutex);
+        });
+        thread.start();
+        thread.join();
+
+        //when
+        TestReentrantMutex mutex = locker.lock(VALUE_B);
+
+        //then
+        assertNotSame(released.get(), mutex);
+        mutex.release();
+    }
+
+    @Test
+    void shouldReuseMutexForAsynchronousAcquisition() {
+        //given
+        TestReentrantMutex mutex = locker.lock(VALUE_A);
+        mutex.release();
+
+        //when
+        locker.lockAsync(VALUE_B, Runnable::run).join().release();
+
+        //then
+        Assertions.assertMutexNotActive(locker, VALUE_B);
+        assertSame(mutex, locker.lock(VALUE_C));
+        mutex.release();
+    }
+
+    @Test
+    void shouldThrowOnReleaseOfHandleWhoseMutexWasReusedForOtherValue() {
+        //given
+        Mutex stale = pooledLocker.lock(VALUE_A);
+        stale.release();
+        Mutex mutex = pooledLocker.lock(VALUE_B);
+
+        //then
+        assertThrows(MutexNotActiveException.class, stale::release);
+        mutex.release();
+        Assertions.assertMutexNotActive(locker, VALUE_B);
+    }
+
+    @Test
+    void shouldRecycleHandlesWithMutex() {
+        //given
+        Mutex first = pooledLocker.lock(VALUE_A);
+        Mutex reentered = pooledLocker.lock(VALUE_A);
+        reentered.release();
+        first.release();
+        Mutex second = pooledLocker.lock(VALUE_B);
+        second.release();
+
+        //when
+        Mutex third = pooledLocker.lock(VALUE_C);
+
+        //then
+        assertSame(first, reentered);
+        assertNotSame(first, second);
+        assertSame(first, third);
+        third.release();
+        Assertions.assertActiveMutexesEmpty(locker);
+    }
+
+    @Test
+    void shouldNotReleaseReentrantAcquisitionOfReusedMutexWithStaleHandle() {
+        //given
+        Mutex stale = pooledLocker.lock(VALUE_A);
+        stale.release();
+        Mutex outer = pooledLocker.lock(VALUE_B);
+        Mutex inner = pooledLocker.lock(VALUE_B);
+
+        //then
+        assertThrows(MutexNotActiveException.class, stale::release);
+        inner.release();
+        outer.release();
+        assertThrows(MutexNotActiveException.class, outer::release);
+    }
+
+    @Test
+    void shouldThrowOnReleaseOfAsynchronousHandleWhoseMutexWasReused() {
+        //given
+        Mutex stale = pooledLocker.lockAsync(VALUE_A, Runnable::run).join();
+        stale.release();
+        Mutex mutex = pooledLocker.lock(VALUE_B);
+
+        //then
+        assertThrows(MutexNotActiveException.class, stale::release);
+        mutex.release();
+    }
+
+    @Test
+    void shouldThrowOnReleaseOfLockAllHandleWhoseMutexesWereReused() {
+        //given
+        Mutex stale = pooledLocker.lockAll(Arrays.asList(VALUE_A, VALUE_B));
+        stale.release();
+        Mutex mutex = pooledLocker.lock(VALUE_C);
+
+        //then
+        assertThrows(MutexNotActiveException.class, stale::release);
+        mutex.release();
+    }
+}
@@ -0,0 +1,296 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.impl.DeadlockDetector;
+import org.gusiew.lock.impl.Leases;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.gusiew.lock.impl.WaitStrategies;
+import org.gusiew.lock.impl.metrics.LockerStatistics;
+import org.gusiew.lock.test.impl.util.TestReentrantLocker;
+import org.gusiew.lock.test.impl.util.TestReentrantMutex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.gusiew.lock.test.impl.util.AwaitUtil.awaitQuietly;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class ReentrantLockerStressTest extends AbstractReentrantLockerTest {
+
+    private static final int NUMBER_OF_THREADS = 8;
+    private static final int ITERATIONS = 20_000;
+    private static final int NUMBER_OF_KEYS = 4;
+    private static final long TIMEOUT_MILLIS = 60_000;
+
+    /**
+     * Checks and clean up of current configuration, run after each test
+     */
+    private final List<Runnable> afterTest = new ArrayList<>();
+
+    private static Stream<Configuration> configurations() {
+        return Stream.of(
+                configuration("default", afterTest -> new TestReentrantLocker(new ReentrantLocker())),
+                configuration("fair", afterTest -> new TestReentrantLocker(ReentrantLocker.builder().fair(true).build())),
+                configuration("pooled", afterTest -> new TestReentrantLocker(ReentrantLocker.builder().buildPooled())),
+                configuration("metered", afterTest -> {
+                    LockerStatistics statistics = new LockerStatistics();
+                    afterTest.add(() -> assertGaugesBalanced(statistics));
+                    return new TestReentrantLocker(ReentrantLocker.builder().fair(true).metrics(statistics).buildPooled());
+                }),
+                configuration("deadlock detecting", afterTest -> new TestReentrantLocker(
+                        ReentrantLocker.builder().deadlockDetector(new DeadlockDetector()).buildPooled())),
+                configuration("spinning", afterTest -> new TestReentrantLocker(
+                        ReentrantLocker.builder().waitStrategy(WaitStrategies.adaptive()).build())),
+                configuration("leased", afterTest -> {
+                    Leases leases = new Leases((value, holder, stackTrace) -> {});
+                    afterTest.add(leases::close);
+                    return new TestReentrantLocker(ReentrantLocker.builder().leases(leases).build());
+                })
+        );
+    }
+
+    @AfterEach
+    void runAfterTest() {
+        afterTest.forEach(Runnable::run);
+    }
+
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void shouldProvideMutualExclusionWhenLockAndReleaseRace(Configuration configuration) throws InterruptedException {
+        //given
+        locker = configuration.create(afterTest);
+        long[] counters = new long[NUMBER_OF_KEYS];
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < NUMBER_OF_THREADS; t++) {
+            Thread thread = new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < ITERATIONS; i++) {
+                    int key = i % NUMBER_OF_KEYS;
+                    TestReentrantMutex m = locker.lock(key);
+                    counters[key]++;
+                    m.release();
+                }
+            });
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        //when
+        start.countDown();
+        joinAll(threads);
+
+        //then
+        long[] expected = new long[NUMBER_OF_KEYS];
+        Arrays.fill(expected, (long) NUMBER_OF_THREADS * ITERATIONS / NUMBER_OF_KEYS);
+        assertArrayEquals(expected, counters);
+    }
+
+    /**
+     * Thread that gives up waiting must pass on wakeup it consumed, otherwise thread waiting in lock
+     * is never woken up and does not finish in time
+     */
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void shouldNotLoseWakeupsWhenWaitingThreadsTimeOut(Configuration configuration) throws InterruptedException {
+        //given
+        locker = configuration.create(afterTest);
+        long[] counters = new long[NUMBER_OF_KEYS];
+        long[] acquired = new long[NUMBER_OF_THREADS];
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < NUMBER_OF_THREADS; t++) {
+            int threadIndex = t;
+            Thread thread = new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < ITERATIONS; i++) {
+                    int key = i % NUMBER_OF_KEYS;
+                    TestReentrantMutex m = threadIndex % 2 == 0 ? locker.lock(key) : tryLockQuietly(key);
+                    if(m != null) {
+                        counters[key]++;
+                        acquired[threadIndex]++;
+                        m.release();
+                    }
+                }
+            });
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        //when
+        start.countDown();
+        joinAll(threads);
+
+        //then
+        for (int t = 0; t < NUMBER_OF_THREADS; t += 2) {
+            assertEquals(ITERATIONS, acquired[t]);
+        }
+        assertEquals(Arrays.stream(acquired).sum(), Arrays.stream(counters).sum());
+    }
+
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void shouldProvideMutualExclusionBetweenThreadsAndAsyncAcquisitions(Configuration configuration) throws InterruptedException {
+        //given
+        locker = configuration.create(afterTest);
+        long[] counters = new long[NUMBER_OF_KEYS];
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<CompletableFuture<Void>> asyncAcquisitions = new CopyOnWriteArrayList<>();
+
+        for (int t = 0; t < NUMBER_OF_THREADS; t++) {
+            int threadIndex = t;
+            Thread thread = new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < ITERATIONS; i++) {
+                    int key = i % NUMBER_OF_KEYS;
+                    if(threadIndex % 2 == 0) {
+                        TestReentrantMutex m = locker.lock(key);
+                        counters[key]++;
+                        m.release();
+                    } else if(i % 16 == 0) {
+                        asyncAcquisitions.add(locker.lockAsync(key, executor).thenAccept(m -> {
+                            counters[key]++;
+                            m.release();
+                        }));
+                    }
+                }
+            });
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        //when
+        start.countDown();
+        joinAll(threads);
+        try {
+            CompletableFuture.allOf(asyncAcquisitions.toArray(new CompletableFuture[0]))
+                    .get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            fail("Asynchronous acquisitions did not complete: " + e);
+        } finally {
+            executor.shutdown();
+        }
+
+        //then
+        long expected = (long) (NUMBER_OF_THREADS / 2) * ITERATIONS + asyncAcquisitions.size();
+        assertEquals(expected, Arrays.stream(counters).sum());
+    }
+
+    @ParameterizedTest
+    @MethodSource("configurations")
+    void shouldProvideMutualExclusionBetweenLockingAndCombiningThreads(Configuration configuration) throws InterruptedException {
+        //given
+        locker = configuration.create(afterTest);
+        long[] counters = new long[NUMBER_OF_KEYS];
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < NUMBER_OF_THREADS; t++) {
+            int threadIndex = t;
+            Thread thread = new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < ITERATIONS; i++) {
+                    int key = i % NUMBER_OF_KEYS;
+                    if(threadIndex % 4 == 0) {
+                        TestReentrantMutex m = locker.lock(key);
+                        counters[key]++;
+                        m.release();
+                    } else {
+                        locker.combine(key, k -> counters[key]++);
+                    }
+                }
+            });
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        //when
+        start.countDown();
+        joinAll(threads);
+
+        //then
+        long[] expected = new long[NUMBER_OF_KEYS];
+        Arrays.fill(expected, (long) NUMBER_OF_THREADS * ITERATIONS / NUMBER_OF_KEYS);
+        assertArrayEquals(expected, counters);
+    }
+
+    private TestReentrantMutex tryLockQuietly(Object value) {
+        try {
+            return locker.tryLock(value, 1, TimeUnit.MICROSECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Thread that does not finish in time waits for a wakeup that never comes
+     */
+    private static void joinAll(List<Thread> threads) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        for (Thread thread : threads) {
+            thread.join(Math.max(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), 1));
+            assertFalse(thread.isAlive(), thread.getName() + " did not finish");
+        }
+    }
+
+    private static void assertGaugesBalanced(LockerStatistics statistics) {
+        assertEquals(0, statistics.getActiveMutexes());
+        assertEquals(0, statistics.getWaiters());
+        assertEquals(statistics.getAcquisitions() - statistics.getReentrantAcquisitions(),
+                statistics.getHoldTime().getCount());
+    }
+
+    private static Configuration configuration(String name, Function<List<Runnable>, TestReentrantLocker> factory) {
+        return new Configuration(name, factory);
+    }
+
+    /**
+     * Locker settings the tests run with
+     */
+    private static final class Configuration {
+
+        private final String name;
+        /**
+         * Creates locker for a test, registers checks and clean up to run after the test
+         */
+        private final Function<List<Runnable>, TestReentrantLocker> factory;
+
+        private Configuration(String name, Function<List<Runnable>, TestReentrantLocker> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        TestReentrantLocker create(List<Runnable> afterTest) {
+            return factory.apply(afterTest);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
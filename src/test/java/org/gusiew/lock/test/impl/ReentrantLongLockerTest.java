@@ -0,0 +1,122 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.ReentrantIntLocker;
+import org.gusiew.lock.impl.ReentrantLongLocker;
+import org.gusiew.lock.impl.exception.MutexHeldByOtherThreadException;
+import org.gusiew.lock.impl.exception.MutexNotActiveException;
+import org.gusiew.lock.impl.util.LongStripedMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.gusiew.lock.test.impl.util.AwaitUtil.awaitQuietly;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReentrantLongLockerTest {
+
+    private static final long VALUE_A = 1L << 40;
+    private static final long VALUE_B = -7L;
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private final ReentrantLongLocker locker = new ReentrantLongLocker();
+
+    @AfterEach
+    void checkActiveMutexesEmpty() {
+        assertTrue(activeMutexesEmpty(locker));
+    }
+
+    @Test
+    void shouldLockReenterAndRelease() {
+        //when
+        Mutex first = locker.lock(VALUE_A);
+        Mutex second = locker.lock(VALUE_A);
+        Mutex other = locker.lock(VALUE_B);
+
+        //then
+        assertSame(first, second);
+        assertNotSame(first, other);
+        second.release();
+        first.release();
+        other.release();
+        assertThrows(MutexNotActiveException.class, first::release);
+    }
+
+    @Test
+    void shouldNotLockValueHeldByOtherThread() throws InterruptedException {
+        //given
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicReference<Mutex> held = new AtomicReference<>();
+        Thread holder = new Thread(() -> {
+            held.set(locker.lock(VALUE_A));
+            locked.countDown();
+            awaitQuietly(release);
+            held.get().release();
+        });
+        holder.start();
+        locked.await();
+
+        //then
+        assertNull(locker.tryLock(VALUE_A));
+        assertNull(locker.tryLock(VALUE_A, 10, TimeUnit.MILLISECONDS));
+        assertNull(locker.tryLock(VALUE_A, -1, TimeUnit.NANOSECONDS));
+        assertThrows(MutexHeldByOtherThreadException.class, () -> held.get().release());
+
+        release.countDown();
+        holder.join();
+        Mutex mutex = locker.tryLock(VALUE_A, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertNotNull(mutex);
+        mutex.release();
+    }
+
+    @Test
+    void shouldProvideMutualExclusionForIntAndLongLockers() throws InterruptedException {
+        //given
+        ReentrantIntLocker intLocker = new ReentrantIntLocker();
+        int numberOfThreads = 8;
+        int iterations = 10_000;
+        long[][] counters = new long[2][4];
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            int lockerIndex = t % 2;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < iterations; i++) {
+                    int key = i % counters[lockerIndex].length;
+                    Mutex mutex = lockerIndex == 0 ? locker.lock(key) : intLocker.lock(key);
+                    counters[lockerIndex][key]++;
+                    mutex.release();
+                }
+            }));
+        }
+
+        //when
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        //then
+        for (long[] lockerCounters : counters) {
+            for (long counter : lockerCounters) {
+                assertEquals((long) numberOfThreads / 2 * iterations / lockerCounters.length, counter);
+            }
+        }
+    }
+
+    private static boolean activeMutexesEmpty(ReentrantLongLocker locker) {
+        try {
+            Field field = ReentrantLongLocker.class.getDeclaredField("locks");
+            field.setAccessible(true);
+            return ((LongStripedMap<?>) field.get(locker)).isEmpty();
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
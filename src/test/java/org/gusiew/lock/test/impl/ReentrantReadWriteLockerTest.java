@@ -0,0 +1,273 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.ReentrantReadWriteLocker;
+import org.gusiew.lock.impl.exception.MutexHeldByOtherThreadException;
+import org.gusiew.lock.impl.exception.MutexNotActiveException;
+import org.gusiew.lock.impl.util.StripedMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReentrantReadWriteLockerTest {
+
+    private static final String VALUE_A = "A";
+    private static final String VALUE_A_OTHER_INSTANCE = new String(VALUE_A);
+    private static final long TIMEOUT_MILLIS = 5000;
+    private static final long MINIMAL_DELAY_MILLIS = 50;
+
+    private ReentrantReadWriteLocker locker = new ReentrantReadWriteLocker();
+
+    @AfterEach
+    void checkActiveMutexesEmpty() {
+        assertTrue(activeMutexesEmpty(locker));
+    }
+
+    @Test
+    void shouldLetReadersShareLock() throws InterruptedException {
+        //given
+        Mutex read = locker.readLock(VALUE_A);
+
+        //when
+        ReadingThread otherReader = ReadingThread.start(locker, VALUE_A_OTHER_INSTANCE);
+
+        //then
+        assertTrue(otherReader.awaitLocked());
+        read.release();
+        otherReader.releaseAndJoin();
+    }
+
+    @Test
+    void shouldMakeWriterWaitForReaders() throws InterruptedException {
+        //given
+        Mutex read = locker.readLock(VALUE_A);
+        CountDownLatch writeAcquired = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            Mutex write = locker.writeLock(VALUE_A);
+            writeAcquired.countDown();
+            write.release();
+        });
+
+        //when
+        writer.start();
+
+        //then
+        assertFalse(writeAcquired.await(MINIMAL_DELAY_MILLIS, TimeUnit.MILLISECONDS));
+        read.release();
+        assertTrue(writeAcquired.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        writer.join();
+    }
+
+    @Test
+    void shouldMakeReaderWaitForWriter() throws InterruptedException {
+        //given
+        Mutex write = locker.writeLock(VALUE_A);
+        CountDownLatch readAcquired = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            Mutex read = locker.readLock(VALUE_A);
+            readAcquired.countDown();
+            read.release();
+        });
+
+        //when
+        reader.start();
+
+        //then
+        assertFalse(readAcquired.await(MINIMAL_DELAY_MILLIS, TimeUnit.MILLISECONDS));
+        write.release();
+        assertTrue(readAcquired.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        reader.join();
+    }
+
+    @Test
+    void shouldBlockNewReadersWhileWriterWaitsWhenWritersPreferred() throws InterruptedException {
+        //given
+        Mutex read = locker.readLock(VALUE_A);
+        Thread writer = new Thread(() -> locker.writeLock(VALUE_A).release());
+        writer.start();
+        Thread.sleep(MINIMAL_DELAY_MILLIS);
+        CountDownLatch readAcquired = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            Mutex otherRead = locker.readLock(VALUE_A);
+            readAcquired.countDown();
+            otherRead.release();
+        });
+
+        //when
+        reader.start();
+
+        //then
+        assertFalse(readAcquired.await(MINIMAL_DELAY_MILLIS, TimeUnit.MILLISECONDS));
+        Mutex reentrantRead = locker.readLock(VALUE_A);
+        reentrantRead.release();
+        read.release();
+        assertTrue(readAcquired.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        writer.join();
+        reader.join();
+    }
+
+    @Test
+    void shouldLetNewReadersInWhileWriterWaitsWhenWritersNotPreferred() throws InterruptedException {
+        //given
+        locker = new ReentrantReadWriteLocker(16, false);
+        Mutex read = locker.readLock(VALUE_A);
+        Thread writer = new Thread(() -> locker.writeLock(VALUE_A).release());
+        writer.start();
+        Thread.sleep(MINIMAL_DELAY_MILLIS);
+
+        //when
+        ReadingThread otherReader = ReadingThread.start(locker, VALUE_A);
+
+        //then
+        assertTrue(otherReader.awaitLocked());
+        otherReader.releaseAndJoin();
+        read.release();
+        writer.join();
+    }
+
+    @Test
+    void shouldSupportReentrancyAndDowngrade() {
+        //given
+        Mutex write = locker.writeLock(VALUE_A);
+        Mutex reentrantWrite = locker.writeLock(VALUE_A);
+        Mutex read = locker.readLock(VALUE_A);
+        Mutex reentrantRead = locker.readLock(VALUE_A);
+
+        //when
+        reentrantWrite.release();
+        write.release();
+
+        //then
+        reentrantRead.release();
+        read.release();
+        assertThrows(MutexNotActiveException.class, read::release);
+    }
+
+    @Test
+    void shouldRejectUpgradeOfReadLock() {
+        //given
+        Mutex read = locker.readLock(VALUE_A);
+
+        //then
+        assertThrows(IllegalStateException.class, () -> locker.writeLock(VALUE_A));
+        read.release();
+    }
+
+    @Test
+    void shouldNotReleaseLockHeldByOtherThread() throws InterruptedException {
+        //given
+        Mutex write = locker.writeLock(VALUE_A);
+
+        //when
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                write.release();
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        //then
+        assertTrue(thrown.get() instanceof MutexHeldByOtherThreadException);
+        write.release();
+    }
+
+    @Test
+    void optimisticReadShouldValidateWhenNoWriteLockAcquired() {
+        //when
+        long stamp = locker.tryOptimisticRead(VALUE_A);
+        Mutex read = locker.readLock(VALUE_A_OTHER_INSTANCE);
+        read.release();
+
+        //then
+        assertNotEquals(0L, stamp);
+        assertTrue(locker.validate(VALUE_A, stamp));
+        assertTrue(activeMutexesEmpty(locker));
+    }
+
+    @Test
+    void optimisticReadShouldFailWhileWriteLockHeld() {
+        //given
+        Mutex write = locker.writeLock(VALUE_A);
+
+        //when
+        long stamp = locker.tryOptimisticRead(VALUE_A_OTHER_INSTANCE);
+
+        //then
+        assertEquals(0L, stamp);
+        assertFalse(locker.validate(VALUE_A, stamp));
+        write.release();
+    }
+
+    @Test
+    void optimisticReadShouldNotValidateAfterWriteLockAcquired() {
+        //given
+        long stamp = locker.tryOptimisticRead(VALUE_A);
+
+        //when
+        locker.writeLock(VALUE_A).release();
+
+        //then
+        assertFalse(locker.validate(VALUE_A, stamp));
+        assertTrue(locker.validate(VALUE_A, locker.tryOptimisticRead(VALUE_A)));
+    }
+
+    private static boolean activeMutexesEmpty(ReentrantReadWriteLocker locker) {
+        try {
+            Field field = ReentrantReadWriteLocker.class.getDeclaredField("locks");
+            field.setAccessible(true);
+            return ((StripedMap<?, ?>) field.get(locker)).isEmpty();
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static class ReadingThread extends Thread {
+
+        private final ReentrantReadWriteLocker locker;
+        private final Object value;
+        private final CountDownLatch locked = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private ReadingThread(ReentrantReadWriteLocker locker, Object value) {
+            this.locker = locker;
+            this.value = value;
+        }
+
+        static ReadingThread start(ReentrantReadWriteLocker locker, Object value) {
+            ReadingThread thread = new ReadingThread(locker, value);
+            thread.start();
+            return thread;
+        }
+
+        @Override
+        public void run() {
+            Mutex read = locker.readLock(value);
+            locked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            read.release();
+        }
+
+        boolean awaitLocked() throws InterruptedException {
+            return locked.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        void releaseAndJoin() throws InterruptedException {
+            release.countDown();
+            join();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.LockServer;
+import org.gusiew.lock.impl.RemoteLocker;
+import org.gusiew.lock.impl.exception.MutexHeldByOtherThreadException;
+import org.gusiew.lock.impl.exception.MutexNotActiveException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RemoteLockerTest {
+
+    private static final String VALUE_A = "A";
+    private static final long VALUE_B = 2L;
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private final LockServer server;
+    private final RemoteLocker locker;
+    private final RemoteLocker otherClientLocker;
+
+    RemoteLockerTest() throws IOException {
+        server = new LockServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        locker = new RemoteLocker(server.getAddress());
+        otherClientLocker = new RemoteLocker(server.getAddress(), false);
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        locker.close();
+        otherClientLocker.close();
+        server.close();
+    }
+
+    @Test
+    void shouldHoldValueUntilOutermostRelease() throws Exception {
+        //given
+        Mutex first = locker.lock(VALUE_A);
+        Mutex second = locker.lock(VALUE_A);
+
+        //when
+        second.release();
+
+        //then
+        assertNull(otherClientLocker.tryLock(VALUE_A));
+        assertNull(otherClientLocker.tryLock(VALUE_A, 20, TimeUnit.MILLISECONDS));
+        assertNull(otherClientLocker.tryLock(VALUE_A, -1, TimeUnit.NANOSECONDS));
+        first.release();
+        assertThrows(MutexNotActiveException.class, first::release);
+        //release is not acknowledged, other connection may get ahead of it
+        assertNotNull(otherClientLocker.tryLock(VALUE_A, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void shouldNotReleaseValueHeldByOtherThread() throws Exception {
+        //given
+        Mutex mutex = locker.lock(VALUE_A);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        //when
+        Thread thread = new Thread(() -> {
+            try {
+                mutex.release();
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        //then
+        assertTrue(failure.get() instanceof MutexHeldByOtherThreadException);
+        assertNull(otherClientLocker.tryLock(VALUE_A));
+        mutex.release();
+    }
+
+    @Test
+    void shouldGrantValueToWaitingClientOnRelease() throws Exception {
+        //given
+        Mutex mutex = locker.lock(VALUE_A);
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> {
+            otherClientLocker.lock(VALUE_A).release();
+            return true;
+        });
+
+        //when
+        Thread.sleep(10);
+        assertFalse(waiting.isDone());
+        mutex.release();
+
+        //then
+        assertTrue(waiting.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertNotNull(locker.tryLock(VALUE_A, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void shouldReleaseLocksOfClosedClient() throws Exception {
+        //given
+        locker.lock(VALUE_A);
+        locker.lock(VALUE_B);
+
+        //when
+        locker.close();
+
+        //then
+        assertNotNull(otherClientLocker.tryLock(VALUE_A, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertNotNull(otherClientLocker.tryLock(VALUE_B, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertThrows(IllegalStateException.class, () -> locker.lock("C"));
+    }
+
+    @Test
+    void shouldCancelRequestOfInterruptedThread() throws Exception {
+        //given
+        Mutex mutex = locker.lock(VALUE_A);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                otherClientLocker.lockInterruptibly(VALUE_A);
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+
+        //when
+        thread.start();
+        Thread.sleep(10);
+        thread.interrupt();
+        thread.join(TIMEOUT_MILLIS);
+        mutex.release();
+
+        //then
+        assertTrue(failure.get() instanceof InterruptedException);
+        assertNotNull(otherClientLocker.tryLock(VALUE_A, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void shouldLockAllAndAsynchronously() throws Exception {
+        //given
+        Mutex all = locker.lockAll(Arrays.asList(VALUE_A, VALUE_B, VALUE_A));
+
+        //when
+        CompletableFuture<Mutex> future = otherClientLocker.lockAsync(VALUE_B, Runnable::run);
+        assertNull(otherClientLocker.tryLock(VALUE_A));
+        assertFalse(future.isDone());
+        all.release();
+
+        //then
+        Mutex mutex = future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertNull(locker.tryLock(VALUE_B));
+        mutex.release();
+        assertThrows(MutexNotActiveException.class, mutex::release);
+        assertEquals("A", locker.combine(VALUE_A, v -> v));
+        assertThrows(IllegalArgumentException.class, () -> locker.lock(new Object()));
+    }
+
+    @Test
+    void shouldCancelPendingRequestWhenAsynchronousLockIsCancelled() throws Exception {
+        //given
+        Mutex mutex = locker.lock(VALUE_A);
+        CompletableFuture<Mutex> future = otherClientLocker.lockAsync(VALUE_A, Runnable::run);
+        awaitPendingRequests(otherClientLocker, 1);
+
+        //when
+        future.cancel(false);
+
+        //then
+        awaitPendingRequests(otherClientLocker, 0);
+        Mutex local = CompletableFuture.supplyAsync(() -> otherClientLocker.tryLock(VALUE_A)).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertNull(local);
+        mutex.release();
+        assertNotNull(otherClientLocker.tryLock(VALUE_A, TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void shouldExcludeThreadsOfAllClientsPipelinedOverConnections() throws Exception {
+        //given
+        int increments = 200;
+        long[] counter = new long[1];
+        List<Thread> threads = new ArrayList<>();
+        for (RemoteLocker client : Arrays.asList(locker, otherClientLocker, locker, otherClientLocker)) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < increments; i++) {
+                    Mutex mutex = client.lock(VALUE_A);
+                    counter[0]++;
+                    mutex.release();
+                }
+            }));
+        }
+
+        //when
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(TIMEOUT_MILLIS);
+        }
+
+        //then
+        Mutex mutex = locker.lock(VALUE_A);
+        assertEquals(threads.size() * increments, counter[0]);
+        mutex.release();
+    }
+
+    private static void awaitPendingRequests(RemoteLocker locker, int expected) throws Exception {
+        Field connectionField = RemoteLocker.class.getDeclaredField("connection");
+        connectionField.setAccessible(true);
+        Object connection = connectionField.get(locker);
+        Field pendingField = connection.getClass().getDeclaredField("pending");
+        pendingField.setAccessible(true);
+        Map<?, ?> pending = (Map<?, ?>) pendingField.get(connection);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (pending.size() != expected) {
+            assertTrue(System.nanoTime() < deadline, "Pending requests not " + expected + " in time");
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.impl.SerialKeyedExecutor;
+import org.gusiew.lock.impl.util.StripedMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.gusiew.lock.test.impl.util.AwaitUtil.awaitQuietly;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerialKeyedExecutorTest {
+
+    private static final String VALUE_A = "A";
+    private static final String VALUE_A_OTHER_INSTANCE = new String(VALUE_A);
+    private static final String VALUE_B = "B";
+    private static final int NUMBER_OF_TASKS = 1000;
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+    private final SerialKeyedExecutor executor = new SerialKeyedExecutor(pool);
+
+    @AfterEach
+    void shutdownPool() throws InterruptedException {
+        awaitQueuesEmpty(executor);
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void shouldRunTasksOfEqualValuesSeriallyInSubmissionOrder() throws Exception {
+        //given
+        AtomicInteger running = new AtomicInteger();
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < NUMBER_OF_TASKS; i++) {
+            int taskNumber = i;
+            Object value = i % 2 == 0 ? VALUE_A : VALUE_A_OTHER_INSTANCE;
+            futures.add(executor.submit(value, () -> {
+                boolean alone = running.incrementAndGet() == 1;
+                order.add(taskNumber);
+                running.decrementAndGet();
+                return alone;
+            }));
+        }
+
+        //then
+        for (CompletableFuture<Boolean> future : futures) {
+            assertTrue(future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        }
+        for (int i = 0; i < NUMBER_OF_TASKS; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    void shouldRunTasksOfDifferentValuesConcurrently() throws Exception {
+        //given
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Runnable awaitOther = () -> {
+            bothStarted.countDown();
+            try {
+                assertTrue(bothStarted.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        };
+
+        //when
+        CompletableFuture<Object> first = executor.submit(VALUE_A, () -> { awaitOther.run(); return null; });
+        CompletableFuture<Object> second = executor.submit(VALUE_B, () -> { awaitOther.run(); return null; });
+
+        //then
+        first.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        second.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void shouldCompleteFutureExceptionallyAndContinueWithNextTask() throws Exception {
+        //given
+        IllegalStateException failure = new IllegalStateException();
+
+        //when
+        CompletableFuture<Object> failed = executor.submit(VALUE_A, () -> { throw failure; });
+        CompletableFuture<String> next = executor.submit(VALUE_A, () -> VALUE_B);
+
+        //then
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> failed.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertSame(failure, thrown.getCause());
+        assertEquals(VALUE_B, next.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void shouldRunTasksFromManyThreadsExclusivelyPerValue() throws Exception {
+        //given
+        int numberOfThreads = 4;
+        int tasksPerThread = 500;
+        int[] counters = new int[2];
+        CountDownLatch done = new CountDownLatch(numberOfThreads * tasksPerThread);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < tasksPerThread; i++) {
+                    int index = i % 2;
+                    executor.execute(index == 0 ? VALUE_A : VALUE_B, () -> {
+                        counters[index]++;
+                        done.countDown();
+                    });
+                }
+            }));
+        }
+
+        //when
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        //then
+        assertTrue(done.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        awaitQueuesEmpty(executor);
+        assertEquals(numberOfThreads * tasksPerThread / 2, counters[0]);
+        assertEquals(numberOfThreads * tasksPerThread / 2, counters[1]);
+    }
+
+    @Test
+    void shouldThrowAndNotRegisterValueWhenExecutorRejectsTask() {
+        //given
+        ExecutorService shutdownPool = Executors.newSingleThreadExecutor();
+        shutdownPool.shutdown();
+        SerialKeyedExecutor rejecting = new SerialKeyedExecutor(shutdownPool);
+
+        //then
+        assertThrows(RejectedExecutionException.class, () -> rejecting.execute(VALUE_A, () -> {}));
+        assertTrue(queuesEmpty(rejecting));
+    }
+
+    @Test
+    void shouldRejectTasksEnqueuedBeforeExecutorRejectedQueue() throws Exception {
+        //given
+        CompletableFuture<CompletableFuture<String>> enqueued = new CompletableFuture<>();
+        SerialKeyedExecutor[] rejecting = new SerialKeyedExecutor[1];
+        rejecting[0] = new SerialKeyedExecutor(runnable -> {
+            enqueued.complete(CompletableFuture.supplyAsync(() -> rejecting[0].submit(VALUE_A, () -> VALUE_B)).join());
+            throw new RejectedExecutionException();
+        });
+
+        //when
+        assertThrows(RejectedExecutionException.class, () -> rejecting[0].execute(VALUE_A, () -> {}));
+
+        //then
+        CompletableFuture<String> future = enqueued.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertTrue(thrown.getCause() instanceof RejectedExecutionException);
+        assertTrue(queuesEmpty(rejecting[0]));
+    }
+
+    @Test
+    void shouldKeepDrainingHotValueWhenExecutorRejectsNextBatch() throws Exception {
+        //given
+        AtomicInteger executions = new AtomicInteger();
+        SerialKeyedExecutor rejecting = new SerialKeyedExecutor(runnable -> {
+            if(executions.getAndIncrement() > 0) {
+                throw new RejectedExecutionException();
+            }
+            pool.execute(runnable);
+        });
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger completed = new AtomicInteger();
+        rejecting.execute(VALUE_A, () -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        started.await();
+
+        //when
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_TASKS; i++) {
+            futures.add(rejecting.submit(VALUE_A, completed::incrementAndGet));
+        }
+        release.countDown();
+
+        //then
+        futures.get(NUMBER_OF_TASKS - 1).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(NUMBER_OF_TASKS, completed.get());
+        assertTrue(executions.get() > 1);
+        awaitQueuesEmpty(rejecting);
+    }
+
+    @Test
+    void shouldRejectNullValue() {
+        assertThrows(NullPointerException.class, () -> executor.execute(null, () -> {}));
+    }
+
+    private static void awaitQueuesEmpty(SerialKeyedExecutor executor) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (!queuesEmpty(executor)) {
+            assertTrue(System.nanoTime() < deadline, "Value queues not removed in time");
+            Thread.sleep(1);
+        }
+    }
+
+    private static boolean queuesEmpty(SerialKeyedExecutor executor) {
+        try {
+            Field field = SerialKeyedExecutor.class.getDeclaredField("queues");
+            field.setAccessible(true);
+            return ((StripedMap<?, ?>) field.get(executor)).isEmpty();
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.impl.util.StripedMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedMapTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -65536, -1, 0, 1, 65535, Integer.MAX_VALUE})
+    void shouldSelectStripeWithinBoundsForAnyHashCode(int hashCode) {
+        for (int numberOfStripes : new int[]{1, 2, 3, 16, 1000, 1 << 16}) {
+            //given
+            StripedMap<Object, Object> map = new StripedMap<>(numberOfStripes);
+
+            //when
+            int stripeIndex = map.getStripeIndex(new KeyWithHashCode(hashCode));
+
+            //then
+            assertTrue(stripeIndex >= 0, "stripe " + stripeIndex + " of " + numberOfStripes);
+            assertTrue(stripeIndex < map.getNumberOfStripes(), "stripe " + stripeIndex + " of " + numberOfStripes);
+        }
+    }
+
+    @Test
+    void shouldRoundNumberOfStripesUpToPowerOfTwo() {
+        assertEquals(1, new StripedMap<>(1).getNumberOfStripes());
+        assertEquals(8, new StripedMap<>(5).getNumberOfStripes());
+        assertEquals(16, new StripedMap<>(16).getNumberOfStripes());
+        assertEquals(1024, new StripedMap<>(1000, false).getNumberOfStripes());
+    }
+
+    @Test
+    void shouldCapNumberOfStripes() {
+        assertEquals(1 << 16, new StripedMap<>(1 << 16, false).getNumberOfStripes());
+        assertEquals(1 << 16, new StripedMap<>((1 << 16) + 1, false).getNumberOfStripes());
+        assertEquals(1 << 16, new StripedMap<>(Integer.MAX_VALUE, false).getNumberOfStripes());
+    }
+
+    @Test
+    void shouldRejectNonPositiveNumberOfStripes() {
+        assertThrows(IllegalArgumentException.class, () -> new StripedMap<>(0));
+        assertThrows(IllegalArgumentException.class, () -> new StripedMap<>(-1));
+    }
+
+    @Test
+    void shouldStoreKeyInStripeAtItsStripeIndex() {
+        //given
+        StripedMap<Object, Object> map = new StripedMap<>(16);
+        Object value = new Object();
+
+        for (int hashCode : new int[]{Integer.MIN_VALUE, -1, 0, 1, 42, Integer.MAX_VALUE}) {
+            KeyWithHashCode key = new KeyWithHashCode(hashCode);
+
+            //when
+            map.put(key, value);
+
+            //then
+            int stripeIndex = map.getStripeIndex(key);
+            assertSame(map.getStripe(key), map.getStripeAt(stripeIndex));
+            assertSame(value, map.getStripeAt(stripeIndex).get(key));
+            for (int i = 0; i < map.getNumberOfStripes(); i++) {
+                if(i != stripeIndex) {
+                    assertFalse(map.getStripeAt(i).containsKey(key));
+                }
+            }
+            map.remove(key);
+        }
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void shouldRemoveOnlyGivenValueInstance() {
+        //given
+        StripedMap<Object, Object> map = new StripedMap<>(4);
+        String value = "value";
+        map.put("key", value);
+
+        //when
+        map.remove("key", new String(value));
+
+        //then
+        assertSame(value, map.get("key"));
+        map.remove("key", value);
+        assertNull(map.get("key"));
+    }
+
+    private static final class KeyWithHashCode {
+
+        private final int hashCode;
+
+        KeyWithHashCode(int hashCode) {
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof KeyWithHashCode && ((KeyWithHashCode) o).hashCode == hashCode;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.test.impl.util.Assertions;
+import org.gusiew.lock.test.impl.util.TestReentrantMutex;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.gusiew.lock.test.impl.util.AwaitUtil.awaitWaitingThreads;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestReentrantLockerAsyncTest extends AbstractReentrantLockerTest {
+
+    private static final Executor SAME_THREAD = Runnable::run;
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    @Test
+    void shouldCompleteImmediatelyWhenValueIsFree() throws Exception {
+        //when
+        CompletableFuture<Mutex> future = locker.lockAsync(VALUE_A, SAME_THREAD);
+
+        //then
+        assertTrue(future.isDone());
+        Assertions.assertMutexActiveButNotHeld(locker, VALUE_A);
+        future.get().release();
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+
+    @Test
+    void shouldAllowReleaseFromOtherThread() throws Exception {
+        //given
+        Mutex mutex = locker.lockAsync(VALUE_A, SAME_THREAD).get();
+
+        //when
+        Thread thread = new Thread(mutex::release);
+        thread.start();
+        thread.join();
+
+        //then
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+
+    @Test
+    void shouldNotReenterLockHeldByCurrentThread() {
+        //given
+        TestReentrantMutex mutex = locker.lock(VALUE_A);
+
+        //when
+        CompletableFuture<Mutex> future = locker.lockAsync(VALUE_A_OTHER_INSTANCE, SAME_THREAD);
+
+        //then
+        assertFalse(future.isDone());
+        mutex.release();
+        assertTrue(future.isDone());
+        future.join().release();
+    }
+
+    @Test
+    void shouldHandOverLockToAsyncWaiterBeforeParkedThread() throws InterruptedException {
+        //given
+        TestReentrantMutex mutex = locker.lock(VALUE_A);
+        CompletableFuture<Mutex> future = locker.lockAsync(VALUE_A, SAME_THREAD);
+        CountDownLatch threadAcquired = new CountDownLatch(1);
+        Thread waitingThread = new Thread(() -> {
+            TestReentrantMutex m = locker.lock(VALUE_A);
+            threadAcquired.countDown();
+            m.release();
+        });
+        waitingThread.start();
+        awaitWaitingThreads(mutex, 2);
+
+        //when
+        mutex.release();
+
+        //then
+        assertTrue(future.isDone());
+        assertFalse(threadAcquired.await(50, TimeUnit.MILLISECONDS));
+        future.join().release();
+        assertTrue(threadAcquired.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        waitingThread.join();
+    }
+
+    @Test
+    void shouldReleaseLockGrantedToCancelledFuture() {
+        //given
+        TestReentrantMutex mutex = locker.lock(VALUE_A);
+        CompletableFuture<Mutex> future = locker.lockAsync(VALUE_A, SAME_THREAD);
+
+        //when
+        future.cancel(false);
+        mutex.release();
+
+        //then
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+
+    @Test
+    void shouldReleaseLockWhenExecutorRejectsCompletion() {
+        //given
+        TestReentrantMutex mutex = locker.lock(VALUE_A);
+        CompletableFuture<Mutex> future = locker.lockAsync(VALUE_A, command -> {
+            throw new RejectedExecutionException();
+        });
+
+        //when
+        mutex.release();
+
+        //then
+        assertTrue(future.isCompletedExceptionally());
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+}
@@ -0,0 +1,125 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.test.impl.util.Assertions;
+import org.gusiew.lock.test.impl.util.TestReentrantMutex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.gusiew.lock.test.impl.util.AwaitUtil.awaitWaitingThreads;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestReentrantLockerCombineTest extends AbstractReentrantLockerTest {
+
+
+    @Test
+    void combineShouldApplyOperationToValueAndRelease() {
+        //when
+        String result = locker.combine(VALUE_A, v -> v + VALUE_B);
+
+        //then
+        assertEquals(VALUE_A + VALUE_B, result);
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+
+    @Test
+    void combineShouldRunInsideLockHeldByCurrentThread() {
+        //given
+        TestReentrantMutex mutex = locker.lock(VALUE_A);
+
+        //when
+        int entrances = locker.combine(VALUE_A_OTHER_INSTANCE, v -> mutex.getEntranceCount());
+
+        //then
+        assertEquals(2, entrances);
+        Assertions.assertActiveAndHeldByCurrentThreadWithEntrances(locker, mutex, 1);
+
+        mutex.release();
+    }
+
+    @Test
+    void combineShouldRethrowOperationFailureAndRelease() {
+        //given
+        IllegalStateException failure = new IllegalStateException();
+
+        //when
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> locker.combine(VALUE_A, v -> { throw failure; }));
+
+        //then
+        assertSame(failure, thrown);
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+
+    @Test
+    void operationsQueuedWhileValueHeldShouldBeRunByOneCombiningThread() throws InterruptedException {
+        //given
+        TestReentrantMutex mutex = locker.lock(VALUE_A);
+        Map<Integer, Thread> runningThreads = new ConcurrentHashMap<>();
+        Map<Integer, Integer> results = new ConcurrentHashMap<>();
+        List<Thread> combiners = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            int number = i;
+            Thread combiner = new Thread(() -> results.put(number, locker.combine(VALUE_A, v -> {
+                runningThreads.put(number, Thread.currentThread());
+                return number;
+            })));
+            combiners.add(combiner);
+            combiner.start();
+            awaitWaitingThreads(mutex, i + 1);
+        }
+
+        //when
+        mutex.release();
+        for (Thread combiner : combiners) {
+            combiner.join();
+        }
+
+        //then
+        assertEquals(0, (int) results.get(0));
+        assertEquals(1, (int) results.get(1));
+        assertSame(runningThreads.get(0), runningThreads.get(1));
+        assertTrue(combiners.contains(runningThreads.get(0)));
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+
+    @Test
+    void combinedOperationsShouldBeMutuallyExclusive() throws InterruptedException {
+        //given
+        int numberOfThreads = 8;
+        int operationsPerThread = 2000;
+        int[] counter = new int[1];
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < operationsPerThread; i++) {
+                    locker.combine(VALUE_A, v -> {
+                        if(running.incrementAndGet() != 1) {
+                            overlaps.incrementAndGet();
+                        }
+                        counter[0]++;
+                        running.decrementAndGet();
+                        return null;
+                    });
+                }
+            }));
+        }
+
+        //when
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        //then
+        assertEquals(0, overlaps.get());
+        assertEquals(numberOfThreads * operationsPerThread, counter[0]);
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+}
@@ -0,0 +1,137 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.test.impl.util.Assertions;
+import org.gusiew.lock.test.impl.util.TestReentrantMutex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TestReentrantLockerLockAllTest extends AbstractReentrantLockerTest {
+
+    private static final int ITERATIONS = 20_000;
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    @Test
+    void shouldLockAndReleaseAllValues() {
+        //when
+        Mutex mutex = locker.lockAll(Arrays.asList(VALUE_A, VALUE_B, VALUE_C));
+
+        //then
+        for (String value : Arrays.asList(VALUE_A, VALUE_B, VALUE_C)) {
+            TestReentrantMutex reentered = locker.lock(value);
+            assertEquals(2, reentered.getEntranceCount());
+            reentered.release();
+        }
+        mutex.release();
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+        Assertions.assertMutexNotActive(locker, VALUE_B);
+        Assertions.assertMutexNotActive(locker, VALUE_C);
+    }
+
+    @Test
+    void shouldLockEqualValuesOnce() {
+        //given
+        Mutex mutex = locker.lockAll(Arrays.asList(VALUE_A, VALUE_A_OTHER_INSTANCE, VALUE_B));
+
+        //when
+        TestReentrantMutex reentered = locker.lock(VALUE_A);
+
+        //then
+        assertEquals(2, reentered.getEntranceCount());
+        reentered.release();
+        mutex.release();
+    }
+
+    @Test
+    void shouldAcceptEmptyCollection() {
+        locker.lockAll(Collections.emptyList()).release();
+    }
+
+    @Test
+    void shouldNotDeadlockWhenThreadsLockValuesInOppositeOrder() throws InterruptedException {
+        //given
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(() -> lockRepeatedly(Arrays.asList(VALUE_A, VALUE_B, VALUE_C))));
+        threads.add(new Thread(() -> lockRepeatedly(Arrays.asList(VALUE_C, VALUE_B, VALUE_A))));
+        threads.add(new Thread(() -> lockRepeatedly(Arrays.asList(VALUE_B, VALUE_A))));
+        threads.add(new Thread(() -> lockRepeatedly(Arrays.asList(new CollidingValue(1), new CollidingValue(2)))));
+        threads.add(new Thread(() -> lockRepeatedly(Arrays.asList(new CollidingValue(2), new CollidingValue(1)))));
+        threads.add(new Thread(() -> lockRepeatedly(Arrays.asList(
+                new ComparableCollidingValue(1), new CollidingValue(3), new ComparableCollidingValue(2)))));
+        threads.add(new Thread(() -> lockRepeatedly(Arrays.asList(
+                new ComparableCollidingValue(2), new CollidingValue(3), new ComparableCollidingValue(1)))));
+
+        //when
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(TIMEOUT_MILLIS);
+        }
+
+        //then
+        for (Thread thread : threads) {
+            assertFalse(thread.isAlive(), "Deadlocked thread " + thread.getName());
+        }
+    }
+
+    private void lockRepeatedly(List<Object> values) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            locker.lockAll(values).release();
+        }
+    }
+
+    /**
+     * Distinct values with same hash code and no natural order
+     */
+    private static final class CollidingValue {
+
+        private final int id;
+
+        CollidingValue(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingValue && ((CollidingValue) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
+
+    /**
+     * Distinct values with same hash code as {@link CollidingValue}, ordered among themselves only
+     */
+    private static final class ComparableCollidingValue implements Comparable<ComparableCollidingValue> {
+
+        private final int id;
+
+        ComparableCollidingValue(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(ComparableCollidingValue other) {
+            return Integer.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ComparableCollidingValue && ((ComparableCollidingValue) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.gusiew.lock.test.impl.util.TestReentrantLocker;
 import org.gusiew.lock.test.impl.util.TestReentrantMutex;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -25,6 +26,7 @@ class TestReentrantLockerSingleThreadedTest extends AbstractReentrantLockerTest
     private static final Long VALUE_1 = 1L;
     private static final Long VALUE_1_OTHER_INSTANCE = new Long(1L);
     private static final Long VALUE_2 = 2L;
+    private static final Integer VALUE_NEGATIVE_HASH_CODE = -1;
     private static final int ZERO_ENTRIES = 0;
     private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
 
@@ -152,11 +154,29 @@ class TestReentrantLockerSingleThreadedTest extends AbstractReentrantLockerTest
     }
 
     @ParameterizedTest
-    @ValueSource(ints = {1, 2, 3, 4})
+    @ValueSource(ints = {1, 2, 4, 64})
     void shouldApplyCorrectConcurrencyLevel(int level) {
         org.junit.jupiter.api.Assertions.assertEquals(level, new TestReentrantLocker(new ReentrantLocker(level)).getConcurrencyLevel());
     }
 
+    @ParameterizedTest
+    @CsvSource({"3, 4", "5, 8", "17, 32"})
+    void shouldRoundConcurrencyLevelUpToPowerOfTwo(int level, int expectedLevel) {
+        org.junit.jupiter.api.Assertions.assertEquals(expectedLevel, new TestReentrantLocker(new ReentrantLocker(level)).getConcurrencyLevel());
+    }
+
+    @Test
+    void shouldLockOnValueWithNegativeHashCode() {
+        //given
+        Object value = VALUE_NEGATIVE_HASH_CODE;
+        //when
+        TestReentrantMutex mutex = locker.lock(value);
+        //then
+        Assertions.assertActiveAndHeldByCurrentThread(locker, mutex);
+        mutex.release();
+        Assertions.assertNotActive(locker, mutex);
+    }
+
     private static Fixture fixture(Object value1, Object value2, boolean expectedResult) {
         return new Fixture(value1, value2, expectedResult);
     }
@@ -0,0 +1,211 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.test.impl.util.Assertions;
+import org.gusiew.lock.test.impl.util.TestReentrantMutex;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.gusiew.lock.test.impl.util.AwaitUtil.awaitWaitingThreads;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestReentrantLockerTryLockTest extends AbstractReentrantLockerTest {
+
+    private static final long SHORT_TIMEOUT_MILLIS = 50;
+    private static final long LONG_TIMEOUT_MILLIS = 5000;
+
+    @Test
+    void tryLockShouldLockFreeValue() {
+        //when
+        TestReentrantMutex mutex = locker.tryLock(VALUE_A);
+
+        //then
+        assertNotNull(mutex);
+        Assertions.assertActiveAndHeldByCurrentThread(locker, mutex);
+
+        mutex.release();
+        Assertions.assertNotActive(locker, mutex);
+    }
+
+    @Test
+    void tryLockShouldReenterValueHeldByCurrentThread() {
+        //given
+        TestReentrantMutex first = locker.lock(VALUE_A);
+
+        //when
+        TestReentrantMutex second = locker.tryLock(VALUE_A_OTHER_INSTANCE);
+
+        //then
+        assertSame(first, second);
+        Assertions.assertActiveAndHeldByCurrentThreadWithEntrances(locker, first, 2);
+
+        second.release();
+        first.release();
+    }
+
+    @Test
+    void tryLockShouldFailWithoutWaitingWhenValueHeldByOtherThread() throws InterruptedException {
+        //given
+        HoldingThread holder = HoldingThread.start(this, VALUE_A);
+
+        //when
+        TestReentrantMutex mutex = locker.tryLock(VALUE_A);
+
+        //then
+        assertNull(mutex);
+        Assertions.assertNoWaitingThreads(locker, VALUE_A);
+
+        holder.releaseAndJoin();
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+
+    @Test
+    void timedTryLockShouldFailAndLeaveMutexAfterTimeout() throws InterruptedException {
+        //given
+        HoldingThread holder = HoldingThread.start(this, VALUE_A);
+
+        //when
+        TestReentrantMutex mutex = locker.tryLock(VALUE_A, SHORT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        //then
+        assertNull(mutex);
+        Assertions.assertNoWaitingThreads(locker, VALUE_A);
+
+        holder.releaseAndJoin();
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+
+    @Test
+    void timedTryLockWithNegativeTimeoutShouldFailAtOnce() throws InterruptedException {
+        //given
+        HoldingThread holder = HoldingThread.start(this, VALUE_A);
+
+        //when
+        TestReentrantMutex mutex = locker.tryLock(VALUE_A, -1, TimeUnit.NANOSECONDS);
+
+        //then
+        assertNull(mutex);
+        Assertions.assertNoWaitingThreads(locker, VALUE_A);
+
+        holder.releaseAndJoin();
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+
+    @Test
+    void timedTryLockShouldLockValueReleasedByOtherThread() throws InterruptedException {
+        //given
+        HoldingThread holder = HoldingThread.start(this, VALUE_A);
+
+        //when
+        holder.releaseAndJoin();
+        TestReentrantMutex mutex = locker.tryLock(VALUE_A, SHORT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+        //then
+        assertNotNull(mutex);
+        mutex.release();
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+
+    @Test
+    void timedTryLockShouldAcquireLockReleasedWithinTimeout() throws InterruptedException {
+        //given
+        HoldingThread holder = HoldingThread.start(this, VALUE_A);
+        AtomicReference<TestReentrantMutex> acquired = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                acquired.set(locker.tryLock(VALUE_A, LONG_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+                acquired.get().release();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        //when
+        waiter.start();
+        awaitWaitingThreads(holder.mutex, 1);
+        holder.releaseAndJoin();
+        waiter.join();
+
+        //then
+        assertNotNull(acquired.get());
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+
+    @Test
+    void lockInterruptiblyShouldThrowAndLeaveMutexWhenInterrupted() throws InterruptedException {
+        //given
+        HoldingThread holder = HoldingThread.start(this, VALUE_A);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                locker.lockInterruptibly(VALUE_A);
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+
+        //when
+        waiter.start();
+        awaitWaitingThreads(holder.mutex, 1);
+        waiter.interrupt();
+        waiter.join();
+
+        //then
+        assertTrue(thrown.get() instanceof InterruptedException);
+        Assertions.assertNoWaitingThreads(locker, VALUE_A);
+
+        holder.releaseAndJoin();
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+
+    @Test
+    void lockInterruptiblyShouldThrowWhenAlreadyInterrupted() {
+        //given
+        Thread.currentThread().interrupt();
+
+        //then
+        assertThrows(InterruptedException.class, () -> locker.lockInterruptibly(VALUE_A));
+        assertFalse(Thread.currentThread().isInterrupted());
+        Assertions.assertMutexNotActive(locker, VALUE_A);
+    }
+
+    private static class HoldingThread extends Thread {
+
+        private final AbstractReentrantLockerTest test;
+        private final Object value;
+        private final CountDownLatch locked = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile TestReentrantMutex mutex;
+
+        private HoldingThread(AbstractReentrantLockerTest test, Object value) {
+            this.test = test;
+            this.value = value;
+        }
+
+        static HoldingThread start(AbstractReentrantLockerTest test, Object value) throws InterruptedException {
+            HoldingThread thread = new HoldingThread(test, value);
+            thread.start();
+            thread.locked.await();
+            return thread;
+        }
+
+        @Override
+        public void run() {
+            mutex = test.locker.lock(value);
+            locked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            mutex.release();
+        }
+
+        void releaseAndJoin() throws InterruptedException {
+            release.countDown();
+            join();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.impl.WaitStrategies;
+import org.gusiew.lock.impl.WaitStrategy;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitStrategiesTest {
+
+    @Test
+    void spinningStrategiesShouldRetryGivenNumberOfTimes() {
+        for (WaitStrategy strategy : new WaitStrategy[]{WaitStrategies.busySpin(3), WaitStrategies.spinWait(3), WaitStrategies.yielding(3)}) {
+            assertTrue(strategy.spin(0, 0));
+            assertTrue(strategy.spin(2, 0));
+            assertFalse(strategy.spin(3, 0));
+            assertEquals(7, strategy.adapt(7, true));
+        }
+        assertFalse(WaitStrategies.park().spin(0, 100));
+        assertThrows(IllegalArgumentException.class, () -> WaitStrategies.busySpin(-1));
+    }
+
+    @Test
+    void adaptiveStrategyShouldSpinUpToLearnedLimit() {
+        //given
+        WaitStrategy strategy = WaitStrategies.adaptive();
+
+        //then
+        assertTrue(strategy.spin(9, 10));
+        assertFalse(strategy.spin(10, 10));
+        assertEquals(20, strategy.adapt(10, true));
+        assertEquals(5, strategy.adapt(10, false));
+    }
+
+    @Test
+    void adaptiveStrategyShouldKeepLimitWithinBounds() {
+        //given
+        WaitStrategy strategy = WaitStrategies.adaptive();
+        int limit = 64;
+
+        //when
+        for (int i = 0; i < 64; i++) {
+            limit = strategy.adapt(limit, false);
+        }
+
+        //then
+        assertTrue(limit > 0, "Limit should stay positive so spinning is retried");
+        for (int i = 0; i < 64; i++) {
+            limit = strategy.adapt(limit, true);
+        }
+        assertTrue(limit > 64 && limit < Integer.MAX_VALUE / 2);
+    }
+}
@@ -0,0 +1,38 @@
+package org.gusiew.lock.test.impl.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AwaitUtil {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private AwaitUtil() {
+    }
+
+    /**
+     * Waits until given number of threads waits for the mutex, fails if they do not register in time
+     */
+    public static void awaitWaitingThreads(TestReentrantMutex mutex, int numberOfThreads) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        while (mutex.getWaitingThreadsCount() != numberOfThreads) {
+            assertTrue(System.nanoTime() < deadline, "Waiting threads not registered in time");
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Waits for the latch in threads that can not throw {@link InterruptedException}, e.g. callbacks of tested code.
+     * Gives up after timeout, so latch that is never counted down does not hang the build.
+     * Interrupt is restored for the caller to notice
+     */
+    public static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,17 +2,24 @@ package org.gusiew.lock.test.impl.util;
 
 import org.gusiew.lock.api.Locker;
 import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.impl.PooledReentrantLocker;
 import org.gusiew.lock.impl.ReentrantLocker;
-import org.gusiew.lock.impl.ReentrantMutex;
 import org.gusiew.lock.impl.internal.ActiveMutexesUpdatedHandler;
 import org.gusiew.lock.impl.internal.MutexFactory;
-import org.gusiew.lock.impl.util.StripedMap;
+import org.gusiew.lock.impl.util.CompactStripedMap;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 public class TestReentrantLocker implements Locker {
 
     private static final String MUTEX_FACTORY_FIELD_NAME = "mutexFactory";
     private static final String ACTIVE_MUTEXES_UPDATED_HANDLER_FIELD_NAME = "activeMutexesUpdatedHandler";
     private static final String LOCKS_FIELD_NAME = "locks";
+    private static final String REENTRANT_LOCKER_FIELD_NAME = "reentrantLocker";
 
     private final ReentrantLocker reentrantLocker;
 
@@ -22,9 +29,16 @@ public class TestReentrantLocker implements Locker {
         setupTestActiveMutexesUpdatedHandlerOnReentrantLocker();
     }
 
+    /**
+     * Tests mutexes of pooling locker, not handles it gives out
+     */
+    public TestReentrantLocker(PooledReentrantLocker pooledReentrantLocker) {
+        this(ReflectionUtil.getValue(pooledReentrantLocker, REENTRANT_LOCKER_FIELD_NAME, ReentrantLocker.class));
+    }
+
     private void setupTestMutexFactoryOnReentrantLocker() {
-        MutexFactory factory = ReflectionUtil.getValue(reentrantLocker, MUTEX_FACTORY_FIELD_NAME, MutexFactory.class);
-        ReflectionUtil.setValue(reentrantLocker, MUTEX_FACTORY_FIELD_NAME, createTestReentrantMutexFactory(factory));
+        MutexFactory factory = TestReentrantMutex::new;
+        ReflectionUtil.setValue(reentrantLocker, MUTEX_FACTORY_FIELD_NAME, factory);
     }
 
     private void setupTestActiveMutexesUpdatedHandlerOnReentrantLocker() {
@@ -37,12 +51,35 @@ public class TestReentrantLocker implements Locker {
         return (TestReentrantMutex) reentrantLocker.lock(value);
     }
 
+    @Override
+    public TestReentrantMutex tryLock(Object value) {
+        return (TestReentrantMutex) reentrantLocker.tryLock(value);
+    }
 
-    private MutexFactory createTestReentrantMutexFactory(MutexFactory factory) {
-        return value -> {
-            ReentrantMutex reentrantMutex = factory.createAndLock(value);
-            return TestReentrantMutex.from(reentrantMutex);
-        };
+    @Override
+    public TestReentrantMutex tryLock(Object value, long timeout, TimeUnit unit) throws InterruptedException {
+        return (TestReentrantMutex) reentrantLocker.tryLock(value, timeout, unit);
+    }
+
+    @Override
+    public TestReentrantMutex lockInterruptibly(Object value) throws InterruptedException {
+        return (TestReentrantMutex) reentrantLocker.lockInterruptibly(value);
+    }
+
+
+    @Override
+    public Mutex lockAll(Collection<?> values) {
+        return reentrantLocker.lockAll(values);
+    }
+
+    @Override
+    public CompletableFuture<Mutex> lockAsync(Object value, Executor executor) {
+        return reentrantLocker.lockAsync(value, executor);
+    }
+
+    @Override
+    public <T> T combine(Object value, Function<Object, ? extends T> operation) {
+        return reentrantLocker.combine(value, operation);
     }
 
     private ActiveMutexesUpdatedHandler createActiveMutexesUpdatedHandler(ActiveMutexesUpdatedHandler handler) {
@@ -61,13 +98,9 @@ public class TestReentrantLocker implements Locker {
     }
 
     TestReentrantMutex getFromActiveMutexes(Object lock) {
-        TestReentrantMutex mutex;
-        StripedMap<Object, Mutex> stripedMap = getLocks();
-        synchronized (stripedMap.getStripe(lock)) {
-            mutex = (TestReentrantMutex) stripedMap.get(lock);
-            if(mutex != null) {
-                mutex = mutex.synchronizedSelfGet();
-            }
+        TestReentrantMutex mutex = (TestReentrantMutex) getLocks().get(lock);
+        if(mutex != null) {
+            mutex = mutex.synchronizedSelfGet();
         }
         return mutex;
     }
@@ -77,21 +110,11 @@ public class TestReentrantLocker implements Locker {
     }
 
     boolean activeMutexesEmpty() {
-        StripedMap<Object, Mutex> stripedMap = getLocks();
-        return internalCheckEmpty(stripedMap, 0);
-    }
-
-    private boolean internalCheckEmpty(StripedMap<Object, Mutex> stripedMap, int fromStripeIndex) {
-        if(fromStripeIndex < stripedMap.getNumberOfStripes()) {
-            synchronized (stripedMap.getStripe(fromStripeIndex)) {
-                return internalCheckEmpty(stripedMap, fromStripeIndex + 1);
-            }
-        }
-        return stripedMap.isEmpty();
+        return getLocks().isEmpty();
     }
 
     @SuppressWarnings("unchecked")
-    private StripedMap<Object, Mutex> getLocks() {
-        return ReflectionUtil.getValue(reentrantLocker, LOCKS_FIELD_NAME, StripedMap.class);
+    private CompactStripedMap<Object, Mutex> getLocks() {
+        return ReflectionUtil.getValue(reentrantLocker, LOCKS_FIELD_NAME, CompactStripedMap.class);
     }
 }
\ No newline at end of file
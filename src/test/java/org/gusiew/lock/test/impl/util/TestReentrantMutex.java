@@ -1,24 +1,15 @@
 package org.gusiew.lock.test.impl.util;
 
+import org.gusiew.lock.impl.MutexOptions;
 import org.gusiew.lock.impl.ReentrantMutex;
 import org.gusiew.lock.impl.exception.MutexException;
-import org.gusiew.lock.impl.util.StripedMap;
+import org.gusiew.lock.impl.util.CompactStripedMap;
 import org.gusiew.lock.impl.util.ThreadUtil;
 
 public class TestReentrantMutex extends ReentrantMutex {
 
-    private static final String LOCK_FIELD_NAME = "lock";
-    private static final String LOCKS_FIELD_NAME = "locks";
-
-    private TestReentrantMutex(Object value, StripedMap<Object, ReentrantMutex> locks) {
-        super(value, locks);
-    }
-
-    @SuppressWarnings("unchecked")
-    static TestReentrantMutex from(ReentrantMutex reentrantMutex) {
-        Object lock = ReflectionUtil.getValue(reentrantMutex, LOCK_FIELD_NAME, Object.class);
-        StripedMap<Object, ReentrantMutex> locks = ReflectionUtil.getValue(reentrantMutex, LOCKS_FIELD_NAME, StripedMap.class);
-        return new TestReentrantMutex(lock, locks);
+    TestReentrantMutex(Object value, CompactStripedMap<Object, ReentrantMutex> locks, MutexOptions options) {
+        super(value, locks, options);
     }
 
     boolean isHeld() {
@@ -0,0 +1,126 @@
+package org.gusiew.lock.test.impl;
+
+import org.gusiew.lock.api.Mutex;
+import org.gusiew.lock.api.ReadWriteLocker;
+import org.gusiew.lock.impl.ReentrantLocker;
+import org.gusiew.lock.impl.ReentrantReadWriteLocker;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs with single carrier thread (see java21 profile), virtual thread that pins carrier while waiting
+ * for the lock would never let the holder release it
+ */
+class VirtualThreadLockerTest {
+
+    private static final int NUMBER_OF_THREADS = 10_000;
+    private static final int NUMBER_OF_KEYS = 16;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @Test
+    void shouldNotPinCarrierWhileWaitingForLock() throws InterruptedException {
+        //given
+        ReentrantLocker locker = new ReentrantLocker();
+        long[] counters = new long[NUMBER_OF_KEYS];
+
+        //when
+        List<Thread> threads = startVirtualThreads(i -> {
+            int key = i % NUMBER_OF_KEYS;
+            Mutex mutex = locker.lock(key);
+            try {
+                sleepInsideLock();
+                counters[key]++;
+            } finally {
+                mutex.release();
+            }
+        });
+
+        //then
+        joinAll(threads);
+        long total = 0;
+        for (long counter : counters) {
+            total += counter;
+        }
+        assertEquals(NUMBER_OF_THREADS, total);
+    }
+
+    @Test
+    void shouldNotPinCarrierWhileWaitingForTimedLock() throws InterruptedException {
+        //given
+        ReentrantLocker locker = ReentrantLocker.builder().fair(true).build();
+
+        //when
+        List<Thread> threads = startVirtualThreads(i -> {
+            try {
+                Mutex mutex = locker.tryLock(i % NUMBER_OF_KEYS, TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                sleepInsideLock();
+                mutex.release();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        //then
+        joinAll(threads);
+    }
+
+    @Test
+    void shouldNotPinCarrierWhileWaitingForReadWriteLock() throws InterruptedException {
+        //given
+        ReadWriteLocker locker = new ReentrantReadWriteLocker();
+
+        //when
+        List<Thread> threads = startVirtualThreads(i -> {
+            Object key = i % NUMBER_OF_KEYS;
+            Mutex mutex = i % 4 == 0 ? locker.writeLock(key) : locker.readLock(key);
+            try {
+                sleepInsideLock();
+            } finally {
+                mutex.release();
+            }
+        });
+
+        //then
+        joinAll(threads);
+    }
+
+    private static List<Thread> startVirtualThreads(IntTask task) {
+        List<Thread> threads = new ArrayList<>(NUMBER_OF_THREADS);
+        for (int i = 0; i < NUMBER_OF_THREADS; i++) {
+            int index = i;
+            threads.add(Thread.ofVirtual().start(() -> task.run(index)));
+        }
+        return threads;
+    }
+
+    private static void joinAll(List<Thread> threads) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        for (Thread thread : threads) {
+            thread.join(Duration.ofNanos(Math.max(1, deadline - System.nanoTime())));
+            assertFalse(thread.isAlive(), "Virtual thread did not complete, carrier thread pinned?");
+        }
+    }
+
+    /**
+     * Virtual thread yields carrier while sleeping, other virtual threads run and block on the lock meanwhile
+     */
+    private static void sleepInsideLock() {
+        try {
+            Thread.sleep(0, 1000);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IntTask {
+        void run(int index);
+    }
+}